@@ -0,0 +1,99 @@
+package gh.marad.chi.core
+
+import java.lang.management.ManagementFactory
+
+/**
+ * Time and memory spent in each compilation phase, along with some counters
+ * (like number of expressions). Phases and counters are reported in the order they were recorded.
+ *
+ * Allocated bytes are measured for the compiling thread only - work done on other threads
+ * (like parallel analysis of large programs) is not included.
+ */
+class CompilationMetrics(val sourceName: String) {
+    private val phases = mutableListOf<Phase>()
+    private val counters = linkedMapOf<String, Long>()
+
+    data class Phase(val name: String, val nanos: Long, val allocatedBytes: Long)
+
+    fun getPhases(): List<Phase> = phases
+    fun getCounters(): Map<String, Long> = counters
+
+    fun <T> measure(phase: String, block: () -> T): T {
+        val allocatedBefore = allocatedBytes()
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            val nanos = System.nanoTime() - start
+            phases.add(Phase(phase, nanos, allocatedBytes() - allocatedBefore))
+        }
+    }
+
+    fun count(counter: String, value: Long) {
+        counters[counter] = value
+    }
+
+    fun totalNanos(): Long = phases.sumOf { it.nanos }
+
+    /**
+     * Human-readable summary with one line per phase.
+     */
+    fun toSummary(): String {
+        val sb = StringBuilder()
+        sb.appendLine("Compilation of $sourceName took %.2fms".format(totalNanos() / 1e6))
+        phases.forEach {
+            sb.appendLine("  %-24s %10.2fms %12s".format(it.name, it.nanos / 1e6, formatBytes(it.allocatedBytes)))
+        }
+        counters.forEach { (name, value) ->
+            sb.appendLine("  %-24s %10d".format(name, value))
+        }
+        return sb.toString()
+    }
+
+    fun toJson(): String {
+        val phasesJson = phases.joinToString(",") {
+            """{"name":${jsonString(it.name)},"nanos":${it.nanos},"allocatedBytes":${it.allocatedBytes}}"""
+        }
+        val countersJson = counters.entries.joinToString(",") { "${jsonString(it.key)}:${it.value}" }
+        return """{"source":${jsonString(sourceName)},"totalNanos":${totalNanos()},"phases":[$phasesJson],"counters":{$countersJson}}"""
+    }
+
+    companion object {
+        // not every JVM can count allocations, in which case allocated bytes are reported as 0
+        private val threadMXBean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+        private fun allocatedBytes(): Long =
+            if (threadMXBean?.isThreadAllocatedMemorySupported == true) {
+                threadMXBean.getThreadAllocatedBytes(Thread.currentThread().id)
+            } else {
+                0
+            }
+
+        private fun formatBytes(bytes: Long): String =
+            if (bytes >= 1024 * 1024) "%.1fMB".format(bytes / (1024.0 * 1024.0))
+            else "%.1fkB".format(bytes / 1024.0)
+
+        private fun jsonString(value: String): String {
+            val sb = StringBuilder("\"")
+            value.forEach {
+                when {
+                    it == '"' -> sb.append("\\\"")
+                    it == '\\' -> sb.append("\\\\")
+                    it < ' ' -> sb.append("\\u%04x".format(it.code))
+                    else -> sb.append(it)
+                }
+            }
+            return sb.append('"').toString()
+        }
+
+        /**
+         * JSON array with reports for all given compilations.
+         */
+        @JvmStatic
+        fun toJson(metrics: List<CompilationMetrics>): String =
+            metrics.joinToString(",\n", prefix = "[\n", postfix = "\n]\n") { it.toJson() }
+    }
+}
+
+internal fun <T> CompilationMetrics?.phase(name: String, block: () -> T): T =
+    if (this != null) measure(name, block) else block()
@@ -2,20 +2,52 @@
 
 package gh.marad.chi.core
 
-import gh.marad.chi.core.analyzer.Level
-import gh.marad.chi.core.analyzer.Message
-import gh.marad.chi.core.analyzer.analyze
+import ChiParser
+import gh.marad.chi.core.analyzer.*
+import gh.marad.chi.core.expressionast.generateExpressionAst
+import gh.marad.chi.core.expressionast.preparePackage
 import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import gh.marad.chi.core.parser.ChiSource
+import gh.marad.chi.core.parser.ParserVisitor
+import gh.marad.chi.core.parser.readers.*
 
 
 data class CompilationResult(
     val messages: List<Message>,
     val program: Program,
+    val source: ChiSource,
 ) {
     fun hasErrors(): Boolean = messages.any { it.level == Level.ERROR }
     fun errors() = messages.filter { it.level == Level.ERROR }
 }
 
+/**
+ * Result of [Compiler.compileStreaming]. Compiled expressions were already passed to the [TopLevelConsumer].
+ */
+data class StreamingCompilationResult(
+    val messages: List<Message>,
+    val source: ChiSource,
+) {
+    fun hasErrors(): Boolean = messages.any { it.level == Level.ERROR }
+    fun errors() = messages.filter { it.level == Level.ERROR }
+}
+
+/**
+ * Receives top level expressions compiled by [Compiler.compileStreaming].
+ */
+interface TopLevelConsumer {
+    /**
+     * Receives package definition, imports, type definitions and function declarations.
+     * They should be run before any top level code.
+     */
+    fun definition(expression: Expression)
+
+    /**
+     * Receives top level code in the source order.
+     */
+    fun code(expression: Expression)
+}
+
 object Compiler {
     /**
      * Compiles source code and produces compilation result that
@@ -25,22 +57,196 @@ object Compiler {
      * @param namespace Namespace to use for compilation
      */
     @JvmStatic
-    fun compile(source: String, namespace: GlobalCompilationNamespace): CompilationResult {
-        val (program, parsingMessages) = parseProgram(source, namespace)
+    fun compile(source: String, namespace: GlobalCompilationNamespace): CompilationResult =
+        compile(source, namespace, null)
+
+    /**
+     * Compiles source code like [compile] and records time and allocations of every
+     * compilation phase in given metrics.
+     *
+     * @param source Chi source code.
+     * @param namespace Namespace to use for compilation
+     * @param metrics Metrics to record to or `null` to skip measurements
+     */
+    @JvmStatic
+    fun compile(
+        source: String,
+        namespace: GlobalCompilationNamespace,
+        metrics: CompilationMetrics?
+    ): CompilationResult {
+        val chiSource = ChiSource(source)
+        val (program, parsingMessages) = parseProgram(chiSource, namespace, metrics)
+        if (metrics != null) {
+            var expressions = 0L
+            program.expressions.forEach { forEachAst(it) { expressions += 1 } }
+            metrics.count("expressions", expressions)
+        }
         return if (parsingMessages.isNotEmpty()) {
-            CompilationResult(parsingMessages, program)
+            CompilationResult(parsingMessages, program, chiSource)
         } else {
-            val messages = analyze(program)
-            CompilationResult(messages, program)
+            val messages = metrics.phase("analysis") { analyze(program) }
+            CompilationResult(messages, program, chiSource)
+        }
+    }
+
+    /**
+     * Compiles source code one top level declaration at a time and passes compiled expressions
+     * to the [consumer] instead of building the whole program at once. The parse tree, tokens and
+     * expressions of top level code can be garbage collected as soon as the consumer is done with them,
+     * which keeps peak memory low for large sources.
+     *
+     * Source is parsed twice. The first pass collects package definition, imports, type definitions
+     * and function signatures, so declarations can refer to functions defined later in the source.
+     * Function declarations are typed, analyzed and passed to the consumer after all top level code,
+     * because they can refer to top level variables defined after them. Messages are the same
+     * as [compile] reports, unless top level code reads variables before they are defined.
+     *
+     * When there are syntax errors consumer doesn't receive anything. Other errors are reported
+     * for the expression before it's passed to the consumer, so consumer receives only expressions
+     * analyzed before the first error and never an erroneous one. Analysis continues after the error
+     * to report all the messages.
+     *
+     * @param source Chi source code.
+     * @param namespace Namespace to use for compilation
+     * @param consumer Receives compiled top level expressions
+     * @param metrics Metrics to record to or `null` to skip measurements
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun compileStreaming(
+        source: String,
+        namespace: GlobalCompilationNamespace,
+        consumer: TopLevelConsumer,
+        metrics: CompilationMetrics? = null,
+    ): StreamingCompilationResult {
+        val chiSource = ChiSource(source)
+        val errorListener = MessageCollectingErrorListener()
+        val visitor = ParserVisitor(chiSource)
+        val signatures = metrics.phase("symbol collection") {
+            collectPackageSignatures(chiSource, errorListener, visitor)
+        }
+        if (errorListener.getMessages().isNotEmpty()) {
+            return StreamingCompilationResult(errorListener.getMessages(), chiSource)
+        }
+
+        val messages = metrics.phase("declarations") {
+            compileDeclarations(chiSource, errorListener, visitor, signatures, namespace, consumer, metrics)
         }
+        return StreamingCompilationResult(messages, chiSource)
     }
 
+    private class PackageSignatures(
+        val packageDefinition: ParsePackageDefinition?,
+        val imports: List<ParseImportDefinition>,
+        val typeDefinitions: List<ParseVariantTypeDefinition>,
+        val functions: List<ParseAst>,
+    )
+
+    private fun collectPackageSignatures(
+        source: ChiSource,
+        errorListener: MessageCollectingErrorListener,
+        visitor: ParserVisitor
+    ): PackageSignatures {
+        val parser = TopLevelDeclarationParser(source, errorListener)
+        val packageDefinition = parser.readPackageDefinition()?.let { PackageReader.read(source, it) }
+        val imports = parser.readImportDefinitions().map { ImportReader.read(source, it) }
+        val typeDefinitions = mutableListOf<ParseVariantTypeDefinition>()
+        val functions = mutableListOf<ParseAst>()
+        while (errorListener.getMessages().isEmpty()) {
+            when (val declaration = parser.readDeclaration() ?: break) {
+                is ChiParser.VariantTypeDefinitionContext ->
+                    typeDefinitions.add(VariantTypeDefinitionReader.read(visitor, source, declaration))
+
+                is ChiParser.FuncWithNameContext ->
+                    functions.add(FuncReader.readFuncSignature(visitor, source, declaration.func_with_name()))
+
+                is ChiParser.EffectDefContext ->
+                    functions.add(declaration.accept(visitor))
+
+                else -> {} // top level code is read in the second pass
+            }
+        }
+        return PackageSignatures(packageDefinition, imports, typeDefinitions, functions)
+    }
+
+    private fun compileDeclarations(
+        source: ChiSource,
+        errorListener: MessageCollectingErrorListener,
+        visitor: ParserVisitor,
+        signatures: PackageSignatures,
+        namespace: GlobalCompilationNamespace,
+        consumer: TopLevelConsumer,
+        metrics: CompilationMetrics?,
+    ): List<Message> {
+        val parser = TopLevelDeclarationParser(source, errorListener)
+        parser.readPackageDefinition()
+        parser.readImportDefinitions()
+        val (context, declarations) = preparePackage(
+            signatures.packageDefinition,
+            signatures.imports,
+            signatures.typeDefinitions,
+            signatures.functions,
+            namespace
+        )
+
+        var expressionCount = 0L
+        var hasErrors = false
+        val messages = mutableListOf<Message>()
+        val functions = mutableListOf<Expression>()
+        val codeMessages = mutableListOf<Message>()
+        fun check(expression: Expression, target: MutableList<Message>) {
+            val reported = target.size
+            forEachAst(expression) { expr -> checkExpression(expr, target); expressionCount += 1 }
+            hasErrors = hasErrors || target.subList(reported, target.size).any { it.level == Level.ERROR }
+        }
+        declarations.forEach {
+            val expression = automaticallyCastCompatibleTypes(it)
+            check(expression, messages)
+            if (!hasErrors) consumer.definition(expression)
+        }
+        while (true) {
+            val declaration = parser.readDeclaration() ?: break
+            if (declaration !is ChiParser.ExpressionContext) {
+                continue // type definitions were already compiled
+            }
+            val expression = generateExpressionAst(context, declaration.accept(visitor))
+            if (ProgramReader.isFunctionDeclaration(declaration)) {
+                functions.add(expression)
+            } else {
+                val casted = automaticallyCastCompatibleTypes(expression)
+                check(casted, codeMessages)
+                if (!hasErrors) consumer.code(casted)
+            }
+        }
+        // types are memoized, so functions are typed only after all the variables they might read are defined
+        functions.forEach {
+            val casted = automaticallyCastCompatibleTypes(it)
+            check(casted, messages)
+            if (!hasErrors) consumer.definition(casted)
+        }
+        appendAnalyzedSeparately(messages, codeMessages)
+        metrics?.count("expressions", expressionCount)
+        return messages
+    }
+
+    @JvmStatic
+    fun formatCompilationMessage(source: String, message: Message): String =
+        formatCompilationMessage(ChiSource(source), message)
+
+    /**
+     * Formats compilation message with the offending source line. Prefer this
+     * variant when formatting multiple messages for the same source, as line
+     * lookup uses line index already computed by the [ChiSource].
+     *
+     * @param source Source that was compiled.
+     * @param message Message to format.
+     */
     @JvmStatic
-    fun formatCompilationMessage(source: String, message: Message): String {
+    fun formatCompilationMessage(source: ChiSource, message: Message): String {
         val sourceSection = message.codePoint
         val sb = StringBuilder()
         if (sourceSection != null) {
-            val sourceLine = source.lines()[sourceSection.line - 1]
+            val sourceLine = source.getLine(sourceSection.line)
             sb.appendLine(sourceLine)
             repeat(sourceSection.column) { sb.append(' ') }
             sb.append("^ ")
@@ -10,8 +10,7 @@ sealed interface Expression {
 
 data class Program(val expressions: List<Expression>, override val sourceSection: ChiSource.Section? = null) :
     Expression {
-    override val type: Type
-        get() = expressions.lastOrNull()?.type ?: Type.unit
+    override val type: Type by typeOf { expressions.lastOrNull()?.type ?: Type.unit }
 }
 
 data class Package(val moduleName: String, val packageName: String, override val sourceSection: ChiSource.Section?) :
@@ -93,8 +92,7 @@ data class VariableAccess(
     val isModuleLocal: Boolean,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() = definitionScope.getSymbolType(name) ?: Type.undefined
+    override val type: Type by typeOf { definitionScope.getSymbolType(name) ?: Type.undefined }
 }
 
 data class FieldAccess(
@@ -104,12 +102,11 @@ data class FieldAccess(
     override val sourceSection: ChiSource.Section?,
     val memberSection: ChiSource.Section?,
 ) : Expression {
-    override val type: Type
-        get() {
-            val recvType = receiver.type
-            return if (recvType is CompositeType) recvType.memberType(fieldName) ?: Type.undefined
-            else TODO("Can't find '$fieldName' field type. Expected composite type but was $recvType in ${sourceSection?.getCode()}")
-        }
+    override val type: Type by typeOf {
+        val recvType = receiver.type
+        if (recvType is CompositeType) recvType.memberType(fieldName) ?: Type.undefined
+        else TODO("Can't find '$fieldName' field type. Expected composite type but was $recvType in ${sourceSection?.getCode()}")
+    }
 }
 
 data class FieldAssignment(
@@ -118,15 +115,14 @@ data class FieldAssignment(
     val value: Expression,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() = (receiver.type as CompositeType).memberType(fieldName) ?: Type.undefined
+    override val type: Type by typeOf { (receiver.type as CompositeType).memberType(fieldName) ?: Type.undefined }
 }
 
 data class Assignment(
     val definitionScope: CompilationScope, val name: String, val value: Expression,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type get() = value.type
+    override val type: Type by typeOf { value.type }
 }
 
 data class NameDeclaration(
@@ -138,12 +134,11 @@ data class NameDeclaration(
     val expectedType: Type?,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type get() = expectedType ?: value.type
+    override val type: Type by typeOf { expectedType ?: value.type }
 }
 
 data class Group(val value: Expression, override val sourceSection: ChiSource.Section?) : Expression {
-    override val type: Type
-        get() = value.type
+    override val type: Type by typeOf { value.type }
 }
 
 data class FnParam(val name: String, val type: Type, val sourceSection: ChiSource.Section?)
@@ -155,11 +150,13 @@ data class Fn(
     val body: Block,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type get() = FnType(genericTypeParameters, parameters.map { it.type }, returnType)
+    override val type: Type by typeOf {
+        TypeInterner.intern(FnType(genericTypeParameters, parameters.map { it.type }, returnType))
+    }
 }
 
 data class Block(val body: List<Expression>, override val sourceSection: ChiSource.Section?) : Expression {
-    override val type: Type get() = body.lastOrNull()?.type ?: Type.unit
+    override val type: Type by typeOf { body.lastOrNull()?.type ?: Type.unit }
 }
 
 data class FnCall(
@@ -168,19 +165,28 @@ data class FnCall(
     val parameters: List<Expression>,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() {
-            val functionType: FnType = when (val fnType = function.type) {
-                is FnType -> fnType
-                is OverloadedFnType -> fnType.getType(parameters.map { it.type }) ?: return Type.undefined
-                else -> return Type.undefined
-            }
-            return resolveGenericType(
+    override val type: Type by typeOf {
+        when (val functionType = resolvedFunctionType) {
+            null -> Type.undefined
+            else -> resolveGenericType(
                 functionType,
                 callTypeParameters,
                 parameters,
             )
         }
+    }
+
+    /**
+     * Function type chosen for this call - for overloaded functions this is the selected overload.
+     * `null` if called expression is not a function or no overload matches.
+     */
+    val resolvedFunctionType: FnType? by typeOf {
+        when (val fnType = function.type) {
+            is FnType -> fnType
+            is OverloadedFnType -> fnType.getType(parameters.map { it.type })
+            else -> null
+        }
+    }
 }
 
 data class IfElse(
@@ -189,8 +195,7 @@ data class IfElse(
     val elseBranch: Expression?,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() = if (thenBranch.type == elseBranch?.type) thenBranch.type else Type.unit
+    override val type: Type by typeOf { if (thenBranch.type == elseBranch?.type) thenBranch.type else Type.unit }
 }
 
 data class InfixOp(
@@ -201,15 +206,16 @@ data class InfixOp(
 ) :
     Expression {
     // FIXME: this should probably choose broader type
-    override val type: Type
-        get() = when (op) {
+    override val type: Type by typeOf {
+        when (op) {
             in listOf("==", "!=", "<", ">", "<=", ">=", "&&", "||") -> Type.bool
             else -> left.type
         }
+    }
 }
 
 data class PrefixOp(val op: String, val expr: Expression, override val sourceSection: ChiSource.Section?) : Expression {
-    override val type: Type get() = expr.type
+    override val type: Type by typeOf { expr.type }
 }
 
 data class Cast(val expression: Expression, val targetType: Type, override val sourceSection: ChiSource.Section?) :
@@ -237,11 +243,10 @@ data class IndexOperator(
     val index: Expression,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() {
-//            assert(variable.type.isIndexable()) { "Cannot index types other than array!" }
-            return variable.type.indexedElementType()
-        }
+    override val type: Type by typeOf {
+//        assert(variable.type.isIndexable()) { "Cannot index types other than array!" }
+        variable.type.indexedElementType()
+    }
 }
 
 data class IndexedAssignment(
@@ -250,11 +255,10 @@ data class IndexedAssignment(
     val value: Expression,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type
-        get() {
-//            assert(variable.type.isIndexable()) { "Cannot index types other than array!" }
-            return variable.type.indexedElementType()
-        }
+    override val type: Type by typeOf {
+//        assert(variable.type.isIndexable()) { "Cannot index types other than array!" }
+        variable.type.indexedElementType()
+    }
 }
 
 data class Is(val value: Expression, val typeOrVariant: String, override val sourceSection: ChiSource.Section?) :
@@ -271,7 +275,9 @@ data class EffectDefinition(
     val returnType: Type,
     override val sourceSection: ChiSource.Section?
 ) : Expression {
-    override val type: Type get() = FnType(genericTypeParameters, parameters.map { it.type }, returnType)
+    override val type: Type by typeOf {
+        TypeInterner.intern(FnType(genericTypeParameters, parameters.map { it.type }, returnType))
+    }
 }
 
 data class Handle(
@@ -279,8 +285,7 @@ data class Handle(
     val cases: List<HandleCase>,
     override val sourceSection: ChiSource.Section?,
 ) : Expression {
-    override val type: Type get() = body.type
-
+    override val type: Type by typeOf { body.type }
 }
 
 data class HandleCase(
@@ -291,4 +296,9 @@ data class HandleCase(
     val body: Expression,
     val scope: CompilationScope,
     val sourceSection: ChiSource.Section?
-)
\ No newline at end of file
+)
+/**
+ * Expression types depend only on the types of subexpressions, so they are computed on first use
+ * and stored. Reading a type is then constant time instead of re-walking the whole subtree.
+ */
+internal fun <T> typeOf(compute: () -> T): Lazy<T> = lazy(LazyThreadSafetyMode.PUBLICATION, compute)
@@ -8,32 +8,152 @@ import gh.marad.chi.core.namespace.GlobalCompilationNamespace
 import gh.marad.chi.core.parser.ChiSource
 import gh.marad.chi.core.parser.ParserVisitor
 import gh.marad.chi.core.parser.readers.ProgramReader
+import org.antlr.v4.runtime.ANTLRErrorListener
+import org.antlr.v4.runtime.BailErrorStrategy
 import org.antlr.v4.runtime.CharStreams
 import org.antlr.v4.runtime.CommonTokenStream
 import org.antlr.v4.runtime.DefaultErrorStrategy
+import org.antlr.v4.runtime.ParserRuleContext
+import org.antlr.v4.runtime.Token
+import org.antlr.v4.runtime.UnbufferedTokenStream
+import org.antlr.v4.runtime.atn.PredictionMode
+import org.antlr.v4.runtime.misc.ParseCancellationException
 
-internal fun parseProgram(source: String, namespace: GlobalCompilationNamespace): Pair<Program, List<Message>> {
+internal fun parseProgram(
+    source: ChiSource,
+    namespace: GlobalCompilationNamespace,
+    metrics: CompilationMetrics? = null
+): Pair<Program, List<Message>> {
     val errorListener = MessageCollectingErrorListener()
-    val charStream = CharStreams.fromString(source)
-    val lexer = ChiLexer(charStream)
-    lexer.removeErrorListeners()
-    lexer.addErrorListener(errorListener)
-    val tokenStream = CommonTokenStream(lexer)
-    val parser = ChiParser(tokenStream)
-    parser.errorHandler = DefaultErrorStrategy()
-    parser.removeErrorListeners()
-    parser.addErrorListener(errorListener)
-    val chiSource = ChiSource(source)
-    val visitor = ParserVisitor(chiSource)
-    val parsedProgram = ProgramReader.read(visitor, chiSource, parser.program())
+    val visitor = ParserVisitor(source)
+    val programTree = parseProgramTree(source, errorListener, metrics)
+    val parsedProgram = metrics.phase("reading") { ProgramReader.read(visitor, source, programTree) }
     val program = if (errorListener.getMessages().isNotEmpty()) {
         Program(emptyList())
     } else {
-        val block = generateExpressionsFromParsedProgram(parsedProgram, namespace)
+        val block = metrics.phase("expression generation") {
+            generateExpressionsFromParsedProgram(parsedProgram, namespace)
+        }
         Program(block.body)
     }
     return Pair(
-        automaticallyCastCompatibleTypes(program) as Program,
+        metrics.phase("autocasting") { automaticallyCastCompatibleTypes(program) as Program },
         errorListener.getMessages()
     )
 }
+
+/**
+ * Parses the source in two stages. First the faster SLL prediction is used and parsing
+ * stops at the first error. This is enough for virtually all correct programs. Only when it fails,
+ * the tokens are parsed again with full LL prediction, which also reports syntax errors.
+ *
+ * Parsers share the ATN and DFA cache through static fields of generated [ChiParser], so
+ * predictions computed for one compilation are reused by the next ones. ANTLR synchronizes
+ * updates to the DFA, so this is safe when compiling on many threads.
+ */
+internal fun parseProgramTree(
+    source: ChiSource,
+    errorListener: ANTLRErrorListener,
+    metrics: CompilationMetrics? = null
+): ChiParser.ProgramContext {
+    val lexer = ChiLexer(CharStreams.fromString(source.code))
+    lexer.removeErrorListeners()
+    lexer.addErrorListener(errorListener)
+    val tokens = CommonTokenStream(lexer)
+    if (metrics != null) {
+        // tokens are otherwise read lazily by the parser, so lexing would be measured as parsing
+        metrics.measure("lexing") { tokens.fill() }
+        metrics.count("tokens", tokens.size().toLong())
+    }
+    val parser = ChiParser(tokens)
+    parser.removeErrorListeners()
+    parser.interpreter.predictionMode = PredictionMode.SLL
+    parser.errorHandler = BailErrorStrategy()
+    return metrics.phase("parsing") {
+        try {
+            parser.program()
+        } catch (ex: ParseCancellationException) {
+            parser.reset()
+            parser.interpreter.predictionMode = PredictionMode.LL
+            parser.errorHandler = DefaultErrorStrategy()
+            parser.addErrorListener(errorListener)
+            parser.program()
+        }
+    }
+}
+
+/**
+ * Parses top level declarations of the source one at a time. Parse trees of declarations are
+ * not attached to a common program tree, and tokens are buffered only while a declaration
+ * is being parsed, so both can be garbage collected as soon as the caller is done with the declaration.
+ *
+ * Like [parseProgramTree], each declaration is parsed with SLL prediction first and parsed
+ * again with full LL prediction only when that fails.
+ */
+internal class TopLevelDeclarationParser(source: ChiSource, private val errorListener: ANTLRErrorListener) {
+    private val tokens: UnbufferedTokenStream<Token>
+    private val parser: ChiParser
+
+    init {
+        val lexer = ChiLexer(CharStreams.fromString(source.code))
+        lexer.removeErrorListeners()
+        lexer.addErrorListener(errorListener)
+        tokens = UnbufferedTokenStream(lexer)
+        parser = ChiParser(tokens)
+    }
+
+    fun readPackageDefinition(): ChiParser.Package_definitionContext? {
+        skipNewlines()
+        return if (tokens.LA(1) == ChiParser.PACKAGE) parse { it.package_definition() } else null
+    }
+
+    fun readImportDefinitions(): List<ChiParser.Import_definitionContext> {
+        val imports = mutableListOf<ChiParser.Import_definitionContext>()
+        skipNewlines()
+        while (tokens.LA(1) == ChiParser.IMPORT) {
+            imports.add(parse { it.import_definition() })
+            skipNewlines()
+        }
+        return imports
+    }
+
+    /**
+     * Returns next expression or variant type definition, or `null` when there are no more declarations.
+     * Package definition and imports have to be read before.
+     */
+    fun readDeclaration(): ParserRuleContext? {
+        skipNewlines()
+        return when (tokens.LA(1)) {
+            Token.EOF -> null
+            ChiParser.DATA -> parse { it.variantTypeDefinition() }
+            else -> parse { it.expression() }
+        }
+    }
+
+    private fun skipNewlines() {
+        while (tokens.LA(1) == ChiParser.NEWLINE) {
+            tokens.consume()
+        }
+    }
+
+    private fun <T : ParserRuleContext> parse(rule: (ChiParser) -> T): T {
+        val marker = tokens.mark()
+        val start = tokens.index()
+        try {
+            parser.removeErrorListeners()
+            parser.interpreter.predictionMode = PredictionMode.SLL
+            parser.errorHandler = BailErrorStrategy()
+            return try {
+                rule(parser)
+            } catch (ex: ParseCancellationException) {
+                tokens.seek(start)
+                parser.interpreter.predictionMode = PredictionMode.LL
+                parser.errorHandler = DefaultErrorStrategy()
+                parser.addErrorListener(errorListener)
+                rule(parser)
+            }
+        } finally {
+            tokens.release(marker)
+        }
+    }
+}
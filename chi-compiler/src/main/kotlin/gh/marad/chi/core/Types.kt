@@ -1,7 +1,10 @@
 package gh.marad.chi.core
 
+import gh.marad.chi.core.analyzer.hasSubtypeRelations
 import gh.marad.chi.core.analyzer.typesMatch
+import java.lang.ref.WeakReference
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 
 sealed interface Type {
     val name: String
@@ -54,20 +57,20 @@ sealed interface Type {
 
         @JvmStatic
         fun fn(returnType: Type, vararg argTypes: Type) =
-            FnType(genericTypeParameters = emptyList(), paramTypes = argTypes.toList(), returnType)
+            TypeInterner.intern(FnType(genericTypeParameters = emptyList(), paramTypes = argTypes.toList(), returnType))
 
         @JvmStatic
         fun genericFn(
             genericTypeParameters: List<GenericTypeParameter>,
             returnType: Type,
             vararg argTypes: Type
-        ) = FnType(genericTypeParameters, argTypes.toList(), returnType)
+        ) = TypeInterner.intern(FnType(genericTypeParameters, argTypes.toList(), returnType))
 
         @JvmStatic
-        fun array(elementType: Type) = ArrayType(elementType)
+        fun array(elementType: Type) = TypeInterner.intern(ArrayType(elementType))
 
         @JvmStatic
-        fun typeParameter(name: String) = GenericTypeParameter(name)
+        fun typeParameter(name: String) = TypeInterner.intern(GenericTypeParameter(name))
     }
 }
 
@@ -134,18 +137,28 @@ data class FnType(
 ) : Type {
     override val moduleName: String = "std"
     override val packageName: String = "lang"
-    override val name = "(${paramTypes.joinToString(", ") { it.toDisplayString() }}) -> ${returnType.toDisplayString()}"
+    override val name by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        "(${paramTypes.joinToString(", ") { it.toDisplayString() }}) -> ${returnType.toDisplayString()}"
+    }
+    private val cachedHashCode = Objects.hash(genericTypeParameters, paramTypes, returnType)
+    private val typeConstructor = paramTypes.any { it.isTypeConstructor() } || returnType.isTypeConstructor()
+
     override fun isPrimitive(): Boolean = false
     override fun isNumber(): Boolean = false
     override fun isCompositeType(): Boolean = false
-    override fun isTypeConstructor(): Boolean =
-        paramTypes.any { it.isTypeConstructor() } || returnType.isTypeConstructor()
+    override fun isTypeConstructor(): Boolean = typeConstructor
 
     override fun construct(concreteTypes: Map<GenericTypeParameter, Type>): Type =
-        copy(
-            paramTypes = paramTypes.map { it.construct(concreteTypes) },
-            returnType = returnType.construct(concreteTypes)
-        )
+        if (!typeConstructor && TypeInterner.isInternable(this)) {
+            this
+        } else {
+            TypeInterner.intern(
+                copy(
+                    paramTypes = paramTypes.map { it.construct(concreteTypes) },
+                    returnType = returnType.construct(concreteTypes)
+                )
+            )
+        }
 
     override fun applyTypeParameters(typeParameters: List<Type>): Type =
         construct(
@@ -154,6 +167,14 @@ data class FnType(
 
     override fun getAllSubtypes(): List<Type> = paramTypes + returnType
     override fun toString(): String = name
+
+    override fun hashCode(): Int = cachedHashCode
+    override fun equals(other: Any?): Boolean =
+        this === other || other is FnType
+                && cachedHashCode == other.cachedHashCode
+                && genericTypeParameters == other.genericTypeParameters
+                && paramTypes == other.paramTypes
+                && returnType == other.returnType
 }
 
 data class OverloadedFnType(val typeSet: Set<FnType>) : Type {
@@ -171,15 +192,33 @@ data class OverloadedFnType(val typeSet: Set<FnType>) : Type {
     fun getType(paramTypes: List<Type>): FnType? =
         findCandidates(paramTypes).singleOrNull()
 
-    private fun findCandidates(actualTypes: List<Type>): List<FnType> {
-        val candidates = types.filter {
+    // overloads are grouped by arity and then by the first parameter type, so only overloads
+    // that can possibly accept given arguments are checked
+    private val index: Map<Int, ArityIndex> by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        types.withIndex()
+            .groupBy { it.value.fnType.paramTypes.size }
+            .mapValues { (_, overloads) -> ArityIndex(overloads) }
+    }
+
+    // resolution depends only on the argument types, so it is done once per distinct argument list
+    private val resolved = ConcurrentHashMap<List<Type>, List<FnType>>()
+
+    private fun findCandidates(actualTypes: List<Type>): List<FnType> =
+        if (actualTypes.all { isCacheableArgumentType(it) }) {
+            resolved.computeIfAbsent(actualTypes) { resolveCandidates(it) }
+        } else {
+            resolveCandidates(actualTypes)
+        }
+
+    private fun resolveCandidates(actualTypes: List<Type>): List<FnType> {
+        val possibleCandidates = index[actualTypes.size]?.possibleCandidates(actualTypes) ?: return emptyList()
+        val candidates = possibleCandidates.filter {
             val genericParamToTypeFromPassedParameters =
                 matchCallTypes(
                     it.fnType.paramTypes,
                     actualTypes
                 )
-            actualTypes.size == it.fnType.paramTypes.size
-                    && it.fnType.paramTypes.zip(actualTypes).all { (expected, actual) ->
+            it.fnType.paramTypes.zip(actualTypes).all { (expected, actual) ->
                 typesMatch(
                     expected.construct(genericParamToTypeFromPassedParameters),
                     actual,
@@ -197,6 +236,10 @@ data class OverloadedFnType(val typeSet: Set<FnType>) : Type {
         }
     }
 
+    // VariantType equality ignores the variant and unrelated type parameters, so two "equal" argument
+    // lists could still resolve differently - such calls are not cached
+    private fun isCacheableArgumentType(type: Type): Boolean = TypeInterner.isInternable(type)
+
     private fun scoreParamTypes(expectedTypes: List<Type>, actualTypes: List<Type>): Int {
         return expectedTypes.zip(actualTypes).fold(0) { acc, (expected, actual) ->
             when {
@@ -216,6 +259,41 @@ data class OverloadedFnType(val typeSet: Set<FnType>) : Type {
             other != null && other is FnTypeContainer
                     && fnType.paramTypes == other.fnType.paramTypes
     }
+
+    /**
+     * Overloads with the same arity grouped by erased type of the first parameter.
+     * Overloads taking `any` or a type parameter first can accept anything, and those with first parameter
+     * from subtype graph (like `float`) can also accept its subtypes, so these are always considered.
+     */
+    private class ArityIndex(overloads: List<IndexedValue<FnTypeContainer>>) {
+        private val acceptingAnything = mutableListOf<IndexedValue<FnTypeContainer>>()
+        private val acceptingSubtypes = mutableListOf<IndexedValue<FnTypeContainer>>()
+        private val byFirstParamClass = mutableMapOf<Class<*>, MutableList<IndexedValue<FnTypeContainer>>>()
+
+        init {
+            overloads.forEach {
+                val firstParam = it.value.fnType.paramTypes.firstOrNull()
+                when {
+                    firstParam == null || firstParam == Type.any || firstParam is GenericTypeParameter ->
+                        acceptingAnything.add(it)
+                    hasSubtypeRelations(firstParam) -> acceptingSubtypes.add(it)
+                    else -> byFirstParamClass.getOrPut(firstParam.javaClass) { mutableListOf() }.add(it)
+                }
+            }
+        }
+
+        fun possibleCandidates(actualTypes: List<Type>): List<FnTypeContainer> {
+            val firstActual = actualTypes.firstOrNull()
+            val result = mutableListOf<IndexedValue<FnTypeContainer>>()
+            result.addAll(acceptingAnything)
+            result.addAll(acceptingSubtypes)
+            if (firstActual != null) {
+                byFirstParamClass[firstActual.javaClass]?.let { result.addAll(it) }
+            }
+            // keep declaration order, so ranking ties are resolved the same way regardless of the index
+            return result.sortedBy { it.index }.map { it.value }
+        }
+    }
 }
 
 
@@ -238,7 +316,8 @@ data class GenericTypeParameter(val typeParameterName: String) : Type {
 data class ArrayType(val elementType: Type) : Type {
     override val moduleName: String = "std"
     override val packageName: String = "collections.array"
-    override val name: String = "array[${elementType.name}]"
+    override val name: String by lazy(LazyThreadSafetyMode.PUBLICATION) { "array[${elementType.name}]" }
+    private val cachedHashCode = elementType.hashCode()
 
     override fun isPrimitive(): Boolean = false
     override fun isNumber(): Boolean = false
@@ -249,11 +328,20 @@ data class ArrayType(val elementType: Type) : Type {
     override fun getAllSubtypes(): List<Type> = listOf(elementType)
     override fun isTypeConstructor(): Boolean = elementType.isTypeConstructor()
     override fun construct(concreteTypes: Map<GenericTypeParameter, Type>) =
-        copy(elementType = elementType.construct(concreteTypes))
+        if (!isTypeConstructor() && TypeInterner.isInternable(this)) {
+            this
+        } else {
+            TypeInterner.intern(copy(elementType = elementType.construct(concreteTypes)))
+        }
 
     override fun applyTypeParameters(typeParameters: List<Type>) =
-        copy(elementType = typeParameters[0])
+        TypeInterner.intern(copy(elementType = typeParameters[0]))
 
+    override fun hashCode(): Int = cachedHashCode
+    override fun equals(other: Any?): Boolean =
+        this === other || other is ArrayType
+                && cachedHashCode == other.cachedHashCode
+                && elementType == other.elementType
 }
 
 data class AnyType(override val name: String = "any") : Type {
@@ -360,4 +448,38 @@ data class VariantType(
             .all {
                 other.concreteTypeParameters[it] == concreteTypeParameters[it]
             }
-}
\ No newline at end of file
+}
+/**
+ * Keeps canonical instances of structural types. Equal types built from different places share
+ * a single instance, so comparing them is an identity check, their hash is computed once,
+ * and they can be used as stable map keys.
+ *
+ * Types containing [VariantType] are never interned - variant types carry mutable variant
+ * information that their equality ignores, so sharing them would mix up variants.
+ *
+ * Canonical instances are held weakly, so types no longer used by any compilation can be collected.
+ */
+object TypeInterner {
+    private val canonical = WeakHashMap<Type, WeakReference<Type>>()
+
+    @JvmStatic
+    fun <T : Type> intern(type: T): T =
+        if (isInternable(type)) {
+            synchronized(canonical) {
+                val existing = canonical[type]?.get()
+                if (existing != null) {
+                    @Suppress("UNCHECKED_CAST")
+                    existing as T
+                } else {
+                    canonical[type] = WeakReference(type)
+                    type
+                }
+            }
+        } else {
+            type
+        }
+
+    @JvmStatic
+    fun isInternable(type: Type): Boolean =
+        type !is VariantType && type.getAllSubtypes().all { isInternable(it) }
+}
@@ -2,6 +2,10 @@ package gh.marad.chi.core.analyzer
 
 import gh.marad.chi.core.*
 import gh.marad.chi.core.parser.ChiSource
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import kotlin.math.max
 
 enum class Level { ERROR }
 
@@ -159,22 +163,98 @@ fun analyze(expr: Expression): List<Message> {
     // TODO: pozostałe checki
     // Chyba poprawność wywołań i obecność zmiennych w odpowiednich miejscach powinna być przed sprawdzaniem typów.
     // W przeciwnym wypadku wyznaczanie typów wyrażeń może się nie udać
+    return if (expr is Program
+        && expr.expressions.size >= parallelAnalysisThreshold
+        && ForkJoinPool.getCommonPoolParallelism() > 1
+    ) {
+        analyzeInParallel(expr)
+    } else {
+        analyzeSequentially(expr)
+    }
+}
+
+internal fun analyzeSequentially(expr: Expression): List<Message> {
     val messages = mutableListOf<Message>()
+    forEachAst(expr) { checkExpression(it, messages) }
+    return messages
+}
+
+/**
+ * Runs all the checks that apply to given node. Facts shared between checks (like the type
+ * of called function) are computed once here and passed down.
+ */
+fun checkExpression(expr: Expression, messages: MutableList<Message>) {
+    when (expr) {
+        is Package -> checkModuleAndPackageNames(expr, messages)
+        is Import -> checkImports(expr, messages)
+        is FieldAccess -> checkThatTypesContainAccessedFieldsAndFieldIsAccessible(expr, messages)
+        is VariableAccess -> checkThatVariableIsDefinedAndAccessible(expr, messages)
+        is Fn -> {
+            checkThatFunctionHasAReturnValue(expr, messages)
+            checkTypes(expr, messages)
+        }
+        is FnCall -> {
+            val functionType = expr.function.type
+            checkThatFunctionCallsReceiveAppropriateCountOfArguments(expr, functionType, messages)
+            checkForOverloadedFunctionCallCandidate(expr, functionType, messages)
+            checkThatFunctionCallsActuallyCallFunctions(expr, functionType, messages)
+            if (functionType is FnType) {
+                checkGenericTypes(expr, functionType, messages)
+            }
+            checkTypes(expr, messages)
+        }
+        is Assignment -> {
+            checkTypes(expr, messages)
+            checkThatAssignmentDoesNotChangeImmutableValue(expr, messages)
+        }
+        else -> checkTypes(expr, messages)
+    }
+    checkThatExpressionTypeIsDefined(expr, messages)
+}
+
+// below this many top level expressions spreading work across threads costs more than it saves
+private const val parallelAnalysisThreshold = 64
 
-    forEachAst(expr) {
-        checkModuleAndPackageNames(it, messages)
-        checkImports(it, messages)
-        checkThatTypesContainAccessedFieldsAndFieldIsAccessible(it, messages)
-        checkThatVariableIsDefinedAndAccessible(it, messages)
-        checkThatFunctionHasAReturnValue(it, messages)
-        checkThatFunctionCallsReceiveAppropriateCountOfArguments(it, messages)
-        checkForOverloadedFunctionCallCandidate(it, messages)
-        checkThatFunctionCallsActuallyCallFunctions(it, messages)
-        checkGenericTypes(it, messages)
-        checkTypes(it, messages)
-        checkThatAssignmentDoesNotChangeImmutableValue(it, messages)
-        checkThatExpressionTypeIsDefined(it, messages)
+/**
+ * Analyzes top level expressions of the program in parallel. Checks only read the AST and
+ * compilation scopes, so subtrees are independent. Results are concatenated in source order
+ * so the message list is exactly the same as [analyzeSequentially] would produce.
+ */
+internal fun analyzeInParallel(program: Program): List<Message> {
+    val pool = ForkJoinPool.commonPool()
+    val chunkSize = max(1, program.expressions.size / (pool.parallelism * 4))
+    val tasks = program.expressions.chunked(chunkSize).map { chunk ->
+        Callable {
+            val messages = mutableListOf<Message>()
+            chunk.forEach { expr -> forEachAst(expr) { checkExpression(it, messages) } }
+            messages
+        }
     }
 
+    val messages = mutableListOf<Message>()
+    pool.invokeAll(tasks).forEach { result ->
+        val chunkMessages = try {
+            result.get()
+        } catch (ex: ExecutionException) {
+            throw ex.cause ?: ex
+        }
+        appendAnalyzedSeparately(messages, chunkMessages)
+    }
+    checkExpression(program, messages)
     return messages
 }
+
+/**
+ * Appends messages from analysis of later expressions that was done with its own message list.
+ *
+ * TypeInferenceFailed is reported only when there are no other messages so far. Separately analyzed
+ * expressions can report it only as their first message, so it is dropped when earlier expressions
+ * already reported something.
+ */
+internal fun appendAnalyzedSeparately(messages: MutableList<Message>, laterMessages: List<Message>) {
+    if (messages.isNotEmpty() && laterMessages.firstOrNull() is TypeInferenceFailed) {
+        messages.addAll(laterMessages.subList(1, laterMessages.size))
+    } else {
+        messages.addAll(laterMessages)
+    }
+}
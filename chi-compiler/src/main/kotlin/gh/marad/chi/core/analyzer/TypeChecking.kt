@@ -82,50 +82,40 @@ fun checkThatFunctionHasAReturnValue(expr: Expression, messages: MutableList<Mes
     }
 }
 
-fun checkThatFunctionCallsReceiveAppropriateCountOfArguments(expr: Expression, messages: MutableList<Message>) {
-    if (expr is FnCall) {
-        val valueType = expr.function.type
-
-        if (valueType is FnType &&
-            valueType.paramTypes.count() != expr.parameters.count()
-        ) {
-            messages.add(
-                FunctionArityError(
-                    valueType.paramTypes.count(),
-                    expr.parameters.count(),
-                    expr.sourceSection.toCodePoint()
-                )
+fun checkThatFunctionCallsReceiveAppropriateCountOfArguments(
+    expr: FnCall,
+    valueType: Type,
+    messages: MutableList<Message>
+) {
+    if (valueType is FnType &&
+        valueType.paramTypes.count() != expr.parameters.count()
+    ) {
+        messages.add(
+            FunctionArityError(
+                valueType.paramTypes.count(),
+                expr.parameters.count(),
+                expr.sourceSection.toCodePoint()
             )
-        }
+        )
     }
 }
 
-fun checkForOverloadedFunctionCallCandidate(expr: Expression, messages: MutableList<Message>) {
-    if (expr is FnCall) {
-        val valueType = expr.function.type
-
-        if (valueType is OverloadedFnType) {
-            val argumentTypes = expr.parameters.map { it.type }
-            if (valueType.getType(argumentTypes) == null) {
-                messages.add(
-                    NoCandidatesForFunction(
-                        argumentTypes,
-                        valueType.types.map { it.fnType }.toSet(),
-                        expr.sourceSection.toCodePoint()
-                    )
-                )
-            }
-        }
+fun checkForOverloadedFunctionCallCandidate(expr: FnCall, valueType: Type, messages: MutableList<Message>) {
+    if (valueType is OverloadedFnType && expr.resolvedFunctionType == null) {
+        val argumentTypes = expr.parameters.map { it.type }
+        messages.add(
+            NoCandidatesForFunction(
+                argumentTypes,
+                valueType.types.map { it.fnType }.toSet(),
+                expr.sourceSection.toCodePoint()
+            )
+        )
     }
 }
 
-fun checkThatFunctionCallsActuallyCallFunctions(expr: Expression, messages: MutableList<Message>) {
-    if (expr is FnCall) {
-        val valueType = expr.function.type
-
-        if (valueType !is FnType && valueType !is OverloadedFnType) {
-            messages.add(NotAFunction(expr.sourceSection.toCodePoint()))
-        }
+fun checkThatFunctionCallsActuallyCallFunctions(expr: FnCall, valueType: Type, messages: MutableList<Message>) {
+    if (valueType !is FnType && valueType !is OverloadedFnType) {
+        messages.add(NotAFunction(expr.sourceSection.toCodePoint()))
     }
 }
 
@@ -135,9 +125,8 @@ fun checkThatExpressionTypeIsDefined(expr: Expression, messages: MutableList<Mes
     }
 }
 
-fun checkGenericTypes(expr: Expression, messages: MutableList<Message>) {
-    if (expr is FnCall && expr.function.type is FnType && expr.callTypeParameters.isNotEmpty()) {
-        val fnType = expr.function.type as FnType
+fun checkGenericTypes(expr: FnCall, fnType: FnType, messages: MutableList<Message>) {
+    if (expr.callTypeParameters.isNotEmpty()) {
         // check that all generic type parameters were passed
         if (fnType.genericTypeParameters.size != expr.callTypeParameters.size) {
             messages.add(
@@ -392,6 +381,8 @@ private var typeGraph: Graph<String, DefaultEdge> =
         it.addEdge("int", "float")
     }
 
+fun hasSubtypeRelations(type: Type): Boolean = typeGraph.containsVertex(type.name)
+
 fun isSubType(subtype: Type, supertype: Type): Boolean {
     return if (subtype != supertype && typeGraph.containsVertex(subtype.name) && typeGraph.containsVertex(supertype.name)) {
         val dijkstraAlgo = DijkstraShortestPath(typeGraph)
@@ -9,35 +9,64 @@ import gh.marad.chi.core.namespace.SymbolType
 import gh.marad.chi.core.parser.readers.*
 
 fun generateExpressionsFromParsedProgram(program: Program, namespace: GlobalCompilationNamespace): Block {
-    val packageDefinition = convertPackageDefinition(program.packageDefinition)
-    val moduleName = packageDefinition?.moduleName ?: CompilationDefaults.defaultModule
-    val packageName = packageDefinition?.packageName ?: CompilationDefaults.defaultPacakge
+    val (context, declarations) = preparePackage(
+        program.packageDefinition,
+        program.imports,
+        program.typeDefinitions,
+        program.functions,
+        namespace
+    )
+
+    val blockBody = declarations.toMutableList()
+    blockBody.addAll(program.functions.map { generateExpressionAst(context, it) })
+    blockBody.addAll(program.topLevelCode.map { generateExpressionAst(context, it) })
+    return Block(blockBody, null)
+}
+
+/**
+ * Defines imports, types and symbols of all package functions, so that function bodies and top level code
+ * can be converted afterwards in any order. Only signatures of the [functions] are used.
+ *
+ * Returns conversion context for the package and expressions for package definition, imports and type definitions.
+ */
+internal fun preparePackage(
+    packageDefinition: ParsePackageDefinition?,
+    importDefinitions: List<ParseImportDefinition>,
+    typeDefinitions: List<ParseVariantTypeDefinition>,
+    functions: List<ParseAst>,
+    namespace: GlobalCompilationNamespace
+): Pair<ConversionContext, List<Expression>> {
+    val convertedPackageDefinition = convertPackageDefinition(packageDefinition)
+    val moduleName = convertedPackageDefinition?.moduleName ?: CompilationDefaults.defaultModule
+    val packageName = convertedPackageDefinition?.packageName ?: CompilationDefaults.defaultPacakge
 
     val context = ConversionContext(namespace)
     context.changeCurrentPackage(moduleName, packageName)
 
-    val imports = program.imports.map { convertImportDefinition(context, it) }
+    val imports = importDefinitions.map { convertImportDefinition(context, it) }
     val pkg = namespace.getOrCreatePackage(moduleName, packageName)
 
     // define imports and package functions/variant type constructors
     imports.forEach { context.imports.addImport(it) }
 
-    pkg.typeRegistry.defineTypes(moduleName, packageName, program.typeDefinitions, context::resolveType)
+    pkg.typeRegistry.defineTypes(moduleName, packageName, typeDefinitions, context::resolveType)
 
-    val typeDefinitions = program.typeDefinitions.map { convertTypeDefinition(context, it) }
-    registerPackageSymbols(context, program)
+    val convertedTypeDefinitions = typeDefinitions.map { convertTypeDefinition(context, it) }
+    registerPackageSymbols(context, typeDefinitions, functions)
 
-    val blockBody = mutableListOf<Expression>()
-    packageDefinition?.let { blockBody.add(it) }
-    blockBody.addAll(imports)
-    blockBody.addAll(typeDefinitions)
-    blockBody.addAll(program.functions.map { generateExpressionAst(context, it) })
-    blockBody.addAll(program.topLevelCode.map { generateExpressionAst(context, it) })
-    return Block(blockBody, null)
+    val declarations = mutableListOf<Expression>()
+    convertedPackageDefinition?.let { declarations.add(it) }
+    declarations.addAll(imports)
+    declarations.addAll(convertedTypeDefinitions)
+    return Pair(context, declarations)
 }
 
-private fun registerPackageSymbols(ctx: ConversionContext, program: Program) {
-    program.typeDefinitions.forEach { typeDef ->
+private fun registerPackageSymbols(
+    ctx: ConversionContext,
+    typeDefinitions: List<ParseVariantTypeDefinition>,
+    functions: List<ParseAst>
+) {
+    typeDefinitions.forEach { typeDef ->
         typeDef.variantConstructors.forEach { constructor ->
             val typeParameterNames = typeDef.typeParameters.map { it.name }.toSet()
             val constructorTypeRef = getVariantConstructorTypeRef(typeDef, constructor)
@@ -51,7 +80,7 @@ private fun registerPackageSymbols(ctx: ConversionContext, program: Program) {
         }
     }
 
-    program.functions.forEach {
+    functions.forEach {
         val funcDesc = getFunctionTypeRef(it)
         ctx.currentScope.addSymbol(
             funcDesc.name, ctx.resolveType(funcDesc.type), SymbolType.Local,
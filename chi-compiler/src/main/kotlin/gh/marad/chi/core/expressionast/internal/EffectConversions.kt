@@ -9,7 +9,7 @@ import gh.marad.chi.core.parser.readers.ParseHandle
 
 
 fun convertEffectDefinition(ctx: ConversionContext, ast: ParseEffectDefinition): Expression {
-    val typeParameters = ast.typeParameters.map { GenericTypeParameter(it.name) }
+    val typeParameters = ast.typeParameters.map { Type.typeParameter(it.name) }
     val typeParameterNames = typeParameters.map { it.name }.toSet()
     return EffectDefinition(
         moduleName = ctx.currentModule,
@@ -38,7 +38,7 @@ fun convertFuncWithName(ctx: ConversionContext, ast: ParseFuncWithName): NameDec
         value = ctx.withNewFunctionScope {
             Fn(
                 fnScope = ctx.currentScope,
-                genericTypeParameters = ast.typeParameters.map { GenericTypeParameter(it.name) },
+                genericTypeParameters = ast.typeParameters.map { Type.typeParameter(it.name) },
                 parameters = ast.formalArguments.map {
                     FnParam(
                         it.name,
@@ -61,6 +61,10 @@ data class CompilationScope(val type: ScopeType, private val parent: Compilation
     fun containsInNonVirtualScope(name: String): Boolean = symbols.contains(name)
             || (type == ScopeType.Virtual && parent?.containsInNonVirtualScope(name) == true)
 
+    /**
+     * Counts function scopes that have to be left to reach the scope where the name is defined.
+     * Virtual scopes share the frame with their parent, so leaving them doesn't count.
+     */
     fun countNonVirtualScopesToName(name: String): Int {
         var nonVirtualScopes = 0
         var currentScope = this
@@ -68,14 +72,24 @@ data class CompilationScope(val type: ScopeType, private val parent: Compilation
             if (currentScope.symbols[name] != null) {
                 return nonVirtualScopes
             } else {
-                currentScope = currentScope.parent ?: TODO("Symbol $name does not exist at all!")
                 if (currentScope.type != ScopeType.Virtual) {
                     nonVirtualScopes += 1
                 }
+                currentScope = currentScope.parent ?: TODO("Symbol $name does not exist at all!")
             }
         }
     }
 
+    fun getDefiningScope(name: String): CompilationScope? =
+        if (symbols[name]?.let { it.symbolType != SymbolType.Overwrite } == true) {
+            this
+        } else {
+            parent?.getDefiningScope(name)
+        }
+
+    fun isEnclosedBy(scope: CompilationScope): Boolean =
+        this === scope || parent?.isEnclosedBy(scope) == true
+
     fun updateSlot(name: String, slot: Int) {
         symbols.compute(name) { _, symbol ->
             symbol?.copy(slot = slot)
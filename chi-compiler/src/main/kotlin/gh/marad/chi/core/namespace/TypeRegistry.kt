@@ -26,6 +26,15 @@ class TypeRegistry {
         it.withVariant(variants[it.simpleName]?.find { variant -> variant.variantName == variantName })
     }
 
+    /**
+     * Defines a type implemented by the runtime. It has no variants, so its values are created
+     * and used only through functions the runtime provides.
+     */
+    fun defineNativeType(type: VariantType) {
+        types[type.simpleName] = type
+        variants[type.simpleName] = emptyList()
+    }
+
     fun defineTypes(
         moduleName: String,
         packageName: String,
@@ -1,6 +1,7 @@
 package gh.marad.chi.core.namespace
 
 import gh.marad.chi.core.FnType
+import gh.marad.chi.core.TypeInterner
 import gh.marad.chi.core.Type
 import gh.marad.chi.core.VariantType
 import gh.marad.chi.core.parser.readers.*
@@ -55,18 +56,20 @@ class TypeResolver {
         typeParameterNames: Set<String>,
         getTypeByName: (String) -> Type,
         getVariants: (VariantType) -> List<VariantType.Variant>
-    ): FnType = FnType(
-        genericTypeParameters = ref.typeParameters.filterIsInstance<TypeParameterRef>()
-            .map { Type.typeParameter(it.name) },
-        paramTypes = ref.argumentTypeRefs.map {
-            resolve(
-                it,
-                typeParameterNames,
-                getTypeByName,
-                getVariants
-            )
-        },
-        returnType = resolve(ref.returnType, typeParameterNames, getTypeByName, getVariants)
+    ): FnType = TypeInterner.intern(
+        FnType(
+            genericTypeParameters = ref.typeParameters.filterIsInstance<TypeParameterRef>()
+                .map { Type.typeParameter(it.name) },
+            paramTypes = ref.argumentTypeRefs.map {
+                resolve(
+                    it,
+                    typeParameterNames,
+                    getTypeByName,
+                    getVariants
+                )
+            },
+            returnType = resolve(ref.returnType, typeParameterNames, getTypeByName, getVariants)
+        )
     )
 
     private fun resolveTypeConstructorRef(
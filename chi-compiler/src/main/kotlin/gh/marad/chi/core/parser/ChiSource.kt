@@ -1,17 +1,71 @@
 package gh.marad.chi.core.parser
 
 class ChiSource(val code: String) {
+    // start offsets of every line - computed once, so line/column lookups are O(log n)
+    private val lineStarts: IntArray = computeLineStarts(code)
+
+    val lineCount: Int get() = lineStarts.size
+
     fun getSection(startIndex: Int, endIndex: Int): Section = Section(this, startIndex, endIndex)
 
+    /**
+     * Returns 1-based line number of the character at given index.
+     */
+    fun lineAt(index: Int): Int {
+        var low = 0
+        var high = lineStarts.size - 1
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (lineStarts[mid] <= index) {
+                low = mid
+            } else {
+                high = mid - 1
+            }
+        }
+        return low + 1
+    }
+
+    /**
+     * Returns 0-based column of the character at given index.
+     */
+    fun columnAt(index: Int): Int = index - lineStarts[lineAt(index) - 1]
+
+    /**
+     * Returns text of the given 1-based line without the line terminator.
+     */
+    fun getLine(line: Int): String {
+        val start = lineStarts[line - 1]
+        var end = if (line < lineStarts.size) lineStarts[line] - 1 else code.length
+        if (end > start && code[end - 1] == '\r') {
+            end -= 1
+        }
+        return code.substring(start, end)
+    }
+
     data class Section(val source: ChiSource, val start: Int, val end: Int) {
-        val startLine get() = lineAt(start)
-        val startColumn get() = columnAt(start)
-        val endLine get() = lineAt(end + 1)
-        val endColumn get() = columnAt(end + 1)
+        val startLine get() = source.lineAt(start)
+        val startColumn get() = source.columnAt(start)
+        val endLine get() = source.lineAt(end + 1)
+        val endColumn get() = source.columnAt(end + 1)
         fun getCode(): String = source.code.substring(start, end + 1)
 
-        private fun lineAt(index: Int) = source.code.substring(0, index).lines().count()
-        private fun columnAt(index: Int) = index - source.code.substring(0, index).lastIndexOf('\n') - 1
         override fun toString(): String = "[$startLine:$startColumn-$endLine:$endColumn]"
     }
-}
\ No newline at end of file
+
+    companion object {
+        private fun computeLineStarts(code: String): IntArray {
+            var count = 1
+            for (ch in code) {
+                if (ch == '\n') count += 1
+            }
+            val starts = IntArray(count)
+            var line = 1
+            code.forEachIndexed { index, ch ->
+                if (ch == '\n') {
+                    starts[line++] = index + 1
+                }
+            }
+            return starts
+        }
+    }
+}
@@ -30,6 +30,25 @@ internal object FuncReader {
             section = getSection(source, ctx)
         )
 
+    /**
+     * Reads function declaration without reading its body. It's enough to know the type of the function.
+     */
+    fun readFuncSignature(parser: ParserVisitor, source: ChiSource, ctx: ChiParser.Func_with_nameContext): ParseFuncWithName =
+        ParseFuncWithName(
+            public = ctx.PUB() != null,
+            name = ctx.funcName.text,
+            typeParameters = CommonReader.readTypeParameters(source, ctx.generic_type_definitions()),
+            formalArguments = CommonReader.readFuncArgumentDefinitions(
+                parser,
+                source,
+                ctx.arguments.argumentsWithTypes()
+            ),
+            returnTypeRef = ctx.func_return_type()?.type()
+                ?.let { TypeReader.readTypeRef(parser, source, it) },
+            body = ParseBlock(emptyList(), getSection(source, ctx.func_body())),
+            section = getSection(source, ctx)
+        )
+
     fun readFnCall(parser: ParserVisitor, source: ChiSource, ctx: ChiParser.FnCallExprContext): ParseAst =
         ParseFnCall(
             name = ctx.expression().text,
@@ -21,7 +21,7 @@ internal object ProgramReader {
         )
     }
 
-    private fun isFunctionDeclaration(ctx: ChiParser.ExpressionContext): Boolean =
+    fun isFunctionDeclaration(ctx: ChiParser.ExpressionContext): Boolean =
         ctx is ChiParser.FuncWithNameContext || ctx is ChiParser.EffectDefContext
 
 }
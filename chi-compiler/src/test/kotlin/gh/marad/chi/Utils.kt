@@ -19,7 +19,7 @@ fun compile(
 
     if (!ignoreCompilationErrors) {
         result.messages.forEach { msg ->
-            System.err.println(Compiler.formatCompilationMessage(code, msg))
+            System.err.println(Compiler.formatCompilationMessage(result.source, msg))
             System.err.flush()
         }
 
@@ -0,0 +1,34 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.analyzer.analyzeInParallel
+import gh.marad.chi.core.analyzer.analyzeSequentially
+import io.kotest.core.spec.style.FunSpec
+
+class AnalyzerBenchmark : FunSpec({
+
+    fun manyFunctions(count: Int): String =
+        (0 until count).joinToString("\n") {
+            """
+            fn f$it(a: int, b: int): int {
+                val c = if (a > b) { a * 2 + b } else { b * 2 + a }
+                var i = 0
+                while (i < c) { i = i + 1 }
+                i + c
+            }
+            """.trimIndent()
+        }
+
+    test("analysis of many top level functions sequentially and in parallel").config(enabled = benchmarksEnabled) {
+        listOf(500, 2_000, 8_000).forEach { count ->
+            val code = manyFunctions(count)
+            val sequential = parseForEachRun(code)
+            measure("sequential analysis ($count functions)", count) {
+                analyzeSequentially(sequential.removeFirst())
+            }
+            val parallel = parseForEachRun(code)
+            measure("parallel analysis ($count functions)", count) {
+                analyzeInParallel(parallel.removeFirst())
+            }
+        }
+    }
+})
@@ -0,0 +1,90 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.Program
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import gh.marad.chi.core.parseProgram
+import gh.marad.chi.core.parser.ChiSource
+import com.sun.management.GarbageCollectionNotificationInfo
+import io.kotest.matchers.collections.shouldBeEmpty
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+import java.util.concurrent.atomic.AtomicLong
+import javax.management.NotificationEmitter
+import javax.management.NotificationListener
+import javax.management.openmbean.CompositeData
+
+/**
+ * Benchmarks are slow, so they only run when `-Dchi.benchmarks=true` is passed to the test task.
+ */
+val benchmarksEnabled: Boolean = System.getProperty("chi.benchmarks") == "true"
+
+data class Measurement(val name: String, val size: Int, val nanos: Long) {
+    val nanosPerUnit: Double get() = nanos.toDouble() / size
+    override fun toString(): String =
+        "%-40s size=%-8d total=%8.2fms per unit=%10.1fns".format(name, size, nanos / 1e6, nanosPerUnit)
+}
+
+/**
+ * Runs [block] a few times to warm up and then returns the best time out of [iterations] runs.
+ */
+fun measure(name: String, size: Int, warmup: Int = 3, iterations: Int = 5, block: () -> Unit): Measurement {
+    repeat(warmup) { block() }
+    var best = Long.MAX_VALUE
+    repeat(iterations) {
+        val start = System.nanoTime()
+        block()
+        best = minOf(best, System.nanoTime() - start)
+    }
+    return Measurement(name, size, best).also { println(it) }
+}
+
+/**
+ * Parses [code] once for every run done by [measure]. Expression types are memoized
+ * on the AST, so each measured analysis needs a freshly parsed program.
+ */
+fun parseForEachRun(code: String, runs: Int = 8): ArrayDeque<Program> {
+    val programs = ArrayDeque<Program>()
+    repeat(runs) {
+        val (program, messages) = parseProgram(ChiSource(code), GlobalCompilationNamespace())
+        messages.shouldBeEmpty()
+        programs.add(program)
+    }
+    return programs
+}
+
+/**
+ * Runs [block] and returns the highest heap usage observed right after garbage collections
+ * that happened meanwhile, minus heap usage before it started. Unlike plain heap usage it doesn't count
+ * garbage that was not collected yet, so it approximates the peak amount of live data.
+ *
+ * [block] receives a function that forces garbage collection, to make sure there is a measurement at
+ * the point when it holds the most data.
+ */
+fun peakHeapAfterGc(block: (collect: () -> Unit) -> Unit): Long {
+    val heapPools = ManagementFactory.getMemoryPoolMXBeans()
+        .filter { it.type == MemoryType.HEAP }
+        .map { it.name }
+        .toSet()
+    System.gc()
+    val baseline = ManagementFactory.getMemoryMXBean().heapMemoryUsage.used
+    val peak = AtomicLong(baseline)
+    val listener = NotificationListener { notification, _ ->
+        if (notification.type == GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION) {
+            val info = GarbageCollectionNotificationInfo.from(notification.userData as CompositeData)
+            val used = info.gcInfo.memoryUsageAfterGc
+                .filterKeys { it in heapPools }
+                .values.sumOf { it.used }
+            peak.accumulateAndGet(used, ::maxOf)
+        }
+    }
+    val emitters = ManagementFactory.getGarbageCollectorMXBeans().filterIsInstance<NotificationEmitter>()
+    emitters.forEach { it.addNotificationListener(listener, null, null) }
+    try {
+        block { System.gc() }
+        // notifications are delivered asynchronously
+        Thread.sleep(200)
+    } finally {
+        emitters.forEach { it.removeNotificationListener(listener) }
+    }
+    return peak.get() - baseline
+}
@@ -0,0 +1,43 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.Compiler
+import gh.marad.chi.core.analyzer.Message
+import gh.marad.chi.core.analyzer.toCodePoint
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import gh.marad.chi.core.parser.ChiSource
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.doubles.shouldBeLessThan
+
+class ChiSourceBenchmark : FunSpec({
+
+    fun generateSource(lines: Int): String =
+        (0 until lines).joinToString("\n") { "val x$it = $it" }
+
+    test("cost of mapping sections to code points stays flat as files grow").config(enabled = benchmarksEnabled) {
+        val errorsPerFile = 1000
+        val results = listOf(1_000, 10_000, 100_000).map { lines ->
+            val source = ChiSource(generateSource(lines))
+            val step = source.code.length / errorsPerFile
+            val sections = (0 until errorsPerFile).map { source.getSection(it * step, it * step) }
+            measure("toCodePoint ($lines lines)", errorsPerFile) {
+                sections.forEach { it.toCodePoint() }
+            }
+        }
+
+        results.last().nanosPerUnit shouldBeLessThan results.first().nanosPerUnit * 10
+    }
+
+    test("cost of formatting compilation messages stays flat as files grow").config(enabled = benchmarksEnabled) {
+        val errorsPerFile = 100
+        val results = listOf(1_000, 10_000, 100_000).map { lines ->
+            val code = generateSource(lines) + "\n" + (0 until errorsPerFile).joinToString("\n") { "val e$it: int = \"error\"" }
+            val result = Compiler.compile(code, GlobalCompilationNamespace())
+            val messages: List<Message> = result.messages
+            measure("formatCompilationMessage ($lines lines)", messages.size) {
+                messages.forEach { Compiler.formatCompilationMessage(result.source, it) }
+            }
+        }
+
+        results.last().nanosPerUnit shouldBeLessThan results.first().nanosPerUnit * 10
+    }
+})
@@ -0,0 +1,37 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.analyzer.analyze
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.doubles.shouldBeLessThan
+
+class ExpressionTypingBenchmark : FunSpec({
+
+    fun nestedCalls(depth: Int): String =
+        "fn id(a: int): int { a }\n" + "id(".repeat(depth) + "1" + ")".repeat(depth)
+
+    fun ifElseChain(length: Int): String =
+        "val x = 5\n" + (0 until length).joinToString(" else ") { "if (x == $it) { $it }" } + " else { -1 }"
+
+    fun measureTyping(name: String, size: Int, code: String): Measurement {
+        val programs = parseForEachRun(code)
+        return measure("$name ($size)", size) {
+            analyze(programs.removeFirst())
+        }
+    }
+
+    test("typing nested function calls scales linearly with depth").config(enabled = benchmarksEnabled) {
+        val results = listOf(25, 50, 100, 200).map { depth ->
+            measureTyping("typing nested calls", depth, nestedCalls(depth))
+        }
+
+        results.last().nanosPerUnit shouldBeLessThan results.first().nanosPerUnit * 10
+    }
+
+    test("typing if-else chains scales linearly with length").config(enabled = benchmarksEnabled) {
+        val results = listOf(10, 20, 40, 80).map { length ->
+            measureTyping("typing if-else chain", length, ifElseChain(length))
+        }
+
+        results.last().nanosPerUnit shouldBeLessThan results.first().nanosPerUnit * 10
+    }
+})
@@ -0,0 +1,36 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.FnType
+import gh.marad.chi.core.OverloadedFnType
+import gh.marad.chi.core.Type
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.doubles.shouldBeLessThan
+
+class OverloadResolutionBenchmark : FunSpec({
+
+    val firstParamTypes = listOf(Type.intType, Type.string, Type.bool, Type.array(Type.intType))
+
+    // overloads of every arity up to `arities`, each accepting every type from `firstParamTypes` first
+    fun overloads(arities: Int): Set<FnType> =
+        (1..arities).flatMap { arity ->
+            firstParamTypes.map { first -> Type.fn(Type.unit, first, *Array(arity - 1) { Type.intType }) }
+        }.toSet()
+
+    val calls = (1..8).flatMap { arity -> firstParamTypes.map { first -> listOf(first) + List(arity - 1) { Type.intType } } }
+
+    test("resolving calls to heavily overloaded functions").config(enabled = benchmarksEnabled) {
+        val results = listOf(8, 32, 128).map { arities ->
+            val types = overloads(arities)
+            measure("first resolution (${types.size} overloads)", calls.size) {
+                val overloaded = OverloadedFnType(types)
+                calls.forEach { overloaded.getType(it) }
+            }
+            val overloaded = OverloadedFnType(types)
+            measure("cached resolution (${types.size} overloads)", calls.size) {
+                calls.forEach { overloaded.getType(it) }
+            }
+        }
+
+        results.last().nanosPerUnit shouldBeLessThan results.first().nanosPerUnit * 10
+    }
+})
@@ -0,0 +1,55 @@
+package gh.marad.chi.benchmarks
+
+import ChiLexer
+import ChiParser
+import gh.marad.chi.core.parseProgramTree
+import gh.marad.chi.core.parser.ChiSource
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.doubles.shouldBeLessThan
+import org.antlr.v4.runtime.BaseErrorListener
+import org.antlr.v4.runtime.CharStreams
+import org.antlr.v4.runtime.CommonTokenStream
+import org.antlr.v4.runtime.atn.PredictionMode
+import java.io.File
+
+class ParserBenchmark : FunSpec({
+
+    // sources from `examples` and `language-tests` directories of the repository
+    fun corpus(): List<String> {
+        val root = generateSequence(File(System.getProperty("user.dir")).absoluteFile) { it.parentFile }
+            .first { File(it, "examples").isDirectory && File(it, "language-tests").isDirectory }
+        return listOf("examples", "language-tests").flatMap { dir ->
+            File(root, dir).walkTopDown().filter { it.isFile && it.extension == "chi" }.map { it.readText() }.toList()
+        }
+    }
+
+    fun countTokens(code: String): Int {
+        val tokens = CommonTokenStream(ChiLexer(CharStreams.fromString(code)))
+        tokens.fill()
+        return tokens.size()
+    }
+
+    fun parseWithFullLL(code: String) {
+        val parser = ChiParser(CommonTokenStream(ChiLexer(CharStreams.fromString(code))))
+        parser.interpreter.predictionMode = PredictionMode.LL
+        parser.program()
+    }
+
+    test("parsing throughput over example programs").config(enabled = benchmarksEnabled) {
+        val sources = corpus()
+        val tokens = sources.sumOf { countTokens(it) }
+        val chiSources = sources.map { ChiSource(it) }
+
+        val fullLL = measure("full LL (${sources.size} files)", tokens, warmup = 10, iterations = 10) {
+            sources.forEach { parseWithFullLL(it) }
+        }
+        val twoStage = measure("SLL with LL fallback (${sources.size} files)", tokens, warmup = 10, iterations = 10) {
+            chiSources.forEach { parseProgramTree(it, BaseErrorListener()) }
+        }
+        println("full LL: %.0f tokens/s, SLL with LL fallback: %.0f tokens/s".format(
+            1e9 / fullLL.nanosPerUnit, 1e9 / twoStage.nanosPerUnit
+        ))
+
+        twoStage.nanosPerUnit shouldBeLessThan fullLL.nanosPerUnit * 1.5
+    }
+})
@@ -0,0 +1,56 @@
+package gh.marad.chi.benchmarks
+
+import gh.marad.chi.core.Compiler
+import gh.marad.chi.core.Expression
+import gh.marad.chi.core.TopLevelConsumer
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.longs.shouldBeLessThan
+import java.lang.ref.Reference
+
+class StreamingCompilationBenchmark : FunSpec({
+
+    // ten lines for every function, half of them top level code
+    fun syntheticPackage(lines: Int): String =
+        "package bench/synthetic\n" + (0 until lines / 10).joinToString("\n") {
+            """
+            fn f$it(a: int, b: int): int {
+                val c = if (a > b) { a * 2 + b } else { b * 2 + a }
+                c + $it
+            }
+            val x$it = f$it($it, 2)
+            val y$it = x$it * 3 + $it
+            var z$it = y$it - x$it
+            z$it = z$it + 1
+            z$it + y$it
+            """.trimIndent()
+        }
+
+    test("peak memory of regular and streaming compilation of a 100k line package").config(enabled = benchmarksEnabled) {
+        val code = syntheticPackage(100_000)
+
+        val regular = peakHeapAfterGc { collect ->
+            val result = Compiler.compile(code, GlobalCompilationNamespace())
+            result.messages.shouldBeEmpty()
+            // this is the point when regular compilation hands the whole program over for conversion
+            collect()
+            Reference.reachabilityFence(result)
+        }
+        val streaming = peakHeapAfterGc { collect ->
+            // measure in the middle of compilation too, the consumer drops all the expressions
+            var received = 0
+            val result = Compiler.compileStreaming(code, GlobalCompilationNamespace(), object : TopLevelConsumer {
+                override fun definition(expression: Expression) = code(expression)
+                override fun code(expression: Expression) {
+                    if (++received % 5_000 == 0) collect()
+                }
+            })
+            result.messages.shouldBeEmpty()
+            collect()
+        }
+        println("regular: %.1fMB, streaming: %.1fMB".format(regular / 1048576.0, streaming / 1048576.0))
+
+        streaming shouldBeLessThan regular / 2
+    }
+})
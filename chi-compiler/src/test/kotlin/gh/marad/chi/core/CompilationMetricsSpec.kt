@@ -0,0 +1,45 @@
+package gh.marad.chi.core
+
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import io.kotest.matchers.string.shouldStartWith
+
+@Suppress("unused")
+class CompilationMetricsSpec : FunSpec({
+
+    test("should record every compilation phase") {
+        val metrics = CompilationMetrics("test.chi")
+        Compiler.compile("val x = 5\nfn foo(a: int): int { a + x }", GlobalCompilationNamespace(), metrics)
+
+        metrics.getPhases().map { it.name } shouldContainExactly listOf(
+            "lexing", "parsing", "reading", "expression generation", "autocasting", "analysis"
+        )
+        metrics.getCounters()["tokens"]!! shouldBeGreaterThan 0
+        metrics.getCounters()["expressions"]!! shouldBeGreaterThan 2
+    }
+
+    test("should skip analysis when there are syntax errors") {
+        val metrics = CompilationMetrics("test.chi")
+        Compiler.compile("val x = (1 + \nval y = 3", GlobalCompilationNamespace(), metrics)
+
+        metrics.getPhases().map { it.name } shouldContainExactly listOf(
+            "lexing", "parsing", "reading", "autocasting"
+        )
+    }
+
+    test("should render report as json") {
+        val metrics = CompilationMetrics("dir\\\"quoted\".chi")
+        metrics.measure("parsing") { }
+        metrics.count("expressions", 3)
+
+        val json = metrics.toJson()
+        json shouldStartWith """{"source":"dir\\\"quoted\".chi","""
+        json shouldContain """"phases":[{"name":"parsing","nanos":"""
+        json shouldContain """"counters":{"expressions":3}"""
+        CompilationMetrics.toJson(listOf(metrics)) shouldBe "[\n$json\n]\n"
+    }
+})
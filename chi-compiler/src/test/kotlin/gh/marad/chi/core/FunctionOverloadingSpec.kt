@@ -1,9 +1,13 @@
 package gh.marad.chi.core
 
 import gh.marad.chi.core.Type.Companion.any
+import gh.marad.chi.core.Type.Companion.array
+import gh.marad.chi.core.Type.Companion.floatType
 import gh.marad.chi.core.Type.Companion.fn
+import gh.marad.chi.core.Type.Companion.genericFn
 import gh.marad.chi.core.Type.Companion.intType
 import gh.marad.chi.core.Type.Companion.string
+import gh.marad.chi.core.Type.Companion.typeParameter
 import io.kotest.core.spec.style.FunSpec
 import io.kotest.matchers.nulls.shouldBeNull
 import io.kotest.matchers.shouldBe
@@ -52,4 +56,29 @@ class FunctionOverloadingSpec : FunSpec({
 
         overloadedFnType.getType(listOf(intType, intType)).shouldBeNull()
     }
-})
\ No newline at end of file
+
+    test("should accept subtypes of declared parameter types") {
+        val overloadedFnType = OverloadedFnType(setOf(fn(intType, floatType), fn(intType, string)))
+
+        overloadedFnType.getType(listOf(intType)) shouldBe fn(intType, floatType)
+    }
+
+    test("should prefer concrete types over type parameters") {
+        val t = typeParameter("T")
+        val generic = genericFn(listOf(t), t, t)
+        val overloadedFnType = OverloadedFnType(setOf(generic, fn(intType, intType)))
+
+        overloadedFnType.getType(listOf(intType)) shouldBe fn(intType, intType)
+        overloadedFnType.getType(listOf(string)) shouldBe generic
+        overloadedFnType.getType(listOf(array(intType))) shouldBe generic
+    }
+
+    test("should resolve the same way when asked again") {
+        val overloadedFnType = OverloadedFnType(setOf(fn(intType, any, intType), fn(intType, intType, any)))
+
+        repeat(3) {
+            overloadedFnType.getType(listOf(intType, string)) shouldBe fn(intType, intType, any)
+            overloadedFnType.getType(listOf(intType, intType)).shouldBeNull()
+        }
+    }
+})
@@ -3,11 +3,15 @@ package gh.marad.chi.core
 import gh.marad.chi.ast
 import gh.marad.chi.core.Type.Companion.fn
 import gh.marad.chi.core.Type.Companion.intType
+import gh.marad.chi.core.analyzer.SyntaxError
 import gh.marad.chi.core.namespace.CompilationScope
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
 import gh.marad.chi.core.namespace.ScopeType
 import gh.marad.chi.core.namespace.SymbolType
 import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
 import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.collections.shouldNotBeEmpty
 import io.kotest.matchers.should
 import io.kotest.matchers.shouldBe
 import io.kotest.matchers.types.shouldBeTypeOf
@@ -55,4 +59,12 @@ class ParserSpec : FunSpec({
                     }
             }
     }
-})
\ No newline at end of file
+
+    test("should report syntax errors after fast parsing attempt fails") {
+        val result = Compiler.compile("val x = 5\nval y = (1 + \nval z = 3", GlobalCompilationNamespace())
+
+        result.messages.shouldNotBeEmpty()
+        result.messages.forEach { it.shouldBeTypeOf<SyntaxError>() }
+        result.program.expressions.shouldBeEmpty()
+    }
+})
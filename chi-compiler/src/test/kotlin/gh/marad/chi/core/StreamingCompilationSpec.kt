@@ -0,0 +1,91 @@
+package gh.marad.chi.core
+
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldNotBeEmpty
+import io.kotest.matchers.shouldBe
+
+@Suppress("unused")
+class StreamingCompilationSpec : FunSpec({
+
+    class CollectingConsumer : TopLevelConsumer {
+        val definitions = mutableListOf<Expression>()
+        val code = mutableListOf<Expression>()
+        override fun definition(expression: Expression) {
+            definitions.add(expression)
+        }
+
+        override fun code(expression: Expression) {
+            code.add(expression)
+        }
+    }
+
+    fun describe(expressions: List<Expression>) =
+        expressions.map { "${it::class.simpleName} ${it.sourceSection} ${it.type}" }
+
+    test("should produce the same expressions as regular compilation") {
+        val code = """
+            package test/streaming
+            val x = double(21)
+            data Foo = Bar(i: int) | Baz()
+            fn double(a: int): int { a * 2 + y }
+            val y = 5
+            effect ask(): int
+            fn foo(f: Foo): int { if (f is Bar) { 1 } else { 0 } }
+            foo(Bar(x))
+        """.trimIndent()
+
+        val expected = Compiler.compile(code, GlobalCompilationNamespace())
+        val consumer = CollectingConsumer()
+        val result = Compiler.compileStreaming(code, GlobalCompilationNamespace(), consumer)
+
+        result.messages shouldBe expected.messages
+        describe(consumer.definitions + consumer.code) shouldBe describe(expected.program.expressions)
+        describe(consumer.code) shouldBe describe(expected.program.expressions.takeLast(3))
+    }
+
+    test("should report the same messages in the same order") {
+        val code = (0 until 100).joinToString("\n") {
+            when (it % 5) {
+                0 -> "fn f$it(a: int): int { a }"
+                1 -> "val v$it: int = \"not an int\""
+                2 -> "f${it - 2}(1, 2)"
+                3 -> "val x$it = 5\nx$it()"
+                else -> "fn g$it(): string { f${it - 4}(1) }"
+            }
+        }
+
+        val expected = Compiler.compile(code, GlobalCompilationNamespace())
+        val result = Compiler.compileStreaming(code, GlobalCompilationNamespace(), CollectingConsumer())
+
+        expected.messages.shouldNotBeEmpty()
+        result.messages shouldBe expected.messages
+    }
+
+    test("should not pass anything to the consumer when there are syntax errors") {
+        val consumer = CollectingConsumer()
+        val result = Compiler.compileStreaming(
+            "val x = 5\nval y = (1 + \nval z = 3",
+            GlobalCompilationNamespace(),
+            consumer
+        )
+
+        result.hasErrors() shouldBe true
+        consumer.definitions.shouldBeEmpty()
+        consumer.code.shouldBeEmpty()
+    }
+
+    test("should not pass erroneous expressions to the consumer") {
+        val consumer = CollectingConsumer()
+        val result = Compiler.compileStreaming(
+            "val x = 5\nx()\nval y = 3\nfn f(): int { 1 }",
+            GlobalCompilationNamespace(),
+            consumer
+        )
+
+        result.hasErrors() shouldBe true
+        consumer.definitions.filterIsInstance<NameDeclaration>().shouldBeEmpty()
+        consumer.code.map { (it as NameDeclaration).name } shouldBe listOf("x")
+    }
+})
@@ -0,0 +1,28 @@
+package gh.marad.chi.core.analyzer
+
+import gh.marad.chi.core.Compiler
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.collections.shouldHaveSize
+import io.kotest.matchers.shouldBe
+
+class AnalyzerSpec : FunSpec({
+    test("analyzing large programs in parallel reports the same messages in the same order") {
+        val code = (0 until 300).joinToString("\n") {
+            when (it % 5) {
+                0 -> "fn f$it(a: int): int { a }"
+                1 -> "val v$it: int = \"not an int\""
+                2 -> "f${it - 2}(1, 2)"
+                3 -> "val x$it = 5\nx$it()"
+                else -> "val y$it = 5\ny$it = 10"
+            }
+        }
+
+        val result = Compiler.compile(code, GlobalCompilationNamespace())
+
+        val messages = analyzeInParallel(result.program)
+
+        messages shouldHaveSize 240
+        messages shouldBe analyzeSequentially(result.program)
+    }
+})
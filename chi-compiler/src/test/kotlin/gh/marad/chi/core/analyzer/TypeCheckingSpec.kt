@@ -343,6 +343,19 @@ class FnCallTypeCheckingSpec : FunSpec() {
 
             result.shouldBeEmpty()
         }
+
+        test("should type deeply nested function calls") {
+            val depth = 60
+            val code = """
+                fn id(a: int): int { a }
+                ${"id(".repeat(depth)}1${")".repeat(depth)}
+            """.trimIndent()
+
+            val expr = ast(code)
+
+            expr.type shouldBe intType
+            analyze(expr).shouldBeEmpty()
+        }
     }
 }
 
@@ -3,9 +3,11 @@ package gh.marad.chi.core.modules
 import gh.marad.chi.ErrorMessagesException
 import gh.marad.chi.ast
 import gh.marad.chi.asts
-import gh.marad.chi.core.FnCall
-import gh.marad.chi.core.VariableAccess
+import gh.marad.chi.compile
+import gh.marad.chi.core.*
 import gh.marad.chi.core.analyzer.SyntaxError
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace
+import gh.marad.chi.core.namespace.SymbolType
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.core.spec.style.FunSpec
 import io.kotest.matchers.collections.shouldHaveSize
@@ -137,4 +139,41 @@ class ImportSpec : FunSpec({
         messages[0].shouldBeTypeOf<SyntaxError>()
     }
 
+    test("importing native type and calling its functions as methods") {
+        // given
+        val namespace = GlobalCompilationNamespace()
+        val boxType = VariantType("std", "box", "Box", listOf(Type.typeParameter("T")), emptyMap(), null)
+        val pkg = namespace.getOrCreatePackage("std", "box")
+        pkg.typeRegistry.defineNativeType(boxType)
+        pkg.scope.addSymbol(
+            "get",
+            Type.genericFn(
+                listOf(Type.typeParameter("T")),
+                Type.typeParameter("T"),
+                boxType.applyTypeParameters(listOf(Type.typeParameter("T")))
+            ),
+            SymbolType.Local,
+            public = true
+        )
+
+        // when
+        val result = compile(
+            """
+                import std/box { Box }
+                fn unbox(box: Box[int]): int { box.get() }
+            """.trimIndent(), namespace
+        )
+
+        // then
+        val fn = result.last().shouldBeTypeOf<NameDeclaration>().value.shouldBeTypeOf<Fn>()
+        fn.parameters[0].type shouldBe boxType.applyTypeParameters(listOf(Type.intType))
+        fn.body.body.last().shouldBeTypeOf<FnCall>().should { call ->
+            call.function.shouldBeTypeOf<VariableAccess>().should { fnAccess ->
+                fnAccess.moduleName shouldBe "std"
+                fnAccess.packageName shouldBe "box"
+                fnAccess.name shouldBe "get"
+            }
+        }
+    }
+
 })
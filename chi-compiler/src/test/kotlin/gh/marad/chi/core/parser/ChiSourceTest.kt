@@ -37,4 +37,29 @@ class ChiSourceTest : FunSpec({
         ) shouldBe "text"
         section.getCode() shouldBe "text"
     }
+
+    test("calculating positions at line boundaries") {
+        source.lineAt(0) shouldBe 1
+        source.columnAt(0) shouldBe 0
+        val secondLineStart = sampleCode.indexOf("some")
+        source.lineAt(secondLineStart - 1) shouldBe 1
+        source.lineAt(secondLineStart) shouldBe 2
+        source.columnAt(secondLineStart) shouldBe 0
+        source.lineAt(sampleCode.length) shouldBe 3
+        source.columnAt(sampleCode.length) shouldBe "in multple lines".length
+    }
+
+    test("reading lines by number") {
+        source.lineCount shouldBe 3
+        source.getLine(1) shouldBe "this is "
+        source.getLine(2) shouldBe "some text"
+        source.getLine(3) shouldBe "in multple lines"
+    }
+
+    test("reading lines ignores windows line endings") {
+        val windowsSource = ChiSource("first\r\nsecond")
+        windowsSource.getLine(1) shouldBe "first"
+        windowsSource.getLine(2) shouldBe "second"
+        windowsSource.lineAt(windowsSource.code.indexOf("second")) shouldBe 2
+    }
 })
@@ -0,0 +1,46 @@
+package gh.marad.chi.core.types
+
+import gh.marad.chi.core.Type
+import gh.marad.chi.core.Type.Companion.array
+import gh.marad.chi.core.Type.Companion.fn
+import gh.marad.chi.core.Type.Companion.genericFn
+import gh.marad.chi.core.Type.Companion.intType
+import gh.marad.chi.core.Type.Companion.string
+import gh.marad.chi.core.Type.Companion.typeParameter
+import gh.marad.chi.core.TypeInterner
+import gh.marad.chi.core.VariantType
+import io.kotest.core.spec.style.FunSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+
+class TypeInterningSpec : FunSpec({
+    test("equal structural types are the same instance") {
+        fn(intType, string, array(intType)) shouldBeSameInstanceAs fn(intType, string, array(intType))
+        array(array(string)) shouldBeSameInstanceAs array(array(string))
+        typeParameter("T") shouldBeSameInstanceAs typeParameter("T")
+    }
+
+    test("instantiating generic types gives interned instances") {
+        val t = typeParameter("T")
+        val mapFn = genericFn(listOf(t), array(t), array(t), fn(t, t))
+
+        val constructed = mapFn.construct(mapOf(t to intType))
+
+        constructed shouldBeSameInstanceAs genericFn(listOf(t), array(intType), array(intType), fn(intType, intType))
+    }
+
+    test("constructing concrete types returns them unchanged") {
+        val type = fn(intType, array(string))
+        type.construct(mapOf(typeParameter("T") to intType)) shouldBeSameInstanceAs type
+    }
+
+    test("types containing variant types are not interned") {
+        val variantType = VariantType("user", "default", "Foo", emptyList(), emptyMap(), null)
+        val first = TypeInterner.intern(Type.fn(variantType, intType))
+        val second = TypeInterner.intern(Type.fn(variantType.withVariant(null), intType))
+
+        first shouldBe second
+        first shouldNotBeSameInstanceAs second
+    }
+})
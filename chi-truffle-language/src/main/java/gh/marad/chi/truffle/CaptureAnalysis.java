@@ -0,0 +1,123 @@
+package gh.marad.chi.truffle;
+
+import gh.marad.chi.core.*;
+import gh.marad.chi.core.namespace.CompilationScope;
+import gh.marad.chi.core.namespace.ScopeType;
+import kotlin.Unit;
+
+import java.util.*;
+
+/**
+ * Finds out which local variables of enclosing functions are used by each lambda or effect handler.
+ * <p>
+ * Lambdas copy only the values they capture into their closure when they are created,
+ * so the enclosing frame never has to be materialized. Variables that can't be copied - mutable ones
+ * and ones captured by a lambda within their own definition - are kept in a {@link gh.marad.chi.truffle.runtime.VariableBox}
+ * that is shared by the defining frame and all the lambdas that capture it.
+ */
+public class CaptureAnalysis {
+    // keyed by lambdas and handler cases
+    private final Map<Object, List<Variable>> captures = new IdentityHashMap<>();
+    private final Set<Variable> boxed = new HashSet<>();
+
+    /**
+     * Analyzes all lambdas within the expression. Needs to be done before the expression is converted,
+     * because the way variable is stored is decided when it's declared.
+     */
+    public void analyze(Expression root) {
+        UtilsKt.forEachAst(root, expr -> {
+            if (expr instanceof Fn fn) {
+                getCaptures(fn);
+            } else if (expr instanceof Handle handle) {
+                handle.getCases().forEach(this::getCaptures);
+            } else if (expr instanceof NameDeclaration declaration
+                               && declaration.getEnclosingScope().getType() != ScopeType.Package) {
+                var declared = new Variable(declaration.getEnclosingScope(), declaration.getName());
+                UtilsKt.forEachAst(declaration.getValue(), valueExpr -> {
+                    if (valueExpr instanceof Fn fn && getCaptures(fn).contains(declared)) {
+                        boxed.add(declared);
+                    }
+                    return Unit.INSTANCE;
+                });
+            }
+            return Unit.INSTANCE;
+        });
+    }
+
+    /**
+     * Returns variables defined outside the function that are used within it (or within lambdas nested in it),
+     * in the order of first use.
+     */
+    public List<Variable> getCaptures(Fn fn) {
+        return getCaptures(fn, fn.getBody(), fn.getFnScope());
+    }
+
+    /**
+     * Returns variables defined outside the handler case that are used within its body.
+     */
+    public List<Variable> getCaptures(HandleCase handleCase) {
+        return getCaptures(handleCase, handleCase.getBody(), handleCase.getScope());
+    }
+
+    private List<Variable> getCaptures(Object key, Expression body, CompilationScope scope) {
+        var result = captures.get(key);
+        if (result == null) {
+            var found = new LinkedHashSet<Variable>();
+            UtilsKt.forEachAst(body, expr -> {
+                Variable variable = null;
+                if (expr instanceof VariableAccess access) {
+                    variable = resolve(access.getDefinitionScope(), access.getName());
+                } else if (expr instanceof Assignment assignment) {
+                    variable = resolve(assignment.getDefinitionScope(), assignment.getName());
+                }
+                if (variable != null && !variable.scope().isEnclosedBy(scope)) {
+                    found.add(variable);
+                    if (variable.isMutable()) {
+                        boxed.add(variable);
+                    }
+                }
+                return Unit.INSTANCE;
+            });
+            result = List.copyOf(found);
+            captures.put(key, result);
+        }
+        return result;
+    }
+
+    public boolean isBoxed(Variable variable) {
+        return boxed.contains(variable);
+    }
+
+    /**
+     * Finds local variable or argument visible under the name in given scope.
+     * Returns null for package level symbols.
+     */
+    public static Variable resolve(CompilationScope scope, String name) {
+        var definingScope = scope.getDefiningScope(name);
+        if (definingScope == null || definingScope.getType() == ScopeType.Package) {
+            return null;
+        }
+        return new Variable(definingScope, name);
+    }
+
+    /**
+     * Identifies the variable by the scope it was defined in. Scopes are compared by identity,
+     * because distinct scopes can be structurally equal.
+     */
+    public record Variable(CompilationScope scope, String name) {
+        public boolean isMutable() {
+            var symbol = scope.getSymbol(name, true);
+            return symbol != null && symbol.getMutable();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Variable other && scope == other.scope && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(scope) + name.hashCode();
+        }
+    }
+}
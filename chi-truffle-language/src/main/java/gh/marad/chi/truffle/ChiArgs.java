@@ -4,31 +4,47 @@ package gh.marad.chi.truffle;
 import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.strings.TruffleString;
 import gh.marad.chi.truffle.runtime.ChiArray;
+import gh.marad.chi.truffle.runtime.ChiFunction;
 import gh.marad.chi.truffle.runtime.LexicalScope;
 
+/**
+ * Layout of Chi call arguments: lexical scope of the called function, effect handlers active
+ * at the call site, then the actual arguments.
+ */
 public class ChiArgs {
     private final static int SCOPE_INDEX = 0;
-    public final static int ARGS_OFFSET = SCOPE_INDEX + 1;
+    private final static int EFFECT_HANDLERS_INDEX = SCOPE_INDEX + 1;
+    public final static int ARGS_OFFSET = EFFECT_HANDLERS_INDEX + 1;
 
     public static boolean isChiArgs(Object[] args) {
         return args.length > 0 && args[SCOPE_INDEX] instanceof LexicalScope;
     }
 
-    public static Object[] create(LexicalScope scope) {
-        return create(scope, new Object[0]);
-    }
-
-    public static Object[] create(Object[] args) {
-        return create(LexicalScope.empty(), args);
-    }
-
-    public static Object[] create(LexicalScope scope, Object[] args) {
+    public static Object[] create(LexicalScope scope, EffectHandlers effectHandlers, Object[] args) {
         var result = new Object[args.length + ARGS_OFFSET];
         result[SCOPE_INDEX] = scope;
+        result[EFFECT_HANDLERS_INDEX] = effectHandlers;
         System.arraycopy(args, 0, result, ARGS_OFFSET, args.length);
         return result;
     }
 
+    /**
+     * Creates arguments array for a call with given number of arguments, leaving arguments to be filled by the caller.
+     */
+    public static Object[] create(LexicalScope scope, EffectHandlers effectHandlers, int argumentCount) {
+        var result = new Object[argumentCount + ARGS_OFFSET];
+        result[SCOPE_INDEX] = scope;
+        result[EFFECT_HANDLERS_INDEX] = effectHandlers;
+        return result;
+    }
+
+    /**
+     * Returns handlers the function was called with.
+     */
+    public static EffectHandlers getEffectHandlers(Frame frame) {
+        return (EffectHandlers) frame.getArguments()[EFFECT_HANDLERS_INDEX];
+    }
+
     public static LexicalScope getParentScope(Frame frame) {
         return (LexicalScope) frame.getArguments()[SCOPE_INDEX];
     }
@@ -57,6 +73,10 @@ public class ChiArgs {
         return ChiTypesGen.asImplicitChiArray(getObject(frame, argumentIndex));
     }
 
+    public static ChiFunction getChiFunction(Frame frame, int argumentIndex) {
+        return ChiTypesGen.asChiFunction(getObject(frame, argumentIndex));
+    }
+
     public static void setArgument(Frame frame, int argumentIndex, Object value) {
         frame.getArguments()[ARGS_OFFSET + argumentIndex] = value;
     }
@@ -1,16 +1,16 @@
 package gh.marad.chi.truffle;
 
-import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.nodes.Node;
+import gh.marad.chi.core.CompilationMetrics;
 import gh.marad.chi.core.Type;
 import gh.marad.chi.core.namespace.GlobalCompilationNamespace;
 import gh.marad.chi.core.namespace.SymbolType;
 import gh.marad.chi.truffle.builtin.Builtin;
 import gh.marad.chi.truffle.builtin.Prelude;
-import gh.marad.chi.truffle.builtin.collections.ArrayBuiltin;
-import gh.marad.chi.truffle.builtin.collections.SizeBuiltin;
+import gh.marad.chi.truffle.builtin.collections.*;
 import gh.marad.chi.truffle.builtin.io.*;
 import gh.marad.chi.truffle.builtin.lang.EvalBuiltin;
 import gh.marad.chi.truffle.builtin.lang.interop.LookupHostSymbolBuiltin;
@@ -25,10 +25,12 @@ import gh.marad.chi.truffle.runtime.ChiFunction;
 import gh.marad.chi.truffle.runtime.LexicalScope;
 import gh.marad.chi.truffle.runtime.namespaces.Modules;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Supplier;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ChiContext {
     private static final TruffleLanguage.ContextReference<ChiContext> REFERENCE = TruffleLanguage.ContextReference.create(ChiLanguage.class);
@@ -39,19 +41,27 @@ public class ChiContext {
 
     public final LexicalScope globalScope;
     public final GlobalCompilationNamespace compilationNamespace;
-    private EffectHandlers currentEffectHandlers;
 
     private final ChiLanguage chiLanguage;
     private final TruffleLanguage.Env env;
 
     public final Modules modules = new Modules();
+    public final List<CompilationMetrics> compilationMetrics = new ArrayList<>();
+    public final IncrementalCompiler incrementalCompiler;
+    private final Set<ChiFunction> builtinFunctions = new HashSet<>();
+    // generators may be created on producer threads
+    // resources of generators that were not closed yet, generators themselves are not kept here so they can be dropped
+    private final Set<AutoCloseable> openGenerators = ConcurrentHashMap.newKeySet();
+    // generator producer threads mapped to the threads that started them
+    private final Map<Thread, Thread> generatorThreads = new ConcurrentHashMap<>();
 
 
     public ChiContext(ChiLanguage chiLanguage, TruffleLanguage.Env env) {
         this.chiLanguage = chiLanguage;
         this.env = env;
+        this.incrementalCompiler = new IncrementalCompiler(chiLanguage);
         this.compilationNamespace = new GlobalCompilationNamespace(Prelude.imports);
-        this.currentEffectHandlers = new EffectHandlers(null, new HashMap<>());
+        CollectionTypes.define(compilationNamespace);
 
         List<Builtin> builtins = List.of(
                 // lang
@@ -82,6 +92,7 @@ public class ChiContext {
                 new PrintlnBuiltin(env.out()),
                 new ReadLinesBuiltin(),
                 new ReadStringBuiltin(),
+                new LinesBuiltin(),
                 new ArgsBuiltin(),
                 // time
                 new MillisBuiltin(),
@@ -89,6 +100,53 @@ public class ChiContext {
                 new ArrayBuiltin(),
                 new SizeBuiltin(),
                 new HasArrayElementsBuiltin(),
+                new GeneratorBuiltin(chiLanguage),
+                new HasNextBuiltin(),
+                new NextBuiltin(),
+                new VectorOfBuiltin(0),
+                new VectorOfBuiltin(1),
+                new VectorOfBuiltin(2),
+                new VectorOfBuiltin(3),
+                new VectorFromArrayBuiltin(),
+                new VectorSizeBuiltin(),
+                new VectorGetOrElseBuiltin(),
+                new VectorLastOrElseBuiltin(),
+                new VectorAddBuiltin(),
+                new VectorSetBuiltin(),
+                new VectorRemoveLastBuiltin(),
+                new VectorForEachBuiltin(),
+                new VectorMapBuiltin(),
+                new VectorFoldBuiltin(),
+                new VectorFilterBuiltin(),
+                new VectorToArrayBuiltin(),
+                new MapOfBuiltin(0),
+                new MapOfBuiltin(1),
+                new MapOfBuiltin(2),
+                new MapSizeBuiltin(),
+                new MapGetOrElseBuiltin(),
+                new MapContainsKeyBuiltin(),
+                new MapPutBuiltin(),
+                new MapRemoveBuiltin(),
+                new MapForEachBuiltin(),
+                new MapMapBuiltin(),
+                new MapFoldBuiltin(),
+                new MapFilterBuiltin(),
+                new MapUnionBuiltin(),
+                new SetOfBuiltin(0),
+                new SetOfBuiltin(1),
+                new SetOfBuiltin(2),
+                new SetOfBuiltin(3),
+                new SetFromArrayBuiltin(),
+                new SetSizeBuiltin(),
+                new SetContainsBuiltin(),
+                new SetAddBuiltin(),
+                new SetRemoveBuiltin(),
+                new SetForEachBuiltin(),
+                new SetMapBuiltin(),
+                new SetFoldBuiltin(),
+                new SetFilterBuiltin(),
+                new SetUnionBuiltin(),
+                new SetToArrayBuiltin(),
                 // string
                 new StringLengthBuiltin(),
                 new StringCodePointAtBuiltin(),
@@ -104,8 +162,7 @@ public class ChiContext {
                 new StringReplaceBuiltin(),
                 new StringReplaceAllBuiltin()
         );
-        var frameDescriptor = FrameDescriptor.newBuilder().build();
-        this.globalScope = new LexicalScope(Truffle.getRuntime().createMaterializedFrame(new Object[0], frameDescriptor));
+        this.globalScope = LexicalScope.empty();
         installBuiltins(builtins);
     }
 
@@ -116,6 +173,7 @@ public class ChiContext {
     private void installBuiltin(Builtin node) {
         var rootNode = new FnRootNode(chiLanguage, FrameDescriptor.newBuilder().build(), node, node.name());
         var fn = new ChiFunction(rootNode.getCallTarget());
+        builtinFunctions.add(fn);
         modules.getOrCreateModule(node.getModuleName())
                .defineFunction(node.getPackageName(), fn, node.type().getParamTypes().toArray(new Type[0]));
         var compilationScope = compilationNamespace.getOrCreatePackage(
@@ -125,19 +183,62 @@ public class ChiContext {
         compilationScope.addSymbol(node.name(), node.type(), SymbolType.Local, true, false);
     }
 
-    public TruffleLanguage.Env getEnv() {
-        return env;
+    @CompilerDirectives.TruffleBoundary
+    public boolean isBuiltin(ChiFunction function) {
+        return builtinFunctions.contains(function);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public void registerGenerator(AutoCloseable resource) {
+        openGenerators.add(resource);
+    }
+
+    /**
+     * Closes generator resource unless it was already closed. May be called from any thread,
+     * including the one cleaning up unreachable generators.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public void releaseGenerator(AutoCloseable resource) {
+        if (openGenerators.remove(resource)) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Allows the producer thread to use the context alongside the current thread, which starts it.
+     * Has to be called before the producer thread is started.
+     */
+    public void registerGeneratorThread(Thread producer) {
+        generatorThreads.put(producer, Thread.currentThread());
     }
 
-    public <T> T withEffectHandlers(Map<EffectHandlers.Qualifier, ChiFunction> handlers, Supplier<T> code) {
-        var previousHandler = currentEffectHandlers;
-        currentEffectHandlers = new EffectHandlers(previousHandler, handlers);
-        var result = code.get();
-        currentEffectHandlers = previousHandler;
-        return result;
+    void unregisterGeneratorThread(Thread thread) {
+        generatorThreads.remove(thread);
     }
 
-    public ChiFunction findEffectHandlerOrNull(EffectHandlers.Qualifier qualifier) {
-        return currentEffectHandlers.findEffectHandlerOrNull(qualifier);
+    /**
+     * Checks if the thread is a running generator producer of this context or the thread that started one.
+     */
+    boolean isGeneratorThread(Thread thread) {
+        return generatorThreads.containsKey(thread) || generatorThreads.containsValue(thread);
+    }
+
+    /**
+     * Releases resources of generators that were not consumed to the end, including their producer threads.
+     */
+    public void closeGenerators() {
+        List.copyOf(openGenerators).forEach(this::releaseGenerator);
+    }
+
+    public int getFieldCacheLimit() {
+        return env.getOptions().get(ChiLanguage.FieldCacheLimit);
+    }
+
+    public TruffleLanguage.Env getEnv() {
+        return env;
     }
 }
@@ -2,18 +2,41 @@ package gh.marad.chi.truffle;
 
 import com.oracle.truffle.api.CallTarget;
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.ContextThreadLocal;
+import com.oracle.truffle.api.Option;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.instrumentation.ProvidedTags;
 import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.nodes.Node;
-import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import gh.marad.chi.core.CompilationMetrics;
 import gh.marad.chi.core.Compiler;
-import gh.marad.chi.core.VariantType;
+import gh.marad.chi.core.Expression;
+import gh.marad.chi.core.Import;
+import gh.marad.chi.core.Package;
+import gh.marad.chi.core.TopLevelConsumer;
+import gh.marad.chi.core.analyzer.Message;
+import gh.marad.chi.core.parser.ChiSource;
 import gh.marad.chi.core.analyzer.Level;
 import gh.marad.chi.truffle.compilation.CompilationFailed;
 import gh.marad.chi.truffle.nodes.ChiNode;
-import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.VariantTags;
+import org.graalvm.options.OptionCategory;
+import org.graalvm.options.OptionDescriptors;
+import org.graalvm.options.OptionKey;
+import org.graalvm.options.OptionStability;
+import org.graalvm.options.OptionValues;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @TruffleLanguage.Registration(
         id = ChiLanguage.id,
@@ -29,50 +52,228 @@ public class ChiLanguage extends TruffleLanguage<ChiContext> {
     public static final String mimeType = "application/x-chi";
     private static final LanguageReference<ChiLanguage> REFERENCE = LanguageReference.create(ChiLanguage.class);
 
-    private final Shape initialObjectShape = Shape.newBuilder().build();
+    @Option(name = "compile-stats", help = "Print time and allocations of every compilation phase for each compiled source.",
+            category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<Boolean> CompileStats = new OptionKey<>(false);
 
-    public Object createObject(String[] fieldNames, VariantType variant, TruffleLanguage.Env env) {
-        return new ChiObject(fieldNames, variant, initialObjectShape, env);
-    }
+    @Option(name = "compile-stats-file", help = "Write compilation phase statistics of all compiled sources as JSON to given file.",
+            category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<String> CompileStatsFile = new OptionKey<>("");
+
+    @Option(name = "incremental", help = "Recompile file sources only when they, or packages they import, have changed since they were last loaded.",
+            category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<Boolean> Incremental = new OptionKey<>(false);
+
+    @Option(name = "streaming-compile", help = "Compile sources one top level declaration at a time to reduce peak memory usage for large sources.",
+            category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<Boolean> StreamingCompile = new OptionKey<>(false);
+
+    @Option(name = "field-cache-limit", help = "Number of object shapes cached by each field access before it switches to a generic lookup.",
+            category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<Integer> FieldCacheLimit = new OptionKey<>(5);
+
+    private final VariantTags variantTags = new VariantTags();
+    private final ContextThreadLocal<EffectHandlers.Current> currentEffectHandlers =
+            createContextThreadLocal((context, thread) -> new EffectHandlers.Current());
+    // thread access checks don't get the context, so they ask all the live ones
+    private final Set<ChiContext> contexts = ConcurrentHashMap.newKeySet();
 
     public static ChiLanguage get(Node node) {
         return REFERENCE.get(node);
     }
 
+    public int getVariantTag(String name) {
+        return variantTags.get(name);
+    }
+
+    /**
+     * Handlers for calls from outside of Chi made on the current thread, see {@link EffectHandlers.Current}.
+     */
+    public EffectHandlers.Current getCurrentEffectHandlers() {
+        return currentEffectHandlers.get();
+    }
+
     @Override
     protected ChiContext createContext(Env env) {
-        return new ChiContext(this, env);
+        var context = new ChiContext(this, env);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    protected void disposeContext(ChiContext context) {
+        contexts.remove(context);
+    }
+
+    @Override
+    protected OptionDescriptors getOptionDescriptors() {
+        return new ChiLanguageOptionDescriptors();
+    }
+
+    // field-cache-limit is baked into nodes, so only contexts that agree on it may share the code
+    @Override
+    protected boolean areOptionsCompatible(OptionValues firstOptions, OptionValues newOptions) {
+        return firstOptions.get(FieldCacheLimit).equals(newOptions.get(FieldCacheLimit));
+    }
+
+    @Override
+    protected boolean isThreadAccessAllowed(Thread thread, boolean singleThreaded) {
+        // runtime state is not thread safe, so only a generator producer and the thread that started it
+        // may use a context together - they never run at the same time
+        if (singleThreaded) {
+            return true;
+        }
+        for (var context : contexts) {
+            if (context.isGeneratorThread(thread)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void disposeThread(ChiContext context, Thread thread) {
+        context.unregisterGeneratorThread(thread);
+    }
+
+    @Override
+    protected void finalizeContext(ChiContext context) {
+        context.closeGenerators();
+        var statsFile = context.getEnv().getOptions().get(CompileStatsFile);
+        if (!statsFile.isEmpty()) {
+            var json = CompilationMetrics.toJson(context.compilationMetrics);
+            var file = context.getEnv().getPublicTruffleFile(statsFile);
+            try (var writer = file.newBufferedWriter(StandardCharsets.UTF_8)) {
+                writer.write(json);
+            } catch (IOException ex) {
+                throw new RuntimeException("Could not write compilation statistics to " + statsFile, ex);
+            }
+        }
     }
 
     @Override
     protected CallTarget parse(ParsingRequest request) {
         var source = request.getSource();
         var sourceString = source.getCharacters().toString();
-        return compile(sourceString);
+        if (source.getPath() != null && ChiContext.get(null).getEnv().getOptions().get(Incremental)) {
+            return new IncrementalLoadRootNode(this, source.getPath(), sourceString).getCallTarget();
+        }
+        return compile(sourceString, source.getName());
     }
 
     @CompilerDirectives.TruffleBoundary
     public CallTarget compile(String sourceString) {
-        var context = ChiContext.get(null);
-        var compiled = Compiler.compile(sourceString, context.compilationNamespace);
+        return compile(sourceString, "<eval>");
+    }
 
+    @CompilerDirectives.TruffleBoundary
+    public CallTarget compile(String sourceString, String sourceName) {
+        return compileProgram(sourceString, sourceName).callTarget();
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    CompiledProgram compileProgram(String sourceString, String sourceName) {
+        var context = ChiContext.get(null);
+        var options = context.getEnv().getOptions();
+        var metrics = options.get(CompileStats) || !options.get(CompileStatsFile).isEmpty()
+                              ? new CompilationMetrics(sourceName)
+                              : null;
+        if (options.get(StreamingCompile)) {
+            return compileStreaming(context, sourceString, metrics);
+        }
+        var compiled = Compiler.compile(sourceString, context.compilationNamespace, metrics);
         if (compiled.hasErrors()) {
-            compiled.getMessages().stream()
-                    .filter(it -> it.getLevel() == Level.ERROR)
-                    .findFirst()
-                    .ifPresent(message -> {
-                        var msgStr = Compiler.formatCompilationMessage(sourceString, message);
-                        System.err.println(msgStr);
-                    });
-            CompilerDirectives.transferToInterpreter();
-            throw new CompilationFailed(compiled.getMessages());
+            reportErrors(compiled.getSource(), compiled.getMessages());
         }
 
         var fdBuilder = FrameDescriptor.newBuilder();
         var converter = new Converter(this, fdBuilder);
-        var executableAst = converter.convertProgram(compiled.getProgram());
+        var executableAst = metrics != null
+                                    ? metrics.measure("conversion", () -> converter.convertProgram(compiled.getProgram()))
+                                    : converter.convertProgram(compiled.getProgram());
         var rootNode = new ProgramRootNode(this, executableAst, fdBuilder.build());
-        return rootNode.getCallTarget();
+        recordMetrics(context, metrics, rootNode);
+        Package packageDefinition = null;
+        var imports = new ArrayList<Import>();
+        for (var expr : compiled.getProgram().getExpressions()) {
+            if (expr instanceof Package pkg) {
+                packageDefinition = pkg;
+            } else if (expr instanceof Import imp) {
+                imports.add(imp);
+            }
+        }
+        return new CompiledProgram(packageDefinition, imports, rootNode.getCallTarget());
+    }
+
+    private CompiledProgram compileStreaming(ChiContext context, String sourceString, CompilationMetrics metrics) {
+        var fdBuilder = FrameDescriptor.newBuilder();
+        var converter = new Converter(this, fdBuilder);
+        var definitions = new ArrayList<ChiNode>();
+        var code = new ArrayList<ChiNode>();
+        var imports = new ArrayList<Import>();
+        var packageDefinition = new Package[1];
+        var compiled = Compiler.compileStreaming(sourceString, context.compilationNamespace, new TopLevelConsumer() {
+            @Override
+            public void definition(@NotNull Expression expression) {
+                if (expression instanceof Package pkg) {
+                    packageDefinition[0] = pkg;
+                } else if (expression instanceof Import imp) {
+                    imports.add(imp);
+                }
+                addNode(definitions, converter.convertTopLevelExpression(expression));
+            }
+
+            @Override
+            public void code(@NotNull Expression expression) {
+                addNode(code, converter.convertTopLevelExpression(expression));
+            }
+
+            private void addNode(List<ChiNode> nodes, ChiNode node) {
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+        }, metrics);
+        if (compiled.hasErrors()) {
+            reportErrors(compiled.getSource(), compiled.getMessages());
+        }
+
+        definitions.addAll(code);
+        var rootNode = new ProgramRootNode(this, converter.createProgramBody(definitions), fdBuilder.build());
+        recordMetrics(context, metrics, rootNode);
+        return new CompiledProgram(packageDefinition[0], imports, rootNode.getCallTarget());
+    }
+
+    private void reportErrors(ChiSource source, List<Message> messages) {
+        messages.stream()
+                .filter(it -> it.getLevel() == Level.ERROR)
+                .findFirst()
+                .ifPresent(message -> {
+                    var msgStr = Compiler.formatCompilationMessage(source, message);
+                    System.err.println(msgStr);
+                });
+        CompilerDirectives.transferToInterpreter();
+        throw new CompilationFailed(messages);
+    }
+
+    record CompiledProgram(@Nullable Package packageDefinition, List<Import> imports, CallTarget callTarget) {
+    }
+
+    private void recordMetrics(ChiContext context, @Nullable CompilationMetrics metrics, ProgramRootNode rootNode) {
+        if (metrics == null) {
+            return;
+        }
+        // bodies of package functions are converted on first call, so they are not counted here
+        metrics.count("truffle nodes", NodeUtil.countNodes(rootNode));
+        var options = context.getEnv().getOptions();
+        // kept only to be written out when the context is finalized
+        if (!options.get(CompileStatsFile).isEmpty()) {
+            context.compilationMetrics.add(metrics);
+        }
+        if (options.get(CompileStats)) {
+            var err = new PrintStream(context.getEnv().err(), true, StandardCharsets.UTF_8);
+            err.print(metrics.toSummary());
+        }
     }
 
     private void printAst(ChiNode node) {
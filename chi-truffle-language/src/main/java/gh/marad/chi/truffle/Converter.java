@@ -9,10 +9,12 @@ import gh.marad.chi.core.*;
 import gh.marad.chi.core.namespace.CompilationScope;
 import gh.marad.chi.core.namespace.ScopeType;
 import gh.marad.chi.core.namespace.SymbolType;
+import gh.marad.chi.truffle.builtin.Intrinsics;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.FnRootNode;
 import gh.marad.chi.truffle.nodes.IndexOperatorNodeGen;
 import gh.marad.chi.truffle.nodes.IndexedAssignmentNodeGen;
+import gh.marad.chi.truffle.nodes.LazyFnRootNode;
 import gh.marad.chi.truffle.nodes.expr.BlockExpr;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
 import gh.marad.chi.truffle.nodes.expr.cast.CastToFloatNodeGen;
@@ -20,8 +22,11 @@ import gh.marad.chi.truffle.nodes.expr.cast.CastToLongExprNodeGen;
 import gh.marad.chi.truffle.nodes.expr.cast.CastToStringNodeGen;
 import gh.marad.chi.truffle.nodes.expr.flow.IfExpr;
 import gh.marad.chi.truffle.nodes.expr.flow.IsNodeGen;
+import gh.marad.chi.truffle.nodes.expr.flow.MatchVariantNodeGen;
+import gh.marad.chi.truffle.nodes.expr.flow.effect.AbortEffectNode;
 import gh.marad.chi.truffle.nodes.expr.flow.effect.HandleEffectNode;
 import gh.marad.chi.truffle.nodes.expr.flow.effect.InvokeEffect;
+import gh.marad.chi.truffle.nodes.expr.flow.effect.ReadEffectHandlers;
 import gh.marad.chi.truffle.nodes.expr.flow.effect.ResumeNode;
 import gh.marad.chi.truffle.nodes.expr.flow.loop.WhileBreakNode;
 import gh.marad.chi.truffle.nodes.expr.flow.loop.WhileContinueNode;
@@ -36,12 +41,16 @@ import gh.marad.chi.truffle.nodes.expr.variables.*;
 import gh.marad.chi.truffle.nodes.function.DefinePackageFunction;
 import gh.marad.chi.truffle.nodes.function.DefinePackageFunctionFromNodeGen;
 import gh.marad.chi.truffle.nodes.function.GetDefinedFunction;
+import gh.marad.chi.truffle.nodes.function.IntrinsicCall;
 import gh.marad.chi.truffle.nodes.function.InvokeFunction;
+import gh.marad.chi.truffle.nodes.function.SelfTailCall;
+import gh.marad.chi.truffle.nodes.function.TailCallLoop;
 import gh.marad.chi.truffle.nodes.objects.ConstructChiObject;
 import gh.marad.chi.truffle.nodes.objects.ReadMemberNodeGen;
 import gh.marad.chi.truffle.nodes.objects.WriteMemberNodeGen;
 import gh.marad.chi.truffle.nodes.value.*;
 import gh.marad.chi.truffle.runtime.ChiFunction;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
 import gh.marad.chi.truffle.runtime.TODO;
 
 import java.util.ArrayList;
@@ -55,6 +64,16 @@ import java.util.stream.Collectors;
 public class Converter {
     private final ChiLanguage language;
     private FrameDescriptor.Builder currentFdBuilder;
+    private final CaptureAnalysis captureAnalysis = new CaptureAnalysis();
+    // function whose body is being converted (null for top level code) and variables captured by it
+    private CompilationScope currentFnScope = null;
+    private List<CaptureAnalysis.Variable> currentCaptures = List.of();
+    private final TailCallAnalysis tailCallAnalysis = new TailCallAnalysis();
+    // boxed variables and self tail calls of the function whose frame is being built
+    private List<Integer> currentBoxedSlots = new ArrayList<>();
+    private List<SelfTailCall> currentSelfTailCalls = new ArrayList<>();
+    // slot holding effect handlers of the innermost handle block in current frame, -1 outside of handle blocks
+    private int currentEffectHandlersSlot = -1;
 
     private String currentModule = CompilationDefaults.INSTANCE.getDefaultModule();
     private String currentPackage = CompilationDefaults.INSTANCE.getDefaultPacakge();
@@ -66,10 +85,20 @@ public class Converter {
 
     public ChiNode convertProgram(Program program) {
         var body = program.getExpressions().stream()
-                          .map(this::convertExpression)
+                          .map(this::convertTopLevelExpression)
                           .filter(Objects::nonNull)
-                          .toList()
-                          .toArray(new ChiNode[0]);
+                          .toList();
+        return createProgramBody(body);
+    }
+
+    public ChiNode convertTopLevelExpression(Expression expr) {
+        captureAnalysis.analyze(expr);
+        tailCallAnalysis.analyze(expr);
+        return convertExpression(expr);
+    }
+
+    public ChiNode createProgramBody(List<ChiNode> nodes) {
+        var body = nodes.toArray(new ChiNode[0]);
         if (body.length > 0) {
             var block = new BlockExpr(body);
             block.addRootTag();
@@ -162,13 +191,14 @@ public class Converter {
                 expr.getConstructors().stream()
                     .map(constructor -> {
                         var constructorFunction = createFunctionFromNode(
-                                new ConstructChiObject(
-                                        language,
-                                        expr.getBaseVariantType().withVariant(constructor.toVariant())),
+                                new ConstructChiObject(new VariantDescriptor(
+                                        expr.getBaseVariantType().withVariant(constructor.toVariant()),
+                                        language.getVariantTag(constructor.getName()),
+                                        language.getVariantTag(expr.getName()))),
                                 constructor.getName());
                         if (constructor.getFields().isEmpty()) {
                             return WriteModuleVariableNodeGen.create(
-                                    new InvokeFunction(new LambdaValue(constructorFunction), Collections.emptyList()),
+                                    new InvokeFunction(new LambdaValue(constructorFunction), Collections.emptyList(), readEffectHandlers()),
                                     currentModule,
                                     currentPackage,
                                     constructor.getName()
@@ -210,7 +240,7 @@ public class Converter {
         if (symbol.getScopeType() == ScopeType.Package && nameDeclaration.getValue() instanceof Fn fn) {
             return convertModuleFunctionDefinitionFromFunctionNode(
                     nameDeclaration.getName(),
-                    convertFnExpr(fn, nameDeclaration.getName()),
+                    new LambdaValue(createLazyFunctionWithName(fn, nameDeclaration.getName())),
                     (FnType) fn.getType()
             );
         } else if (symbol.getScopeType() == ScopeType.Package && nameDeclaration.getValue().getType() instanceof FnType fnType) {
@@ -224,9 +254,16 @@ public class Converter {
                     convertExpression(nameDeclaration.getValue()),
                     currentModule, currentPackage, nameDeclaration.getName());
         } else {
-            int slot = currentFdBuilder.addSlot(FrameSlotKind.Illegal, nameDeclaration.getName(), null);
+            var boxed = captureAnalysis.isBoxed(new CaptureAnalysis.Variable(scope, nameDeclaration.getName()));
+            int slot = currentFdBuilder.addSlot(boxed ? FrameSlotKind.Object : FrameSlotKind.Illegal, nameDeclaration.getName(), null);
             scope.updateSlot(nameDeclaration.getName(), slot);
+            if (boxed) {
+                currentBoxedSlots.add(slot);
+            }
             ChiNode valueExpr = convertExpression(nameDeclaration.getValue());
+            if (boxed) {
+                return new WriteBoxedVariable(new GetOrCreateLocalBox(slot), valueExpr);
+            }
             return WriteLocalVariableNodeGen.create(valueExpr, slot, nameDeclaration.getName());
         }
     }
@@ -241,19 +278,51 @@ public class Converter {
                     variableAccess.getPackageName(),
                     variableAccess.getName()
             );
-        } else if (symbolInfo.getSymbolType() == SymbolType.Local && scope.containsInNonVirtualScope(variableAccess.getName())) {
-            assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(variableAccess.getName());
-            return new ReadLocalVariable(variableAccess.getName(), symbolInfo.getSlot());
-        } else if (symbolInfo.getSymbolType() == SymbolType.Local) {
-            assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(variableAccess.getName());
-            return new ReadOuterScopeVariable(variableAccess.getName());
-        } else if (symbolInfo.getSymbolType() == SymbolType.Argument && scope.containsInNonVirtualScope(variableAccess.getName())) {
+        }
+        var variable = CaptureAnalysis.resolve(scope, variableAccess.getName());
+        assert variable != null : "Defining scope not found for local '%s'".formatted(variableAccess.getName());
+        var boxed = captureAnalysis.isBoxed(variable);
+        if (isInCurrentFrame(variable)) {
             assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(variableAccess.getName());
+            if (symbolInfo.getSymbolType() == SymbolType.Argument) {
+                return new ReadLocalArgument(symbolInfo.getSlot());
+            }
+            var read = new ReadLocalVariable(variableAccess.getName(), symbolInfo.getSlot());
+            return boxed ? new ReadBoxedVariable(read) : read;
+        } else {
+            var read = readCapturedVariable(variable);
+            return boxed ? new ReadBoxedVariable(read) : read;
+        }
+    }
+
+    private boolean isInCurrentFrame(CaptureAnalysis.Variable variable) {
+        return currentFnScope == null || variable.scope().isEnclosedBy(currentFnScope);
+    }
+
+    private ChiNode readCapturedVariable(CaptureAnalysis.Variable variable) {
+        var index = currentCaptures.indexOf(variable);
+        if (index == -1) {
+            throw new TODO("Variable '%s' is not captured here".formatted(variable.name()));
+        }
+        return new ReadCapturedVariable(index);
+    }
+
+    /**
+     * Creates node that reads the value to store in closure of a lambda created in current frame.
+     * For boxed variables it's the box itself, so the lambda shares it with the frame.
+     */
+    private ChiNode captureVariable(CaptureAnalysis.Variable variable) {
+        if (!isInCurrentFrame(variable)) {
+            return readCapturedVariable(variable);
+        }
+        var symbolInfo = variable.scope().getSymbol(variable.name(), true);
+        assert symbolInfo != null && symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(variable.name());
+        if (symbolInfo.getSymbolType() == SymbolType.Argument) {
             return new ReadLocalArgument(symbolInfo.getSlot());
+        } else if (captureAnalysis.isBoxed(variable)) {
+            return new GetOrCreateLocalBox(symbolInfo.getSlot());
         } else {
-            assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(variableAccess.getName());
-            var scopesUp = scope.countNonVirtualScopesToName(variableAccess.getName());
-            return new ReadOuterScopeArgument(scopesUp, symbolInfo.getSlot());
+            return new ReadLocalVariable(variable.name(), symbolInfo.getSlot());
         }
     }
 
@@ -280,16 +349,20 @@ public class Converter {
             );
         } else if (symbolInfo.getSymbolType() == SymbolType.Local) {
             assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(assignment.getName());
-            if (scope.containsInNonVirtualScope(assignment.getName())) {
+            var variable = CaptureAnalysis.resolve(scope, assignment.getName());
+            assert variable != null : "Defining scope not found for local '%s'".formatted(assignment.getName());
+            if (!isInCurrentFrame(variable)) {
+                // only mutable variables can be assigned, and captured ones are always boxed
+                return new WriteBoxedVariable(readCapturedVariable(variable), convertExpression(assignment.getValue()));
+            } else if (captureAnalysis.isBoxed(variable)) {
+                return new WriteBoxedVariable(
+                        new GetOrCreateLocalBox(symbolInfo.getSlot()),
+                        convertExpression(assignment.getValue()));
+            } else {
                 return WriteLocalVariableNodeGen.create(
                         convertExpression(assignment.getValue()),
                         symbolInfo.getSlot(),
                         assignment.getName());
-            } else {
-                return WriteOuterVariableNodeGen.create(
-                        convertExpression(assignment.getValue()),
-                        assignment.getName()
-                );
             }
         } else if (symbolInfo.getSymbolType() == SymbolType.Argument) {
             assert symbolInfo.getSlot() != -1 : "Slot for local '%s' was not set up!".formatted(assignment.getName());
@@ -375,6 +448,10 @@ public class Converter {
     }
 
     private ChiNode convertIfExpr(IfElse ifElse) {
+        var match = convertVariantMatch(ifElse);
+        if (match != null) {
+            return match;
+        }
         var condition = convertExpression(ifElse.getCondition());
         var thenBranch = convertExpression(ifElse.getThenBranch());
         ChiNode elseBranch;
@@ -386,9 +463,51 @@ public class Converter {
         return IfExpr.create(condition, thenBranch, elseBranch);
     }
 
+    /**
+     * Converts {@code when} that only checks variants of a single variable - a chain of ifs with
+     * {@code x is A} conditions - to one {@code MatchVariantNode}. Returns null for any other if.
+     */
+    private ChiNode convertVariantMatch(IfElse ifElse) {
+        if (!(ifElse.getCondition() instanceof Is first) || !(first.getValue() instanceof VariableAccess scrutinee)) {
+            return null;
+        }
+        var checks = new ArrayList<IfElse>();
+        Expression rest = ifElse;
+        while (rest instanceof IfElse next && next.getCondition() instanceof Is is
+                       && is.getValue() instanceof VariableAccess access && sameVariable(access, scrutinee)) {
+            checks.add(next);
+            rest = next.getElseBranch();
+        }
+        if (checks.size() < 2) {
+            return null;
+        }
+        var tags = checks.stream()
+                         .mapToInt(check -> language.getVariantTag(((Is) check.getCondition()).getTypeOrVariant()))
+                         .toArray();
+        var branches = checks.stream()
+                             .map(check -> convertExpression(check.getThenBranch()))
+                             .toArray(ChiNode[]::new);
+        var elseBranch = rest != null ? convertExpression(rest) : null;
+        return MatchVariantNodeGen.create(tags, branches, elseBranch, convertExpression(scrutinee));
+    }
+
+    private static boolean sameVariable(VariableAccess a, VariableAccess b) {
+        var variable = CaptureAnalysis.resolve(a.getDefinitionScope(), a.getName());
+        if (variable != null) {
+            return variable.equals(CaptureAnalysis.resolve(b.getDefinitionScope(), b.getName()));
+        }
+        return CaptureAnalysis.resolve(b.getDefinitionScope(), b.getName()) == null
+                       && a.getModuleName().equals(b.getModuleName())
+                       && a.getPackageName().equals(b.getPackageName())
+                       && a.getName().equals(b.getName());
+    }
+
     private ChiNode convertFnExpr(Fn fn, String name) {
         var functionCallTarget = createFunctionWithName(fn, name);
-        return new LambdaValue(functionCallTarget);
+        var captures = captureAnalysis.getCaptures(fn).stream()
+                                      .map(this::captureVariable)
+                                      .toArray(ChiNode[]::new);
+        return new LambdaValue(functionCallTarget, captures);
     }
 
     private ChiNode convertFnExpr(Fn fn) {
@@ -412,56 +531,136 @@ public class Converter {
     }
 
     private RootCallTarget createFunctionWithName(Fn fn, String name) {
-        var rootNode = withNewFrameDescriptor(() -> {
+        return withNewFrameDescriptor(() -> withFunctionScope(fn.getFnScope(), captureAnalysis.getCaptures(fn), () -> {
             var body = (ExpressionNode) convertBlock(fn.getBody(), fn.getReturnType(), fn.getParameters(), fn.getFnScope());
             body.addRootTag();
-            return new FnRootNode(language, currentFdBuilder.build(), body, name);
+            if (!currentSelfTailCalls.isEmpty()) {
+                var boxedSlots = currentBoxedSlots.stream().mapToInt(Integer::intValue).toArray();
+                body = new TailCallLoop(body, boxedSlots);
+            }
+            var callTarget = new FnRootNode(language, currentFdBuilder.build(), body, name).getCallTarget();
+            currentSelfTailCalls.forEach(call -> call.setSelfTarget(callTarget));
+            return callTarget;
+        }));
+    }
+
+    // body is converted when the function is called for the first time
+    // conversion state is shared by all functions of the program, so they are converted one at a time
+    private RootCallTarget createLazyFunctionWithName(Fn fn, String name) {
+        var module = currentModule;
+        var pkg = currentPackage;
+        var rootNode = new LazyFnRootNode(language, name, () -> {
+            synchronized (this) {
+                var previousModule = currentModule;
+                var previousPackage = currentPackage;
+                currentModule = module;
+                currentPackage = pkg;
+                try {
+                    return createFunctionWithName(fn, name);
+                } finally {
+                    currentModule = previousModule;
+                    currentPackage = previousPackage;
+                }
+            }
         });
         return rootNode.getCallTarget();
     }
 
     private <T> T withNewFrameDescriptor(Supplier<T> f) {
         var previousFdBuilder = currentFdBuilder;
+        var previousBoxedSlots = currentBoxedSlots;
+        var previousSelfTailCalls = currentSelfTailCalls;
+        var previousEffectHandlersSlot = currentEffectHandlersSlot;
         currentFdBuilder = FrameDescriptor.newBuilder();
+        currentBoxedSlots = new ArrayList<>();
+        currentSelfTailCalls = new ArrayList<>();
+        currentEffectHandlersSlot = -1;
         var result = f.get();
         currentFdBuilder = previousFdBuilder;
+        currentBoxedSlots = previousBoxedSlots;
+        currentSelfTailCalls = previousSelfTailCalls;
+        currentEffectHandlersSlot = previousEffectHandlersSlot;
         return result;
     }
 
+    private ReadEffectHandlers readEffectHandlers() {
+        return currentEffectHandlersSlot == -1
+                       ? ReadEffectHandlers.fromArguments()
+                       : ReadEffectHandlers.fromSlot(currentEffectHandlersSlot);
+    }
+
+    private <T> T withFunctionScope(CompilationScope fnScope, List<CaptureAnalysis.Variable> captures, Supplier<T> f) {
+        var previousFnScope = currentFnScope;
+        var previousCaptures = currentCaptures;
+        currentFnScope = fnScope;
+        currentCaptures = captures;
+        try {
+            return f.get();
+        } finally {
+            currentFnScope = previousFnScope;
+            currentCaptures = previousCaptures;
+        }
+    }
+
     private ChiNode convertFnCall(FnCall fnCall) {
         var functionExpr = fnCall.getFunction();
-        FnType fnType;
-        if (functionExpr.getType() instanceof OverloadedFnType overloaded) {
-            fnType = overloaded.getType(fnCall.getParameters().stream().map(Expression::getType).toList());
-        } else if (functionExpr.getType() instanceof FnType type) {
-            fnType = type;
-        } else {
+        var fnType = fnCall.getResolvedFunctionType();
+        if (fnType == null) {
             throw new TODO("This is not a function type %s".formatted(functionExpr.getType()));
         }
-        assert fnType != null;
         var paramTypes = fnType.getParamTypes().toArray(new Type[0]);
         var parameters = fnCall.getParameters().stream().map(this::convertExpression).toList();
+        if (tailCallAnalysis.isTailResume(fnCall)) {
+            return parameters.get(0);
+        }
+        if (functionExpr instanceof VariableAccess variableAccess && isPackageSymbol(variableAccess)) {
+            var intrinsic = Intrinsics.createOrNull(
+                    variableAccess.getModuleName(),
+                    variableAccess.getPackageName(),
+                    variableAccess.getName(),
+                    parameters);
+            if (intrinsic != null) {
+                return new IntrinsicCall(
+                        variableAccess.getModuleName(),
+                        variableAccess.getPackageName(),
+                        variableAccess.getName(),
+                        paramTypes,
+                        intrinsic,
+                        readEffectHandlers());
+            }
+        }
+        if (tailCallAnalysis.isSelfTailCall(fnCall)) {
+            var selfTailCall = new SelfTailCall(convertCallee(functionExpr, paramTypes), parameters, readEffectHandlers());
+            currentSelfTailCalls.add(selfTailCall);
+            return selfTailCall;
+        }
+        return new InvokeFunction(convertCallee(functionExpr, paramTypes), parameters, readEffectHandlers());
+    }
+
+    private static boolean isPackageSymbol(VariableAccess variableAccess) {
+        var symbol = variableAccess.getDefinitionScope().getSymbol(variableAccess.getName(), true);
+        return symbol != null && symbol.getScopeType() == ScopeType.Package;
+    }
+
+    private ChiNode convertCallee(Expression functionExpr, Type[] paramTypes) {
         if (functionExpr instanceof VariableAccess variableAccess) {
             var scope = variableAccess.getDefinitionScope();
             var symbol = scope.getSymbol(variableAccess.getName(), true);
             assert symbol != null : "Symbol not found for name %s".formatted(variableAccess.getName());
             var symbolType = symbol.getSymbolType();
             if (symbol.getScopeType() == ScopeType.Package) {
-                var function = new GetDefinedFunction(
+                return new GetDefinedFunction(
                         variableAccess.getModuleName(),
                         variableAccess.getPackageName(),
                         variableAccess.getName(),
                         paramTypes);
-                return new InvokeFunction(function, parameters);
             } else if (symbolType == SymbolType.Local || symbolType == SymbolType.Argument) {
-                var function = convertExpression(functionExpr);
-                return new InvokeFunction(function, parameters);
+                return convertExpression(functionExpr);
             } else {
                 throw new TODO("Dedicated error here. You should not be here!");
             }
         } else {
-            var function = convertExpression(functionExpr);
-            return new InvokeFunction(function, parameters);
+            return convertExpression(functionExpr);
         }
     }
 
@@ -472,18 +671,19 @@ public class Converter {
     }
 
     private ChiNode convertIs(Is is) {
-        return IsNodeGen.create(convertExpression(is.getValue()), is.getTypeOrVariant());
+        return IsNodeGen.create(convertExpression(is.getValue()), language.getVariantTag(is.getTypeOrVariant()));
     }
 
     private ChiNode convertEffectDefinition(EffectDefinition definition) {
+        var fnType = (FnType) definition.getType();
         RootNode rootNode = withNewFrameDescriptor(
                 () -> {
-                    ChiNode[] body = {new InvokeEffect(definition.getModuleName(), definition.getPackageName(), definition.getName())};
+                    ChiNode[] body = {new InvokeEffect(definition.getModuleName(), definition.getPackageName(), definition.getName(),
+                            fnType.getParamTypes().size())};
                     var block = new BlockExpr(body);
                     return new FnRootNode(language, currentFdBuilder.build(), block, definition.getName());
                 });
         var callTarget = rootNode.getCallTarget();
-        var fnType = (FnType) definition.getType();
         return new DefinePackageFunction(
                 currentModule, currentPackage,
                 new ChiFunction(callTarget),
@@ -492,40 +692,50 @@ public class Converter {
     }
 
     private ChiNode convertHandle(Handle handle) {
+        var enclosingHandlers = readEffectHandlers();
+        var handlersSlot = currentFdBuilder.addSlot(FrameSlotKind.Object, "[effect handlers]", null);
+        var previousEffectHandlersSlot = currentEffectHandlersSlot;
+        currentEffectHandlersSlot = handlersSlot;
         var bodyInstructionNodes = handle.getBody().getBody().stream()
                                          .map(this::convertExpression).toArray(ChiNode[]::new);
+        currentEffectHandlersSlot = previousEffectHandlersSlot;
         var bodyNode = new BlockExpr(bodyInstructionNodes);
-        var handlers = handle.getCases().stream()
-                             .map(it -> {
-                                 var callTarget = withNewFrameDescriptor(() -> {
-
-                                     AtomicInteger argIndex = new AtomicInteger();
-                                     it.getArgumentNames().forEach(argName -> it.getScope().updateSlot(argName, argIndex.getAndIncrement()));
-
-                                     var resumeSlot = currentFdBuilder.addSlot(FrameSlotKind.Illegal, "resume", null);
-                                     it.getScope().updateSlot("resume", resumeSlot);
-
-                                     var resumeFunc = ResumeNode.createResumeFunction(language);
-                                     var bodyNode2 = new BlockExpr(new ChiNode[]{
-                                             WriteLocalVariableNodeGen.create(
-                                                     new LambdaValue(resumeFunc.getCallTarget()),
-                                                     resumeSlot,
-                                                     "resume"
-                                             ),
-                                             convertExpression(it.getBody())
-                                     });
-                                     return createFunctionFromNodeWithoutNewFrameDescriptor(bodyNode2, it.getEffectName());
-                                 });
-                                 return new Pair<>(
-                                         new EffectHandlers.Qualifier(it.getModuleName(), it.getPackageName(), it.getEffectName()),
-                                         new ChiFunction(callTarget));
-                             })
-                             .collect(Collectors.toMap(Pair::first, Pair::second));
-
-        return new HandleEffectNode(bodyNode, handlers);
-    }
+        var cases = handle.getCases();
+        var qualifiers = new EffectHandlers.Qualifier[cases.size()];
+        var handlerFunctions = new LambdaValue[cases.size()];
+        var capturesValues = false;
+        for (int i = 0; i < cases.size(); i++) {
+            var handleCase = cases.get(i);
+            var captures = captureAnalysis.getCaptures(handleCase);
+            var callTarget = withNewFrameDescriptor(() -> withFunctionScope(handleCase.getScope(), captures, () -> {
+
+                AtomicInteger argIndex = new AtomicInteger();
+                handleCase.getArgumentNames().forEach(argName -> handleCase.getScope().updateSlot(argName, argIndex.getAndIncrement()));
+
+                if (tailCallAnalysis.analyzeHandler(handleCase)) {
+                    // resume calls are converted to just their values
+                    return createFunctionFromNodeWithoutNewFrameDescriptor(convertExpression(handleCase.getBody()), handleCase.getEffectName());
+                }
+
+                var resumeSlot = currentFdBuilder.addSlot(FrameSlotKind.Illegal, "resume", null);
+                handleCase.getScope().updateSlot("resume", resumeSlot);
+
+                var resumeFunc = ResumeNode.createResumeFunction(language);
+                var bodyNode2 = new BlockExpr(new ChiNode[]{
+                        WriteLocalVariableNodeGen.create(
+                                new LambdaValue(resumeFunc.getCallTarget()),
+                                resumeSlot,
+                                "resume"
+                        ),
+                        new AbortEffectNode(convertExpression(handleCase.getBody()))
+                });
+                return createFunctionFromNodeWithoutNewFrameDescriptor(bodyNode2, handleCase.getEffectName());
+            }));
+            qualifiers[i] = new EffectHandlers.Qualifier(handleCase.getModuleName(), handleCase.getPackageName(), handleCase.getEffectName());
+            handlerFunctions[i] = new LambdaValue(callTarget, captures.stream().map(this::captureVariable).toArray(ChiNode[]::new));
+            capturesValues |= !captures.isEmpty();
+        }
 
-    record Pair<T, U>(T first, U second) {
+        return new HandleEffectNode(bodyNode, enclosingHandlers, handlersSlot, qualifiers, handlerFunctions, capturesValues);
     }
-
 }
@@ -3,26 +3,55 @@ package gh.marad.chi.truffle;
 import com.oracle.truffle.api.CompilerDirectives;
 import gh.marad.chi.truffle.runtime.ChiFunction;
 
-import java.util.Map;
-
+/**
+ * Effect handlers installed by a {@code handle} block, linked to handlers that were active when the block was entered.
+ * Instances are immutable and passed along with call arguments, so each call stack sees its own handlers.
+ */
 public class EffectHandlers {
     private final EffectHandlers parent;
-    private final Map<Qualifier, ChiFunction> handlers;
+    private final Qualifier[] qualifiers;
+    private final ChiFunction[] handlers;
 
     public record Qualifier(String module, String pkg, String name) {
     }
 
-    public EffectHandlers(EffectHandlers parent, Map<Qualifier, ChiFunction> handlers) {
+    /**
+     * @param qualifiers effects handled by the block
+     * @param handlers   handler functions, in the same order as the qualifiers
+     */
+    public EffectHandlers(EffectHandlers parent, Qualifier[] qualifiers, ChiFunction[] handlers) {
         this.parent = parent;
+        this.qualifiers = qualifiers;
         this.handlers = handlers;
     }
 
+    public EffectHandlers getParent() {
+        return parent;
+    }
+
+    /**
+     * Handlers of the innermost {@code handle} block a thread is in. Calls that come from outside of Chi - from
+     * the host, through interop or from a new program - don't get handlers with their arguments, so they use these.
+     */
+    public static final class Current {
+        private EffectHandlers handlers;
+
+        public EffectHandlers get() {
+            return handlers;
+        }
+
+        public void set(EffectHandlers handlers) {
+            this.handlers = handlers;
+        }
+    }
+
     @CompilerDirectives.TruffleBoundary
     public ChiFunction findEffectHandlerOrNull(Qualifier qualifier) {
-        var result = handlers.get(qualifier);
-        if (result == null && parent != null) {
-            return parent.findEffectHandlerOrNull(qualifier);
+        for (int i = 0; i < qualifiers.length; i++) {
+            if (qualifiers[i].equals(qualifier)) {
+                return handlers[i];
+            }
         }
-        return result;
+        return parent != null ? parent.findEffectHandlerOrNull(qualifier) : null;
     }
 }
@@ -0,0 +1,136 @@
+package gh.marad.chi.truffle;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import gh.marad.chi.core.CompilationDefaults;
+import gh.marad.chi.truffle.runtime.Unit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Loads file sources and recompiles them only when needed.
+ * <p>
+ * Every loaded source is remembered along with the hash of its code, the package it defines
+ * and the packages it imports. Loading a source that did not change since it was last loaded does nothing.
+ * Changed source is compiled and executed again, which redefines its functions and invalidates
+ * call sites that cached previous definitions. Then all loaded sources that import any of the
+ * redefined packages (or define functions in the same package) are recompiled and executed too,
+ * because they were type checked against previous definitions.
+ * <p>
+ * Sources that fail to run are not remembered, so loading them again runs them even if they did not change.
+ * When a dependent fails, the dependents that were not recompiled yet are forgotten too.
+ */
+public class IncrementalCompiler {
+    private final ChiLanguage language;
+    // kept in load order, so dependents are recompiled after the packages they import
+    private final LinkedHashMap<String, LoadedSource> sources = new LinkedHashMap<>();
+
+    public IncrementalCompiler(ChiLanguage language) {
+        this.language = language;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object load(String path, String code) {
+        var hash = hash(code);
+        var previous = sources.get(path);
+        if (previous != null && Arrays.equals(previous.hash(), hash)) {
+            return Unit.instance;
+        }
+
+        var result = recompile(path, code, hash);
+        var redefined = new HashSet<PackageId>();
+        redefined.add(sources.get(path).definedPackage());
+        if (previous != null) {
+            redefined.add(previous.definedPackage());
+        }
+        recompileDependents(path, redefined);
+        return result;
+    }
+
+    private void recompileDependents(String changedPath, Set<PackageId> redefined) {
+        var recompiled = new HashSet<String>();
+        recompiled.add(changedPath);
+        var foundDependent = true;
+        while (foundDependent) {
+            foundDependent = false;
+            for (var entry : List.copyOf(sources.entrySet())) {
+                var path = entry.getKey();
+                var loaded = entry.getValue();
+                if (!recompiled.contains(path) && loaded.dependsOnAny(redefined)) {
+                    recompiled.add(path);
+                    try {
+                        recompile(path, loaded.code(), loaded.hash());
+                    } catch (RuntimeException ex) {
+                        redefined.add(loaded.definedPackage());
+                        forgetDependents(recompiled, redefined);
+                        sources.remove(path);
+                        throw ex;
+                    }
+                    redefined.add(loaded.definedPackage());
+                    foundDependent = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets sources that should have been recompiled, so loading them again compiles them
+     * even if they did not change.
+     */
+    private void forgetDependents(Set<String> recompiled, Set<PackageId> redefined) {
+        var foundDependent = true;
+        while (foundDependent) {
+            foundDependent = false;
+            for (var entry : List.copyOf(sources.entrySet())) {
+                if (!recompiled.contains(entry.getKey()) && entry.getValue().dependsOnAny(redefined)) {
+                    sources.remove(entry.getKey());
+                    redefined.add(entry.getValue().definedPackage());
+                    foundDependent = true;
+                }
+            }
+        }
+    }
+
+    // source is remembered only once it ran successfully, so a failed one is compiled again on the next load
+    private Object recompile(String path, String code, byte[] hash) {
+        var compiled = language.compileProgram(code, path);
+        var result = compiled.callTarget().call();
+        sources.put(path, new LoadedSource(code, hash, definedPackage(compiled), importedPackages(compiled)));
+        return result;
+    }
+
+    private static PackageId definedPackage(ChiLanguage.CompiledProgram compiled) {
+        var pkg = compiled.packageDefinition();
+        if (pkg != null) {
+            return new PackageId(pkg.getModuleName(), pkg.getPackageName());
+        }
+        return new PackageId(CompilationDefaults.INSTANCE.getDefaultModule(), CompilationDefaults.INSTANCE.getDefaultPacakge());
+    }
+
+    private static Set<PackageId> importedPackages(ChiLanguage.CompiledProgram compiled) {
+        var imports = new HashSet<PackageId>();
+        for (var imp : compiled.imports()) {
+            imports.add(new PackageId(imp.getModuleName(), imp.getPackageName()));
+        }
+        return imports;
+    }
+
+    private static byte[] hash(String code) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(code.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record PackageId(String moduleName, String packageName) {
+    }
+
+    private record LoadedSource(String code, byte[] hash, PackageId definedPackage, Set<PackageId> imports) {
+        boolean dependsOnAny(Set<PackageId> packages) {
+            return packages.contains(definedPackage) || !Collections.disjoint(imports, packages);
+        }
+    }
+}
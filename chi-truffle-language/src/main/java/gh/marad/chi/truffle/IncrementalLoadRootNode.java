@@ -0,0 +1,35 @@
+package gh.marad.chi.truffle;
+
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Root node for file sources loaded with incremental compilation enabled. Compilation
+ * is deferred to {@link IncrementalCompiler} which decides whether the source has to be recompiled.
+ */
+public class IncrementalLoadRootNode extends RootNode {
+    private final String path;
+    private final String code;
+
+    protected IncrementalLoadRootNode(TruffleLanguage<?> language, String path, String code) {
+        super(language);
+        this.path = path;
+        this.code = code;
+    }
+
+    @Override
+    public String getName() {
+        return "[load " + path + "]";
+    }
+
+    @Override
+    public Object execute(VirtualFrame frame) {
+        return ChiContext.get(this).incrementalCompiler.load(path, code);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
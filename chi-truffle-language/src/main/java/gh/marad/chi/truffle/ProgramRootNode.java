@@ -31,8 +31,9 @@ public class ProgramRootNode extends RootNode {
     @Override
     public Object execute(VirtualFrame frame) {
         var globalScope = ChiContext.get(this).globalScope;
+        var effectHandlers = ChiLanguage.get(this).getCurrentEffectHandlers().get();
         var mainFrame = Truffle.getRuntime().createVirtualFrame(
-                ChiArgs.create(globalScope), frameDescriptor);
+                ChiArgs.create(globalScope, effectHandlers, new Object[0]), frameDescriptor);
         try {
             return body.executeGeneric(mainFrame);
         } catch (Exception ex) {
@@ -0,0 +1,121 @@
+package gh.marad.chi.truffle;
+
+import gh.marad.chi.core.*;
+import gh.marad.chi.core.namespace.ScopeType;
+import kotlin.Unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Finds calls in tail position that call the function they are in - either a package function calling itself
+ * by name, or a lambda calling the variable it was stored in.
+ * <p>
+ * This is only a guess made from names. It's checked again at runtime, because the variable
+ * or package function may hold a different function by the time the call is made.
+ * <p>
+ * Also finds effect handlers that are tail-resumptive - ones that use {@code resume} only
+ * as their final expression. Such handler can simply return the resumed value.
+ */
+public class TailCallAnalysis {
+    // expressions are data classes, so they have to be compared by identity
+    private final Set<FnCall> selfTailCalls = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<FnCall> tailResumes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public void analyze(Expression root) {
+        UtilsKt.forEachAst(root, expr -> {
+            if (expr instanceof NameDeclaration declaration && declaration.getValue() instanceof Fn fn) {
+                var scope = declaration.getEnclosingScope();
+                if (scope.getType() == ScopeType.Package) {
+                    findSelfTailCalls(fn, access -> isPackageSymbol(access) && access.getName().equals(declaration.getName()));
+                } else {
+                    var variable = new CaptureAnalysis.Variable(scope, declaration.getName());
+                    findSelfTailCalls(fn, access -> refersTo(access, variable));
+                }
+            } else if (expr instanceof Assignment assignment && assignment.getValue() instanceof Fn fn) {
+                var variable = CaptureAnalysis.resolve(assignment.getDefinitionScope(), assignment.getName());
+                if (variable != null) {
+                    findSelfTailCalls(fn, access -> refersTo(access, variable));
+                }
+            }
+            return Unit.INSTANCE;
+        });
+    }
+
+    public boolean isSelfTailCall(FnCall fnCall) {
+        return selfTailCalls.contains(fnCall);
+    }
+
+    /**
+     * Checks if every tail position of the handler body is a {@code resume} call and {@code resume}
+     * is not used anywhere else. Resume calls of such handler are remembered for {@link #isTailResume}.
+     */
+    public boolean analyzeHandler(HandleCase handleCase) {
+        var resume = new CaptureAnalysis.Variable(handleCase.getScope(), "resume");
+        var tailExpressions = new ArrayList<Expression>();
+        forEachInTailPosition(handleCase.getBody(), tailExpressions::add);
+        var resumeUses = new ArrayList<VariableAccess>();
+        UtilsKt.forEachAst(handleCase.getBody(), expr -> {
+            if (expr instanceof VariableAccess access && refersTo(access, resume)) {
+                resumeUses.add(access);
+            }
+            return Unit.INSTANCE;
+        });
+
+        var tailResumptive = resumeUses.size() == tailExpressions.size()
+                                     && tailExpressions.stream().allMatch(expr -> isCallTo(expr, resume));
+        if (tailResumptive) {
+            tailExpressions.forEach(expr -> tailResumes.add((FnCall) expr));
+        }
+        return tailResumptive;
+    }
+
+    public boolean isTailResume(FnCall fnCall) {
+        return tailResumes.contains(fnCall);
+    }
+
+    private void findSelfTailCalls(Fn fn, Predicate<VariableAccess> isSelf) {
+        // functions returning unit get unit value appended to the body, so nothing else is in tail position
+        if (fn.getReturnType() != Type.getUnit()) {
+            forEachInTailPosition(fn.getBody(), expr -> {
+                if (expr instanceof FnCall fnCall
+                            && fnCall.getFunction() instanceof VariableAccess access
+                            && isSelf.test(access)) {
+                    selfTailCalls.add(fnCall);
+                }
+            });
+        }
+    }
+
+    private static boolean isCallTo(Expression expr, CaptureAnalysis.Variable variable) {
+        return expr instanceof FnCall fnCall
+                       && fnCall.getFunction() instanceof VariableAccess access
+                       && refersTo(access, variable);
+    }
+
+    private static boolean refersTo(VariableAccess access, CaptureAnalysis.Variable variable) {
+        return variable.equals(CaptureAnalysis.resolve(access.getDefinitionScope(), access.getName()));
+    }
+
+    private static void forEachInTailPosition(Expression expr, Consumer<Expression> consumer) {
+        if (expr instanceof Block block && !block.getBody().isEmpty()) {
+            forEachInTailPosition(block.getBody().get(block.getBody().size() - 1), consumer);
+        } else if (expr instanceof Group group) {
+            forEachInTailPosition(group.getValue(), consumer);
+        } else if (expr instanceof IfElse ifElse && ifElse.getElseBranch() != null) {
+            forEachInTailPosition(ifElse.getThenBranch(), consumer);
+            forEachInTailPosition(ifElse.getElseBranch(), consumer);
+        } else {
+            consumer.accept(expr);
+        }
+    }
+
+    private static boolean isPackageSymbol(VariableAccess access) {
+        var symbol = access.getDefinitionScope().getSymbol(access.getName(), true);
+        return symbol != null && symbol.getScopeType() == ScopeType.Package;
+    }
+}
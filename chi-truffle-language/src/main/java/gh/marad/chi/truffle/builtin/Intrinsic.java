@@ -0,0 +1,16 @@
+package gh.marad.chi.truffle.builtin;
+
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+
+/**
+ * Logic of a builtin function that takes its arguments from child nodes instead of the frame,
+ * so it can be placed directly at the call site. The builtin itself runs the same node over
+ * {@link gh.marad.chi.truffle.nodes.expr.variables.ReadLocalArgument} children.
+ */
+public abstract class Intrinsic extends ExpressionNode {
+    /**
+     * Returns argument nodes in the order of builtin parameters.
+     */
+    public abstract ChiNode[] getArguments();
+}
@@ -0,0 +1,44 @@
+package gh.marad.chi.truffle.builtin;
+
+import gh.marad.chi.truffle.builtin.collections.ArraySizeIntrinsicNodeGen;
+import gh.marad.chi.truffle.builtin.string.*;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builtins that can be inlined at call sites. Calls to these functions are converted to
+ * {@link gh.marad.chi.truffle.nodes.function.IntrinsicCall}, which checks that the builtin was not redefined.
+ */
+public final class Intrinsics {
+    private record Key(String moduleName, String packageName, String name, int arity) {
+    }
+
+    private static final Map<Key, Function<List<ChiNode>, Intrinsic>> factories = Map.of(
+            new Key("std", "collections.array", "size", 1),
+            args -> ArraySizeIntrinsicNodeGen.create(args.get(0)),
+            new Key("std", "string", "length", 1),
+            args -> StringLengthIntrinsicNodeGen.create(args.get(0)),
+            new Key("std", "string", "codePointAt", 2),
+            args -> StringCodePointAtIntrinsicNodeGen.create(args.get(0), args.get(1)),
+            new Key("std", "string", "substring", 3),
+            args -> SubstringIntrinsicNodeGen.create(args.get(0), args.get(1), args.get(2)),
+            new Key("std", "string", "hash", 1),
+            args -> StringHashIntrinsicNodeGen.create(args.get(0)),
+            new Key("std", "string", "indexOfCodePoint", 4),
+            args -> IndexOfCodePointIntrinsicNodeGen.create(args.get(0), args.get(1), args.get(2), args.get(3)),
+            new Key("std", "string", "indexOf", 4),
+            args -> IndexOfStringIntrinsicNodeGen.create(args.get(0), args.get(1), args.get(2), args.get(3))
+    );
+
+    private Intrinsics() {
+    }
+
+    public static @Nullable Intrinsic createOrNull(String moduleName, String packageName, String name, List<ChiNode> arguments) {
+        var factory = factories.get(new Key(moduleName, packageName, name, arguments.size()));
+        return factory != null ? factory.apply(arguments) : null;
+    }
+}
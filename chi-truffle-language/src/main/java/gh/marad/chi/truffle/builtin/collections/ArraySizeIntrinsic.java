@@ -0,0 +1,29 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.library.CachedLibrary;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.runtime.TODO;
+
+@NodeChild(value = "array", type = ChiNode.class)
+public abstract class ArraySizeIntrinsic extends Intrinsic {
+    protected abstract ChiNode getArray();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getArray()};
+    }
+
+    @Specialization(limit = "5")
+    public long doSize(Object array, @CachedLibrary("array") InteropLibrary library) {
+        try {
+            return library.getArraySize(array);
+        } catch (UnsupportedMessageException e) {
+            throw new TODO(e);
+        }
+    }
+}
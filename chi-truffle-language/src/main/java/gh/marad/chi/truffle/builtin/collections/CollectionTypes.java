@@ -0,0 +1,44 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import gh.marad.chi.core.Type;
+import gh.marad.chi.core.VariantType;
+import gh.marad.chi.core.namespace.GlobalCompilationNamespace;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Types of the collections implemented by the runtime. They are defined in their packages,
+ * so they can be imported by name and their functions can be called as methods.
+ */
+public class CollectionTypes {
+    public static final VariantType VECTOR = nativeType("collections.vector", "Vector", "T");
+    public static final VariantType MAP = nativeType("collections.map", "HashMap", "K", "V");
+    public static final VariantType SET = nativeType("collections.set", "Set", "T");
+
+    public static Type vector(Type elementType) {
+        return VECTOR.applyTypeParameters(List.of(elementType));
+    }
+
+    public static Type map(Type keyType, Type valueType) {
+        return MAP.applyTypeParameters(List.of(keyType, valueType));
+    }
+
+    public static Type set(Type elementType) {
+        return SET.applyTypeParameters(List.of(elementType));
+    }
+
+    public static void define(GlobalCompilationNamespace namespace) {
+        for (var type : List.of(VECTOR, MAP, SET)) {
+            namespace.getOrCreatePackage(type.getModuleName(), type.getPackageName())
+                     .getTypeRegistry()
+                     .defineNativeType(type);
+        }
+    }
+
+    private static VariantType nativeType(String packageName, String name, String... typeParameters) {
+        var parameters = Arrays.stream(typeParameters).map(Type::typeParameter).toList();
+        return new VariantType("std", packageName, name, parameters, Map.of(), null);
+    }
+}
@@ -0,0 +1,42 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.nodes.objects.StructuralHashNode;
+import gh.marad.chi.truffle.runtime.ChiHashMap;
+
+import static gh.marad.chi.core.Type.typeParameter;
+
+public abstract class CollectionsMapBuiltin extends Builtin {
+    @Child
+    private StructuralHashNode hashNode = StructuralHashNode.create();
+
+    @Override
+    public String getModuleName() {
+        return "std";
+    }
+
+    @Override
+    public String getPackageName() {
+        return "collections.map";
+    }
+
+    protected ChiHashMap getMap(VirtualFrame frame, int argumentIndex) {
+        if (ChiArgs.getObject(frame, argumentIndex) instanceof ChiHashMap map) {
+            return map;
+        }
+        CompilerDirectives.transferToInterpreter();
+        throw new RuntimeException("Expected a map");
+    }
+
+    protected int hash(Object key) {
+        return hashNode.execute(key);
+    }
+
+    protected static Type mapType() {
+        return CollectionTypes.map(typeParameter("K"), typeParameter("V"));
+    }
+}
@@ -0,0 +1,42 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.nodes.objects.StructuralHashNode;
+import gh.marad.chi.truffle.runtime.ChiHashSet;
+
+import static gh.marad.chi.core.Type.typeParameter;
+
+public abstract class CollectionsSetBuiltin extends Builtin {
+    @Child
+    private StructuralHashNode hashNode = StructuralHashNode.create();
+
+    @Override
+    public String getModuleName() {
+        return "std";
+    }
+
+    @Override
+    public String getPackageName() {
+        return "collections.set";
+    }
+
+    protected ChiHashSet getSet(VirtualFrame frame, int argumentIndex) {
+        if (ChiArgs.getObject(frame, argumentIndex) instanceof ChiHashSet set) {
+            return set;
+        }
+        CompilerDirectives.transferToInterpreter();
+        throw new RuntimeException("Expected a set");
+    }
+
+    protected int hash(Object element) {
+        return hashNode.execute(element);
+    }
+
+    protected static Type setType() {
+        return CollectionTypes.set(typeParameter("T"));
+    }
+}
@@ -0,0 +1,27 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.runtime.ChiVector;
+
+public abstract class CollectionsVectorBuiltin extends Builtin {
+    @Override
+    public String getModuleName() {
+        return "std";
+    }
+
+    @Override
+    public String getPackageName() {
+        return "collections.vector";
+    }
+
+    protected ChiVector getVector(VirtualFrame frame, int argumentIndex) {
+        if (ChiArgs.getObject(frame, argumentIndex) instanceof ChiVector vector) {
+            return vector;
+        }
+        CompilerDirectives.transferToInterpreter();
+        throw new RuntimeException("Expected a vector");
+    }
+}
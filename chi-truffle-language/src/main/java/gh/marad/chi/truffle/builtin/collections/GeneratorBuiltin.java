@@ -0,0 +1,62 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.ChiContext;
+import gh.marad.chi.truffle.ChiLanguage;
+import gh.marad.chi.truffle.nodes.FnRootNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+import gh.marad.chi.truffle.runtime.ChiGenerator;
+import gh.marad.chi.truffle.runtime.GeneratorProducer;
+import gh.marad.chi.truffle.runtime.Unit;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+/**
+ * Creates generator from a producer function. The producer is started when the first value is requested,
+ * and it's suspended on each call to the {@code emit} function it gets.
+ */
+public class GeneratorBuiltin extends CollectionsGeneratorBuiltin {
+    private final RootCallTarget emitTarget;
+
+    public GeneratorBuiltin(ChiLanguage language) {
+        var rootNode = new FnRootNode(language, FrameDescriptor.newBuilder().build(), new EmitNode(), "emit");
+        this.emitTarget = rootNode.getCallTarget();
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var producer = (ChiFunction) ChiArgs.getObject(frame, 0);
+        var context = ChiContext.get(this);
+        var values = new GeneratorProducer(context.getEnv(), producer, ChiArgs.getEffectHandlers(frame), emitTarget);
+        return new ChiGenerator(context, values, values);
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                getAny(),
+                fn(getUnit(), fn(getUnit(), typeParameter("T"))));
+    }
+
+    @Override
+    public String name() {
+        return "generator";
+    }
+
+    private static class EmitNode extends ExpressionNode {
+        @Override
+        public Object executeGeneric(VirtualFrame frame) {
+            var producer = (GeneratorProducer) ChiArgs.getParentScope(frame).get(0);
+            producer.emit(ChiArgs.getObject(frame, 0));
+            return Unit.instance;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+import gh.marad.chi.truffle.runtime.ChiHashMap;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class MapFilterBuiltin extends CollectionsMapBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var function = ChiArgs.getChiFunction(frame, 1);
+        var entries = getMap(frame, 0).entries();
+        var result = ChiHashMap.EMPTY.asTransient();
+        for (int i = 0; i < entries.length; i += 2) {
+            var key = entries[i];
+            var value = entries[i + 1];
+            if ((boolean) callback.call(frame, function, key, value)) {
+                result.put(key, hash(key), value);
+            }
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V")),
+                mapType(),
+                mapType(),
+                fn(getBool(), typeParameter("K"), typeParameter("V")));
+    }
+
+    @Override
+    public String name() {
+        return "filter";
+    }
+}
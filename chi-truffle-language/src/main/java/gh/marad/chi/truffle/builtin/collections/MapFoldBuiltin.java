@@ -0,0 +1,41 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class MapFoldBuiltin extends CollectionsMapBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var accumulator = ChiArgs.getObject(frame, 1);
+        var function = ChiArgs.getChiFunction(frame, 2);
+        var entries = getMap(frame, 0).entries();
+        for (int i = 0; i < entries.length; i += 2) {
+            accumulator = callback.call(frame, function, accumulator, entries[i], entries[i + 1]);
+        }
+        return accumulator;
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V"), typeParameter("A")),
+                typeParameter("A"),
+                mapType(),
+                typeParameter("A"),
+                fn(typeParameter("A"), typeParameter("A"), typeParameter("K"), typeParameter("V")));
+    }
+
+    @Override
+    public String name() {
+        return "fold";
+    }
+}
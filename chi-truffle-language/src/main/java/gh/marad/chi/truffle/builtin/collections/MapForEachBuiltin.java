@@ -0,0 +1,40 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+import gh.marad.chi.truffle.runtime.Unit;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class MapForEachBuiltin extends CollectionsMapBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var function = ChiArgs.getChiFunction(frame, 1);
+        var entries = getMap(frame, 0).entries();
+        for (int i = 0; i < entries.length; i += 2) {
+            callback.call(frame, function, entries[i], entries[i + 1]);
+        }
+        return Unit.instance;
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V")),
+                getUnit(),
+                mapType(),
+                fn(getUnit(), typeParameter("K"), typeParameter("V")));
+    }
+
+    @Override
+    public String name() {
+        return "forEach";
+    }
+}
@@ -0,0 +1,54 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.ChiHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+/**
+ * Creates map of given keys and values, passed alternately. There is a separate overload
+ * for each supported number of entries.
+ */
+public class MapOfBuiltin extends CollectionsMapBuiltin {
+    private final int entryCount;
+
+    public MapOfBuiltin(int entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    @Override
+    @ExplodeLoop
+    public Object executeGeneric(VirtualFrame frame) {
+        var result = ChiHashMap.EMPTY.asTransient();
+        for (int i = 0; i < entryCount; i++) {
+            var key = ChiArgs.getObject(frame, 2 * i);
+            result.put(key, hash(key), ChiArgs.getObject(frame, 2 * i + 1));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        var paramTypes = new ArrayList<Type>();
+        for (int i = 0; i < entryCount; i++) {
+            paramTypes.add(typeParameter("K"));
+            paramTypes.add(typeParameter("V"));
+        }
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V")),
+                mapType(),
+                paramTypes.toArray(new Type[0]));
+    }
+
+    @Override
+    public String name() {
+        return "of";
+    }
+}
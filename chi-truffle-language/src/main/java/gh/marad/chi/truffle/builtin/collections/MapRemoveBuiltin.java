@@ -0,0 +1,31 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class MapRemoveBuiltin extends CollectionsMapBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var key = ChiArgs.getObject(frame, 1);
+        return getMap(frame, 0).remove(key, hash(key));
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V")),
+                mapType(),
+                mapType(),
+                typeParameter("K"));
+    }
+
+    @Override
+    public String name() {
+        return "remove";
+    }
+}
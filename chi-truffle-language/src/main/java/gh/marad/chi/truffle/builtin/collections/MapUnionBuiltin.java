@@ -0,0 +1,38 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+/**
+ * Entries of both maps. Values of the second map win for keys present in both.
+ */
+public class MapUnionBuiltin extends CollectionsMapBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var entries = getMap(frame, 1).entries();
+        var result = getMap(frame, 0).asTransient();
+        for (int i = 0; i < entries.length; i += 2) {
+            var key = entries[i];
+            result.put(key, hash(key), entries[i + 1]);
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("K"), typeParameter("V")),
+                mapType(),
+                mapType(),
+                mapType());
+    }
+
+    @Override
+    public String name() {
+        return "union";
+    }
+}
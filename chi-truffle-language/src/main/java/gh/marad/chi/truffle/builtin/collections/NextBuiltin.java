@@ -0,0 +1,23 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+
+import static gh.marad.chi.core.Type.*;
+
+public class NextBuiltin extends CollectionsGeneratorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return getGenerator(frame, 0).next();
+    }
+
+    @Override
+    public FnType type() {
+        return fn(getAny(), getAny());
+    }
+
+    @Override
+    public String name() {
+        return "next";
+    }
+}
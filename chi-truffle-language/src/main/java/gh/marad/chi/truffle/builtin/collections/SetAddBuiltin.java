@@ -0,0 +1,31 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetAddBuiltin extends CollectionsSetBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var element = ChiArgs.getObject(frame, 1);
+        return getSet(frame, 0).add(element, hash(element));
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                setType(),
+                setType(),
+                typeParameter("T"));
+    }
+
+    @Override
+    public String name() {
+        return "add";
+    }
+}
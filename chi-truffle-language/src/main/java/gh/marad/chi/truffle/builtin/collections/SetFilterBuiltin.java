@@ -0,0 +1,42 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+import gh.marad.chi.truffle.runtime.ChiHashSet;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetFilterBuiltin extends CollectionsSetBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var function = ChiArgs.getChiFunction(frame, 1);
+        var result = ChiHashSet.EMPTY.asTransient();
+        for (var element : getSet(frame, 0).toArray()) {
+            if ((boolean) callback.call(frame, function, element)) {
+                result.add(element, hash(element));
+            }
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                setType(),
+                setType(),
+                fn(getBool(), typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "filter";
+    }
+}
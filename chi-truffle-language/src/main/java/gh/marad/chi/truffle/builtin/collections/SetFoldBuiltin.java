@@ -0,0 +1,40 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetFoldBuiltin extends CollectionsSetBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var accumulator = ChiArgs.getObject(frame, 1);
+        var function = ChiArgs.getChiFunction(frame, 2);
+        for (var element : getSet(frame, 0).toArray()) {
+            accumulator = callback.call(frame, function, accumulator, element);
+        }
+        return accumulator;
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T"), typeParameter("A")),
+                typeParameter("A"),
+                setType(),
+                typeParameter("A"),
+                fn(typeParameter("A"), typeParameter("A"), typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "fold";
+    }
+}
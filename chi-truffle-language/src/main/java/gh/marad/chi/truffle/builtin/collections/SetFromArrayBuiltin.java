@@ -0,0 +1,36 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.ChiHashSet;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetFromArrayBuiltin extends CollectionsSetBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var array = ChiArgs.getChiArray(frame, 0);
+        var result = ChiHashSet.EMPTY.asTransient();
+        for (int i = 0; i < array.size(); i++) {
+            var element = array.read(i);
+            result.add(element, hash(element));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                setType(),
+                array(typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "fromArray";
+    }
+}
@@ -0,0 +1,41 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+import gh.marad.chi.truffle.runtime.ChiHashSet;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetMapBuiltin extends CollectionsSetBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var function = ChiArgs.getChiFunction(frame, 1);
+        var result = ChiHashSet.EMPTY.asTransient();
+        for (var element : getSet(frame, 0).toArray()) {
+            var mapped = callback.call(frame, function, element);
+            result.add(mapped, hash(mapped));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T"), typeParameter("R")),
+                CollectionTypes.set(typeParameter("R")),
+                setType(),
+                fn(typeParameter("R"), typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "map";
+    }
+}
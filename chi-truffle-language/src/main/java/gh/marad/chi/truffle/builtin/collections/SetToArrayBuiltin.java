@@ -0,0 +1,29 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.runtime.ChiArray;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetToArrayBuiltin extends CollectionsSetBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return new ChiArray(getSet(frame, 0).toArray());
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                array(typeParameter("T")),
+                setType());
+    }
+
+    @Override
+    public String name() {
+        return "toArray";
+    }
+}
@@ -0,0 +1,40 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class SetUnionBuiltin extends CollectionsSetBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var set = getSet(frame, 0);
+        var other = getSet(frame, 1);
+        if (set.size() < other.size()) {
+            var tmp = set;
+            set = other;
+            other = tmp;
+        }
+        var result = set.asTransient();
+        for (var element : other.toArray()) {
+            result.add(element, hash(element));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                setType(),
+                setType(),
+                setType());
+    }
+
+    @Override
+    public String name() {
+        return "union";
+    }
+}
@@ -1,11 +1,10 @@
 package gh.marad.chi.truffle.builtin.collections;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.interop.InteropLibrary;
-import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import gh.marad.chi.core.FnType;
-import gh.marad.chi.truffle.ChiArgs;
-import gh.marad.chi.truffle.runtime.TODO;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.expr.variables.ReadLocalArgument;
 
 import java.util.List;
 
@@ -13,20 +12,16 @@ import static gh.marad.chi.core.Type.*;
 
 public class SizeBuiltin extends CollectionsArrayBuiltin {
     @Child
-    private InteropLibrary library;
+    private Intrinsic body = ArraySizeIntrinsicNodeGen.create(new ReadLocalArgument(0));
 
-    public SizeBuiltin() {
-        this.library = InteropLibrary.getFactory().createDispatched(5);
+    @Override
+    public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+        return body.executeLong(frame);
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        var object = ChiArgs.getObject(frame, 0);
-        try {
-            return library.getArraySize(object);
-        } catch (UnsupportedMessageException e) {
-            throw new TODO(e);
-        }
+        return body.executeGeneric(frame);
     }
 
     @Override
@@ -0,0 +1,30 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorAddBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return getVector(frame, 0).add(ChiArgs.getObject(frame, 1));
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                typeParameter("T"));
+    }
+
+    @Override
+    public String name() {
+        return "add";
+    }
+}
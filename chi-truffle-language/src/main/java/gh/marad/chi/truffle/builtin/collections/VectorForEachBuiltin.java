@@ -0,0 +1,39 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.function.CallbackNode;
+import gh.marad.chi.truffle.runtime.Unit;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorForEachBuiltin extends CollectionsVectorBuiltin {
+    @Child
+    private CallbackNode callback = CallbackNode.create();
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var function = ChiArgs.getChiFunction(frame, 1);
+        for (var element : getVector(frame, 0).toArray()) {
+            callback.call(frame, function, element);
+        }
+        return Unit.instance;
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                getUnit(),
+                CollectionTypes.vector(typeParameter("T")),
+                fn(getUnit(), typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "forEach";
+    }
+}
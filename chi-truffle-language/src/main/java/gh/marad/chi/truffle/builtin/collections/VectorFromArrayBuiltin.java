@@ -0,0 +1,35 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.ChiVector;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorFromArrayBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var array = ChiArgs.getChiArray(frame, 0);
+        var result = ChiVector.EMPTY.asTransient();
+        for (int i = 0; i < array.size(); i++) {
+            result.add(array.read(i));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                array(typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "fromArray";
+    }
+}
@@ -0,0 +1,36 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorGetOrElseBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var vector = getVector(frame, 0);
+        var index = ChiArgs.getLong(frame, 1);
+        if (0 <= index && index < vector.size()) {
+            return vector.get((int) index);
+        }
+        return ChiArgs.getObject(frame, 2);
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                typeParameter("T"),
+                CollectionTypes.vector(typeParameter("T")),
+                getIntType(),
+                typeParameter("T"));
+    }
+
+    @Override
+    public String name() {
+        return "getOrElse";
+    }
+}
@@ -0,0 +1,34 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorLastOrElseBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var vector = getVector(frame, 0);
+        if (vector.size() > 0) {
+            return vector.get(vector.size() - 1);
+        }
+        return ChiArgs.getObject(frame, 1);
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                typeParameter("T"),
+                CollectionTypes.vector(typeParameter("T")),
+                typeParameter("T"));
+    }
+
+    @Override
+    public String name() {
+        return "lastOrElse";
+    }
+}
@@ -0,0 +1,47 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.ChiVector;
+
+import java.util.Collections;
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+/**
+ * Creates vector of given elements. There is a separate overload for each supported number of elements.
+ */
+public class VectorOfBuiltin extends CollectionsVectorBuiltin {
+    private final int elementCount;
+
+    public VectorOfBuiltin(int elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    @Override
+    @ExplodeLoop
+    public Object executeGeneric(VirtualFrame frame) {
+        var result = ChiVector.EMPTY.asTransient();
+        for (int i = 0; i < elementCount; i++) {
+            result.add(ChiArgs.getObject(frame, i));
+        }
+        return result.persistent();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                Collections.nCopies(elementCount, typeParameter("T")).toArray(new Type[0]));
+    }
+
+    @Override
+    public String name() {
+        return "of";
+    }
+}
@@ -0,0 +1,39 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.TODO;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorSetBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var vector = getVector(frame, 0);
+        var index = ChiArgs.getLong(frame, 1);
+        if (index < 0 || index >= vector.size()) {
+            CompilerDirectives.transferToInterpreter();
+            throw new TODO("Index %d is out of bounds for vector of size %d".formatted(index, vector.size()));
+        }
+        return vector.set((int) index, ChiArgs.getObject(frame, 2));
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                CollectionTypes.vector(typeParameter("T")),
+                getIntType(),
+                typeParameter("T"));
+    }
+
+    @Override
+    public String name() {
+        return "set";
+    }
+}
@@ -0,0 +1,28 @@
+package gh.marad.chi.truffle.builtin.collections;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.core.FnType;
+
+import java.util.List;
+
+import static gh.marad.chi.core.Type.*;
+
+public class VectorSizeBuiltin extends CollectionsVectorBuiltin {
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return (long) getVector(frame, 0).size();
+    }
+
+    @Override
+    public FnType type() {
+        return genericFn(
+                List.of(typeParameter("T")),
+                getIntType(),
+                CollectionTypes.vector(typeParameter("T")));
+    }
+
+    @Override
+    public String name() {
+        return "size";
+    }
+}
@@ -0,0 +1,62 @@
+package gh.marad.chi.truffle.builtin.io;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.core.FnType;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.ChiContext;
+import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.runtime.ChiGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generator of file lines. Unlike {@link ReadLinesBuiltin} it reads lines as they are requested,
+ * so files of any size can be processed.
+ */
+public class LinesBuiltin extends Builtin {
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var filePath = ChiArgs.getTruffleString(frame, 0);
+        return lines(ChiContext.get(this), filePath);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    private ChiGenerator lines(ChiContext context, TruffleString path) {
+        try {
+            var reader = Files.newBufferedReader(Path.of(path.toJavaStringUncached()));
+            var lines = reader.lines()
+                              .map(it -> TruffleString.fromJavaStringUncached(it, TruffleString.Encoding.UTF_8))
+                              .iterator();
+            return new ChiGenerator(context, lines, reader);
+        } catch (IOException e) {
+            CompilerDirectives.transferToInterpreter();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public FnType type() {
+        return Type.fn(Type.getAny(), Type.getString());
+    }
+
+    @Override
+    public String getModuleName() {
+        return "std";
+    }
+
+    @Override
+    public String getPackageName() {
+        return "io";
+    }
+
+    @Override
+    public String name() {
+        return "lines";
+    }
+}
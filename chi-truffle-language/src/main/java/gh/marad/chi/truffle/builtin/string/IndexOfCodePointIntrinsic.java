@@ -0,0 +1,33 @@
+package gh.marad.chi.truffle.builtin.string;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+
+@NodeChild(value = "string", type = ChiNode.class)
+@NodeChild(value = "codePoint", type = ChiNode.class)
+@NodeChild(value = "start", type = ChiNode.class)
+@NodeChild(value = "end", type = ChiNode.class)
+public abstract class IndexOfCodePointIntrinsic extends Intrinsic {
+    protected abstract ChiNode getString();
+
+    protected abstract ChiNode getCodePoint();
+
+    protected abstract ChiNode getStart();
+
+    protected abstract ChiNode getEnd();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getString(), getCodePoint(), getStart(), getEnd()};
+    }
+
+    @Specialization
+    public long doIndexOf(TruffleString string, long codePoint, long start, long end,
+                          @Cached TruffleString.IndexOfCodePointNode node) {
+        return node.execute(string, (int) codePoint, (int) start, (int) end, TruffleString.Encoding.UTF_8);
+    }
+}
@@ -1,15 +1,20 @@
 package gh.marad.chi.truffle.builtin.string;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.strings.TruffleString;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import gh.marad.chi.core.FnType;
 import gh.marad.chi.core.Type;
-import gh.marad.chi.truffle.ChiArgs;
 import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.expr.variables.ReadLocalArgument;
 
 public class IndexOfStringBuiltin extends Builtin {
     @Child
-    private TruffleString.IndexOfStringNode node = TruffleString.IndexOfStringNode.create();
+    private Intrinsic body = IndexOfStringIntrinsicNodeGen.create(
+            new ReadLocalArgument(0),
+            new ReadLocalArgument(1),
+            new ReadLocalArgument(2),
+            new ReadLocalArgument(3));
 
     @Override
     public FnType type() {
@@ -32,16 +37,12 @@ public class IndexOfStringBuiltin extends Builtin {
     }
 
     @Override
-    public long executeLong(VirtualFrame frame) {
-        var haystack = ChiArgs.getTruffleString(frame, 0);
-        var needle = ChiArgs.getTruffleString(frame, 1);
-        var start = ChiArgs.getLong(frame, 2);
-        var end = ChiArgs.getLong(frame, 3);
-        return node.execute(haystack, needle, (int) start, (int) end, TruffleString.Encoding.UTF_8);
+    public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+        return body.executeLong(frame);
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        return executeLong(frame);
+        return body.executeGeneric(frame);
     }
 }
@@ -0,0 +1,33 @@
+package gh.marad.chi.truffle.builtin.string;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+
+@NodeChild(value = "haystack", type = ChiNode.class)
+@NodeChild(value = "needle", type = ChiNode.class)
+@NodeChild(value = "start", type = ChiNode.class)
+@NodeChild(value = "end", type = ChiNode.class)
+public abstract class IndexOfStringIntrinsic extends Intrinsic {
+    protected abstract ChiNode getHaystack();
+
+    protected abstract ChiNode getNeedle();
+
+    protected abstract ChiNode getStart();
+
+    protected abstract ChiNode getEnd();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getHaystack(), getNeedle(), getStart(), getEnd()};
+    }
+
+    @Specialization
+    public long doIndexOf(TruffleString haystack, TruffleString needle, long start, long end,
+                          @Cached TruffleString.IndexOfStringNode node) {
+        return node.execute(haystack, needle, (int) start, (int) end, TruffleString.Encoding.UTF_8);
+    }
+}
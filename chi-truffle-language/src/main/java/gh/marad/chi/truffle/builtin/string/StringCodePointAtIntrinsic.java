@@ -0,0 +1,27 @@
+package gh.marad.chi.truffle.builtin.string;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+
+@NodeChild(value = "string", type = ChiNode.class)
+@NodeChild(value = "index", type = ChiNode.class)
+public abstract class StringCodePointAtIntrinsic extends Intrinsic {
+    protected abstract ChiNode getString();
+
+    protected abstract ChiNode getIndex();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getString(), getIndex()};
+    }
+
+    @Specialization
+    public long doCodePointAt(TruffleString string, long index,
+                              @Cached TruffleString.CodePointAtIndexNode node) {
+        return node.execute(string, (int) index, TruffleString.Encoding.UTF_8);
+    }
+}
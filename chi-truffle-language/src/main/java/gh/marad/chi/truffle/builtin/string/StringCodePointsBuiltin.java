@@ -2,6 +2,7 @@ package gh.marad.chi.truffle.builtin.string;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.strings.TruffleString;
+import com.oracle.truffle.api.strings.TruffleStringIterator;
 import gh.marad.chi.core.FnType;
 import gh.marad.chi.core.Type;
 import gh.marad.chi.truffle.ChiArgs;
@@ -13,6 +14,8 @@ public class StringCodePointsBuiltin extends Builtin {
     private TruffleString.CodePointLengthNode codePointLength = TruffleString.CodePointLengthNode.create();
     @Child
     private TruffleString.CreateCodePointIteratorNode node = TruffleString.CreateCodePointIteratorNode.create();
+    @Child
+    private TruffleStringIterator.NextNode nextNode = TruffleStringIterator.NextNode.create();
 
     @Override
     public FnType type() {
@@ -39,10 +42,10 @@ public class StringCodePointsBuiltin extends Builtin {
         var string = ChiArgs.getTruffleString(frame, 0);
         var length = codePointLength.execute(string, TruffleString.Encoding.UTF_8);
         var iterator = node.execute(string, TruffleString.Encoding.UTF_8);
-        var data = new Long[length];
+        var data = new long[length];
         var index = 0;
         while (iterator.hasNext()) {
-            data[index++] = (long) iterator.nextUncached();
+            data[index++] = nextNode.execute(iterator);
         }
         return new ChiArray(data);
     }
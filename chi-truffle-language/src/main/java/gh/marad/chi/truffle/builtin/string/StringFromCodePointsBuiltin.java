@@ -37,10 +37,17 @@ public class StringFromCodePointsBuiltin extends Builtin {
     @Override
     public TruffleString executeString(VirtualFrame frame) {
         var codePointArray = ChiArgs.getChiArray(frame, 0);
-        var objects = codePointArray.unsafeGetUnderlayingArray();
-        var codePoints = new int[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            codePoints[i] = (int) ChiTypesGen.asImplicitLong(objects[i]);
+        int[] codePoints;
+        if (codePointArray.getStorage() instanceof long[] longs) {
+            codePoints = new int[longs.length];
+            for (int i = 0; i < longs.length; i++) {
+                codePoints[i] = (int) longs[i];
+            }
+        } else {
+            codePoints = new int[codePointArray.size()];
+            for (int i = 0; i < codePoints.length; i++) {
+                codePoints[i] = (int) ChiTypesGen.asImplicitLong(codePointArray.read(i));
+            }
         }
         var s = makeString(codePoints);
         return node.execute(s, TruffleString.Encoding.UTF_8);
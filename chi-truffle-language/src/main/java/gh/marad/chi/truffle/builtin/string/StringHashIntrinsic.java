@@ -0,0 +1,24 @@
+package gh.marad.chi.truffle.builtin.string;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+
+@NodeChild(value = "string", type = ChiNode.class)
+public abstract class StringHashIntrinsic extends Intrinsic {
+    protected abstract ChiNode getString();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getString()};
+    }
+
+    @Specialization
+    public long doHash(TruffleString string,
+                       @Cached TruffleString.HashCodeNode node) {
+        return node.execute(string, TruffleString.Encoding.UTF_8);
+    }
+}
@@ -1,15 +1,16 @@
 package gh.marad.chi.truffle.builtin.string;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.strings.TruffleString;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import gh.marad.chi.core.FnType;
 import gh.marad.chi.core.Type;
-import gh.marad.chi.truffle.ChiArgs;
 import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.expr.variables.ReadLocalArgument;
 
 public class StringLengthBuiltin extends Builtin {
     @Child
-    private TruffleString.CodePointLengthNode node = TruffleString.CodePointLengthNode.create();
+    private Intrinsic body = StringLengthIntrinsicNodeGen.create(new ReadLocalArgument(0));
 
     @Override
     public FnType type() {
@@ -32,12 +33,12 @@ public class StringLengthBuiltin extends Builtin {
     }
 
     @Override
-    public long executeLong(VirtualFrame frame) {
-        return node.execute(ChiArgs.getTruffleString(frame, 0), TruffleString.Encoding.UTF_8);
+    public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+        return body.executeLong(frame);
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        return executeLong(frame);
+        return body.executeGeneric(frame);
     }
 }
@@ -1,15 +1,17 @@
 package gh.marad.chi.truffle.builtin.string;
 
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import com.oracle.truffle.api.strings.TruffleString;
 import gh.marad.chi.core.FnType;
 import gh.marad.chi.core.Type;
-import gh.marad.chi.truffle.ChiArgs;
 import gh.marad.chi.truffle.builtin.Builtin;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.expr.variables.ReadLocalArgument;
 
 public class SubstringBuiltin extends Builtin {
     @Child
-    private TruffleString.SubstringNode node = TruffleString.SubstringNode.create();
+    private Intrinsic body = SubstringIntrinsicNodeGen.create(new ReadLocalArgument(0), new ReadLocalArgument(1), new ReadLocalArgument(2));
 
     @Override
     public FnType type() {
@@ -32,15 +34,12 @@ public class SubstringBuiltin extends Builtin {
     }
 
     @Override
-    public TruffleString executeString(VirtualFrame frame) {
-        var string = ChiArgs.getTruffleString(frame, 0);
-        var start = ChiArgs.getLong(frame, 1);
-        var length = ChiArgs.getLong(frame, 2);
-        return node.execute(string, (int) start, (int) length, TruffleString.Encoding.UTF_8, false);
+    public TruffleString executeString(VirtualFrame frame) throws UnexpectedResultException {
+        return body.executeString(frame);
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        return executeString(frame);
+        return body.executeGeneric(frame);
     }
 }
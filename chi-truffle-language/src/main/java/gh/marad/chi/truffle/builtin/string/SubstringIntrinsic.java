@@ -0,0 +1,30 @@
+package gh.marad.chi.truffle.builtin.string;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+
+@NodeChild(value = "string", type = ChiNode.class)
+@NodeChild(value = "start", type = ChiNode.class)
+@NodeChild(value = "length", type = ChiNode.class)
+public abstract class SubstringIntrinsic extends Intrinsic {
+    protected abstract ChiNode getString();
+
+    protected abstract ChiNode getStart();
+
+    protected abstract ChiNode getLength();
+
+    @Override
+    public ChiNode[] getArguments() {
+        return new ChiNode[]{getString(), getStart(), getLength()};
+    }
+
+    @Specialization
+    public TruffleString doSubstring(TruffleString string, long start, long length,
+                                     @Cached TruffleString.SubstringNode node) {
+        return node.execute(string, (int) start, (int) length, TruffleString.Encoding.UTF_8, false);
+    }
+}
@@ -15,13 +15,28 @@ import gh.marad.chi.truffle.runtime.TODO;
 @NodeChild(value = "variable", type = ChiNode.class)
 @NodeChild(value = "index", type = ChiNode.class)
 public abstract class IndexOperatorNode extends ExpressionNode {
-    @Specialization
-    public Object doChiArray(ChiArray array, long index) {
-        try {
-            return array.readArrayElement(index);
-        } catch (InvalidArrayIndexException ex) {
-            throw new TODO("Implement runtime error handling!", ex);
-        }
+    @Specialization(guards = "array.isLongStorage()")
+    public long doLongArray(ChiArray array, long index) {
+        var storage = (long[]) array.getStorage();
+        return storage[ChiArray.checkIndex(index, storage.length)];
+    }
+
+    @Specialization(guards = "array.isFloatStorage()")
+    public float doFloatArray(ChiArray array, long index) {
+        var storage = (float[]) array.getStorage();
+        return storage[ChiArray.checkIndex(index, storage.length)];
+    }
+
+    @Specialization(guards = "array.isBooleanStorage()")
+    public boolean doBooleanArray(ChiArray array, long index) {
+        var storage = (boolean[]) array.getStorage();
+        return storage[ChiArray.checkIndex(index, storage.length)];
+    }
+
+    @Specialization(guards = "array.isObjectStorage()")
+    public Object doObjectArray(ChiArray array, long index) {
+        var storage = (Object[]) array.getStorage();
+        return storage[ChiArray.checkIndex(index, storage.length)];
     }
 
     @Specialization
@@ -31,7 +46,7 @@ public abstract class IndexOperatorNode extends ExpressionNode {
         return TruffleString.fromCodePointUncached(codePoint, TruffleString.Encoding.UTF_8);
     }
 
-    @Specialization(replaces = {"doChiArray", "doString"})
+    @Specialization(replaces = {"doLongArray", "doFloatArray", "doBooleanArray", "doObjectArray", "doString"})
     public Object doObject(Object indexable, long index,
                            @CachedLibrary(limit = "3") InteropLibrary library) {
         try {
@@ -2,23 +2,48 @@ package gh.marad.chi.truffle.nodes;
 
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.api.interop.InvalidArrayIndexException;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
 import gh.marad.chi.truffle.runtime.ChiArray;
-import gh.marad.chi.truffle.runtime.TODO;
 
 @NodeChild(value = "variable", type = ChiNode.class)
 @NodeChild(value = "index", type = ChiNode.class)
 @NodeChild(value = "value", type = ChiNode.class)
 public abstract class IndexedAssignmentNode extends ExpressionNode {
 
+    @Specialization(guards = "array.isLongStorage()")
+    public long doLongArray(ChiArray array, long index, long value) {
+        var storage = (long[]) array.getStorage();
+        storage[ChiArray.checkIndex(index, storage.length)] = value;
+        return value;
+    }
+
+    @Specialization(guards = "array.isFloatStorage()")
+    public float doFloatArray(ChiArray array, long index, float value) {
+        var storage = (float[]) array.getStorage();
+        storage[ChiArray.checkIndex(index, storage.length)] = value;
+        return value;
+    }
+
+    @Specialization(guards = "array.isBooleanStorage()")
+    public boolean doBooleanArray(ChiArray array, long index, boolean value) {
+        var storage = (boolean[]) array.getStorage();
+        storage[ChiArray.checkIndex(index, storage.length)] = value;
+        return value;
+    }
+
+    @Specialization(guards = "array.isObjectStorage()")
+    public Object doObjectArray(ChiArray array, long index, Object value) {
+        var storage = (Object[]) array.getStorage();
+        storage[ChiArray.checkIndex(index, storage.length)] = value;
+        return value;
+    }
+
+    /**
+     * Value doesn't fit the primitive storage, so the array gets generalized to {@code Object[]}.
+     */
     @Specialization
     public Object doChiArray(ChiArray array, long index, Object value) {
-        try {
-            array.writeArrayElement(index, value);
-            return value;
-        } catch (InvalidArrayIndexException ex) {
-            throw new TODO("Implement runtime error handling!", ex);
-        }
+        array.write(index, value);
+        return value;
     }
 }
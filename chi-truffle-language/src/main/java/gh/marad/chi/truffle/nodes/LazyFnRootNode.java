@@ -0,0 +1,77 @@
+package gh.marad.chi.truffle.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.RootNode;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stands in for a function whose body was not converted to Truffle nodes yet.
+ * On first call it builds the real call target, swaps it into every function bound to this
+ * stub and forwards the call. This way only functions that are actually called get converted.
+ */
+public class LazyFnRootNode extends RootNode {
+    private final String name;
+    private Supplier<RootCallTarget> materializer;
+    private List<ChiFunction> boundFunctions = new ArrayList<>();
+    private RootCallTarget target;
+
+    @Child
+    private DirectCallNode callNode;
+
+    public LazyFnRootNode(TruffleLanguage<?> language, String name, Supplier<RootCallTarget> materializer) {
+        super(language);
+        this.name = name;
+        this.materializer = materializer;
+    }
+
+    /**
+     * Makes the function use the real call target as soon as it is built.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public synchronized void bind(ChiFunction function) {
+        if (target != null) {
+            function.setCallTarget(target);
+        } else {
+            boundFunctions.add(function);
+        }
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    private synchronized RootCallTarget materialize() {
+        if (target == null) {
+            target = materializer.get();
+            boundFunctions.forEach(function -> function.setCallTarget(target));
+            // conversion state is no longer needed
+            materializer = null;
+            boundFunctions = null;
+        }
+        return target;
+    }
+
+    @Override
+    public Object execute(VirtualFrame frame) {
+        if (callNode == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            callNode = insert(DirectCallNode.create(materialize()));
+        }
+        return callNode.call(frame.getArguments());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
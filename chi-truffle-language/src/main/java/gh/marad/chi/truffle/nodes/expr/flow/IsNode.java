@@ -1,32 +1,36 @@
 package gh.marad.chi.truffle.nodes.expr.flow;
 
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeField;
 import com.oracle.truffle.api.dsl.Specialization;
-import gh.marad.chi.core.VariantType;
+import com.oracle.truffle.api.object.Shape;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
 import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
 
-import java.util.Objects;
-
+/**
+ * Checks if the object is of variant or type with given tag. For cached shapes the result is a constant.
+ */
 @NodeChild(value = "value", type = ChiNode.class)
-@NodeField(name = "typeName", type = String.class)
+@NodeField(name = "tag", type = int.class)
 public abstract class IsNode extends ExpressionNode {
-    protected abstract String getTypeName();
+    protected abstract int getTag();
 
-    @Specialization
-    public boolean doChiObject(ChiObject object) {
-        var type = object.getType();
-        return variantNameMatches(type) || typeNameMatches(type);
+    @Specialization(guards = "object.getShape() == cachedShape", limit = "3")
+    public boolean doCached(ChiObject object,
+                            @Cached("object.getShape()") Shape cachedShape,
+                            @Cached("hasTag(cachedShape)") boolean result) {
+        return result;
     }
 
-    private boolean variantNameMatches(VariantType type) {
-        return getTypeName().equals(
-                Objects.requireNonNull(type.getVariant()).getVariantName());
+    @Specialization(replaces = "doCached")
+    public boolean doChiObject(ChiObject object) {
+        return object.getDescriptor().hasTag(getTag());
     }
 
-    private boolean typeNameMatches(VariantType type) {
-        return getTypeName().equals(type.getSimpleName());
+    protected boolean hasTag(Shape shape) {
+        return ((VariantDescriptor) shape.getDynamicType()).hasTag(getTag());
     }
 }
@@ -0,0 +1,89 @@
+package gh.marad.chi.truffle.nodes.expr.flow;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.NodeChild;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.profiles.BranchProfile;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.Unit;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
+
+/**
+ * {@code when} that only checks variants of a single value. The value is evaluated once and the branch
+ * is chosen by comparing variant tags. For cached shapes the branch index is a constant, so only
+ * the matching branch is left in compiled code. Branches that were never taken are not compiled at all.
+ */
+@NodeChild(value = "value", type = ChiNode.class)
+public abstract class MatchVariantNode extends ExpressionNode {
+    @CompilerDirectives.CompilationFinal(dimensions = 1)
+    private final int[] tags;
+    @Children
+    private final ChiNode[] branches;
+    @Child
+    private ChiNode elseBranch;
+    @CompilerDirectives.CompilationFinal(dimensions = 1)
+    private final BranchProfile[] taken;
+    private final BranchProfile elseTaken = BranchProfile.create();
+
+    /**
+     * @param tags       tags checked by consecutive branches, see {@link gh.marad.chi.truffle.runtime.VariantTags}
+     * @param branches   branch bodies in the order of checks
+     * @param elseBranch executed when no tag matches, may be null
+     */
+    protected MatchVariantNode(int[] tags, ChiNode[] branches, ChiNode elseBranch) {
+        this.tags = tags;
+        this.branches = branches;
+        this.elseBranch = elseBranch;
+        this.taken = new BranchProfile[branches.length];
+        for (int i = 0; i < taken.length; i++) {
+            taken[i] = BranchProfile.create();
+        }
+    }
+
+    @Specialization(guards = "object.getShape() == cachedShape", limit = "3")
+    public Object doCached(VirtualFrame frame, ChiObject object,
+                           @Cached("object.getShape()") Shape cachedShape,
+                           @Cached("findBranch(cachedShape)") int branch) {
+        return executeBranch(frame, branch);
+    }
+
+    @Specialization(replaces = "doCached")
+    public Object doChiObject(VirtualFrame frame, ChiObject object) {
+        return executeBranch(frame, findBranch(object.getDescriptor()));
+    }
+
+    protected int findBranch(Shape shape) {
+        return findBranch((VariantDescriptor) shape.getDynamicType());
+    }
+
+    /**
+     * Index of the first branch matching the variant, or -1 if none matches.
+     */
+    @ExplodeLoop
+    private int findBranch(VariantDescriptor descriptor) {
+        for (int i = 0; i < tags.length; i++) {
+            if (descriptor.hasTag(tags[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @ExplodeLoop
+    private Object executeBranch(VirtualFrame frame, int branch) {
+        for (int i = 0; i < branches.length; i++) {
+            if (i == branch) {
+                taken[i].enter();
+                return branches[i].executeGeneric(frame);
+            }
+        }
+        elseTaken.enter();
+        return elseBranch != null ? elseBranch.executeGeneric(frame) : Unit.instance;
+    }
+}
@@ -0,0 +1,23 @@
+package gh.marad.chi.truffle.nodes.expr.flow.effect;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+
+/**
+ * Body of an effect handler that may finish without calling {@code resume}. The value it ends with
+ * becomes the value of the whole {@code handle} expression.
+ */
+public class AbortEffectNode extends ExpressionNode {
+    @Child
+    private ChiNode body;
+
+    public AbortEffectNode(ChiNode body) {
+        this.body = body;
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        throw new AbortEffectWithValueException(body.executeGeneric(frame));
+    }
+}
@@ -0,0 +1,37 @@
+package gh.marad.chi.truffle.nodes.expr.flow.effect;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.Node;
+import gh.marad.chi.truffle.EffectHandlers;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+
+/**
+ * Finds the handler of an effect. Handlers installed by a {@code handle} block are reused as long as handlers
+ * enclosing it don't change, so the result is cached by identity of the handlers.
+ */
+public abstract class FindEffectHandler extends Node {
+    protected final EffectHandlers.Qualifier qualifier;
+
+    protected FindEffectHandler(EffectHandlers.Qualifier qualifier) {
+        this.qualifier = qualifier;
+    }
+
+    public abstract ChiFunction execute(EffectHandlers handlers);
+
+    @Specialization(guards = "handlers == cachedHandlers", limit = "3")
+    protected ChiFunction doCached(EffectHandlers handlers,
+                                   @Cached("handlers") EffectHandlers cachedHandlers,
+                                   @Cached("lookup(cachedHandlers)") ChiFunction handler) {
+        return handler;
+    }
+
+    @Specialization(replaces = "doCached")
+    protected ChiFunction doLookup(EffectHandlers handlers) {
+        return lookup(handlers);
+    }
+
+    protected ChiFunction lookup(EffectHandlers handlers) {
+        return handlers != null ? handlers.findEffectHandlerOrNull(qualifier) : null;
+    }
+}
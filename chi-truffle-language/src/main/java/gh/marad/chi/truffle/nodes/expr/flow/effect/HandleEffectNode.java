@@ -1,34 +1,83 @@
 package gh.marad.chi.truffle.nodes.expr.flow.effect;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import gh.marad.chi.truffle.ChiContext;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import gh.marad.chi.truffle.ChiLanguage;
 import gh.marad.chi.truffle.EffectHandlers;
 import gh.marad.chi.truffle.nodes.expr.BlockExpr;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.nodes.value.LambdaValue;
 import gh.marad.chi.truffle.runtime.ChiFunction;
 
-import java.util.Map;
-
 public class HandleEffectNode extends ExpressionNode {
 
     @Child
     private BlockExpr block;
-    private final Map<EffectHandlers.Qualifier, ChiFunction> handlers;
+    @Child
+    private ReadEffectHandlers enclosingHandlers;
+    private final int handlersSlot;
+    @CompilerDirectives.CompilationFinal(dimensions = 1)
+    private final EffectHandlers.Qualifier[] qualifiers;
+    @Children
+    private final LambdaValue[] handlerFunctions;
+    private final boolean capturesValues;
+    // handlers that don't capture anything are immutable, so they can be reused whenever the block is entered
+    // with the same enclosing handlers
+    @CompilerDirectives.CompilationFinal
+    private EffectHandlers cachedHandlers;
 
-    public HandleEffectNode(BlockExpr resumableBlockNode, Map<EffectHandlers.Qualifier, ChiFunction> handlers) {
+    /**
+     * @param handlerFunctions create handler functions for the qualifiers, in the same order
+     * @param capturesValues   whether any of the handlers captures local variables, so it has to be created
+     *                         each time the block is entered
+     */
+    public HandleEffectNode(BlockExpr resumableBlockNode, ReadEffectHandlers enclosingHandlers, int handlersSlot,
+                            EffectHandlers.Qualifier[] qualifiers, LambdaValue[] handlerFunctions, boolean capturesValues) {
         this.block = resumableBlockNode;
-        this.handlers = handlers;
+        this.enclosingHandlers = enclosingHandlers;
+        this.handlersSlot = handlersSlot;
+        this.qualifiers = qualifiers;
+        this.handlerFunctions = handlerFunctions;
+        this.capturesValues = capturesValues;
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
+        var handlers = getHandlers(frame, enclosingHandlers.executeEffectHandlers(frame));
+        frame.setObject(handlersSlot, handlers);
+        var current = ChiLanguage.get(this).getCurrentEffectHandlers();
+        var previous = current.get();
+        current.set(handlers);
         try {
-            var context = ChiContext.get(this);
-            return context.withEffectHandlers(
-                    handlers,
-                    () -> block.executeGeneric(frame));
+            return block.executeGeneric(frame);
         } catch (AbortEffectWithValueException ex) {
             return ex.getValue();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    private EffectHandlers getHandlers(VirtualFrame frame, EffectHandlers parent) {
+        if (capturesValues) {
+            return new EffectHandlers(parent, qualifiers, createHandlerFunctions(frame));
+        }
+        if (cachedHandlers == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            cachedHandlers = new EffectHandlers(parent, qualifiers, createHandlerFunctions(frame));
+        }
+        if (cachedHandlers.getParent() == parent) {
+            return cachedHandlers;
+        }
+        return new EffectHandlers(parent, qualifiers, createHandlerFunctions(frame));
+    }
+
+    @ExplodeLoop
+    private ChiFunction[] createHandlerFunctions(VirtualFrame frame) {
+        var functions = new ChiFunction[handlerFunctions.length];
+        for (int i = 0; i < handlerFunctions.length; i++) {
+            functions[i] = handlerFunctions[i].executeFunction(frame);
         }
+        return functions;
     }
 }
@@ -1,51 +1,62 @@
 package gh.marad.chi.truffle.nodes.expr.flow.effect;
 
+import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.interop.ArityException;
-import com.oracle.truffle.api.interop.InteropLibrary;
-import com.oracle.truffle.api.interop.UnsupportedMessageException;
-import com.oracle.truffle.api.interop.UnsupportedTypeException;
-import gh.marad.chi.truffle.ChiContext;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import gh.marad.chi.truffle.ChiArgs;
 import gh.marad.chi.truffle.EffectHandlers;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.nodes.function.DispatchNode;
+import gh.marad.chi.truffle.nodes.function.DispatchNodeGen;
 import gh.marad.chi.truffle.runtime.TODO;
 
+/**
+ * Body of an effect function. Calls the current handler of the effect with the effect arguments.
+ * <p>
+ * Tail-resumptive handlers simply return the resumed value. Other handlers either throw
+ * {@link ResumeValueException} when calling {@code resume}, or abort the whole {@code handle} block
+ * with {@link AbortEffectWithValueException}.
+ */
 public class InvokeEffect extends ExpressionNode {
-    private final String moduleName;
-    private final String packageName;
-    private final String effectName;
+    private final EffectHandlers.Qualifier qualifier;
+    private final int argumentCount;
     @Child
-    private InteropLibrary library;
+    private FindEffectHandler findHandler;
+    @Child
+    private DispatchNode dispatch;
 
-    public InvokeEffect(String moduleName, String packageName, String effectName) {
-        this.moduleName = moduleName;
-        this.packageName = packageName;
-        this.effectName = effectName;
-        library = InteropLibrary.getFactory().createDispatched(3);
+    public InvokeEffect(String moduleName, String packageName, String effectName, int argumentCount) {
+        this.qualifier = new EffectHandlers.Qualifier(moduleName, packageName, effectName);
+        this.argumentCount = argumentCount;
+        this.findHandler = FindEffectHandlerNodeGen.create(qualifier);
+        this.dispatch = DispatchNodeGen.create();
     }
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        var ctx = ChiContext.get(this);
-        var function = ctx.findEffectHandlerOrNull(new EffectHandlers.Qualifier(moduleName, packageName, effectName));
+        var function = findHandler.execute(ChiArgs.getEffectHandlers(frame));
 
         if (function == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            throw new TODO("Invoked effect %s/%s.%s without handler".formatted(moduleName, packageName, effectName));
+            throw new TODO("Invoked effect %s/%s.%s without handler".formatted(qualifier.module(), qualifier.pkg(), qualifier.name()));
         }
 
+        // handler gets the same effect handlers as the effect
+        var args = ChiArgs.create(function.getBoundLexicalScope(), ChiArgs.getEffectHandlers(frame), argumentCount);
+        copyArguments(frame, args);
         try {
-            Object[] args = new Object[frame.getArguments().length - 1];
-            for (int i = 0; i < frame.getArguments().length - 1; i++) {
-                args[i] = frame.getArguments()[i + 1];
-            }
-            var value = library.execute(function, args);
-            throw new AbortEffectWithValueException(value);
-        } catch (UnsupportedTypeException | ArityException | UnsupportedMessageException e) {
-            throw new TODO(e);
+            return dispatch.executeDispatch(function, args);
         } catch (ResumeValueException ex) {
             return ex.getValue();
         }
     }
+
+    @ExplodeLoop
+    private void copyArguments(VirtualFrame frame, Object[] args) {
+        CompilerAsserts.compilationConstant(argumentCount);
+        for (int i = 0; i < argumentCount; i++) {
+            args[ChiArgs.ARGS_OFFSET + i] = ChiArgs.getObject(frame, i);
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package gh.marad.chi.truffle.nodes.expr.flow.effect;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.EffectHandlers;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+
+/**
+ * Reads effect handlers active at some point of a function. Outside of {@code handle} blocks these are the handlers
+ * the function was called with. Within a block they are kept in the frame slot of the innermost enclosing block.
+ */
+public class ReadEffectHandlers extends ExpressionNode {
+    private static final int FROM_ARGUMENTS = -1;
+    private final int slot;
+
+    private ReadEffectHandlers(int slot) {
+        this.slot = slot;
+    }
+
+    public static ReadEffectHandlers fromArguments() {
+        return new ReadEffectHandlers(FROM_ARGUMENTS);
+    }
+
+    public static ReadEffectHandlers fromSlot(int slot) {
+        return new ReadEffectHandlers(slot);
+    }
+
+    public EffectHandlers executeEffectHandlers(VirtualFrame frame) {
+        if (slot == FROM_ARGUMENTS) {
+            return ChiArgs.getEffectHandlers(frame);
+        }
+        return (EffectHandlers) frame.getObject(slot);
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return executeEffectHandlers(frame);
+    }
+}
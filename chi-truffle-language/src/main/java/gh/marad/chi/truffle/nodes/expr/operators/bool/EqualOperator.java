@@ -6,6 +6,8 @@ import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.strings.TruffleString;
 import gh.marad.chi.truffle.nodes.expr.operators.BinaryOperator;
+import gh.marad.chi.truffle.nodes.objects.StructuralEqualNode;
+import gh.marad.chi.truffle.runtime.ChiObject;
 
 public abstract class EqualOperator extends BinaryOperator {
     @Specialization
@@ -24,6 +26,12 @@ public abstract class EqualOperator extends BinaryOperator {
     }
 
 
+    @Specialization
+    public boolean doChiObjects(ChiObject left, ChiObject right,
+                                @Cached StructuralEqualNode equalNode) {
+        return equalNode.execute(left, right);
+    }
+
     @Specialization
     public boolean doTruffleStrings(TruffleString left, TruffleString right,
                                     @Cached TruffleString.EqualNode equalNode) {
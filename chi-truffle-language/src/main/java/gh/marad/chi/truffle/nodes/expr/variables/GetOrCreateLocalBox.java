@@ -0,0 +1,28 @@
+package gh.marad.chi.truffle.nodes.expr.variables;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.VariableBox;
+
+/**
+ * Returns the box of a local variable, creating it when the variable is used for the first time in the frame.
+ * Box is created on first use and not at declaration, so that lambdas defined within the variable's own
+ * definition can capture it.
+ */
+public class GetOrCreateLocalBox extends ExpressionNode {
+    private final int slot;
+
+    public GetOrCreateLocalBox(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public VariableBox executeGeneric(VirtualFrame frame) {
+        if (frame.isObject(slot) && frame.getObject(slot) instanceof VariableBox box) {
+            return box;
+        }
+        var box = new VariableBox();
+        frame.setObject(slot, box);
+        return box;
+    }
+}
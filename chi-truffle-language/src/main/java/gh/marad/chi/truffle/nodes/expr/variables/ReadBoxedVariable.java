@@ -0,0 +1,20 @@
+package gh.marad.chi.truffle.nodes.expr.variables;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.VariableBox;
+
+public class ReadBoxedVariable extends ExpressionNode {
+    @Child
+    private ChiNode boxNode;
+
+    public ReadBoxedVariable(ChiNode boxNode) {
+        this.boxNode = boxNode;
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return ((VariableBox) boxNode.executeGeneric(frame)).getValue();
+    }
+}
@@ -0,0 +1,21 @@
+package gh.marad.chi.truffle.nodes.expr.variables;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+
+/**
+ * Reads a value captured by the currently executing lambda.
+ */
+public class ReadCapturedVariable extends ExpressionNode {
+    private final int index;
+
+    public ReadCapturedVariable(int index) {
+        this.index = index;
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return ChiArgs.getParentScope(frame).get(index);
+    }
+}
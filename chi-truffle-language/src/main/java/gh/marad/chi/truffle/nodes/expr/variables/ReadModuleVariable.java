@@ -1,13 +1,24 @@
 package gh.marad.chi.truffle.nodes.expr.variables;
 
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
 import gh.marad.chi.truffle.ChiContext;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+import gh.marad.chi.truffle.runtime.namespaces.VariableCell;
 
 public class ReadModuleVariable extends ExpressionNode {
     private final String moduleName;
     private final String packageName;
     private final String variableName;
+    @CompilerDirectives.CompilationFinal
+    private VariableCell cell = null;
+    @CompilerDirectives.CompilationFinal
+    private ChiFunction cachedFn = null;
+    @CompilerDirectives.CompilationFinal
+    private Assumption functionNotRedefined = Assumption.NEVER_VALID;
 
     public ReadModuleVariable(String moduleName, String packageName, String variableName) {
         this.moduleName = moduleName;
@@ -17,9 +28,53 @@ public class ReadModuleVariable extends ExpressionNode {
 
     @Override
     public Object executeGeneric(VirtualFrame frame) {
-        var ctx = ChiContext.get(this);
-        return ctx.modules.getOrCreateModule(moduleName)
-                          .findVariableFunctionOrNull(packageName, variableName);
+        if (cell != null) {
+            return cell.read();
+        }
+        if (functionNotRedefined.isValid()) {
+            return cachedFn;
+        }
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        return resolve();
+    }
+
+    @Override
+    public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+        if (cell != null) {
+            return cell.readLong();
+        }
+        return super.executeLong(frame);
+    }
+
+    @Override
+    public float executeFloat(VirtualFrame frame) throws UnexpectedResultException {
+        if (cell != null) {
+            return cell.readFloat();
+        }
+        return super.executeFloat(frame);
+    }
+
+    @Override
+    public boolean executeBoolean(VirtualFrame frame) throws UnexpectedResultException {
+        if (cell != null) {
+            return cell.readBoolean();
+        }
+        return super.executeBoolean(frame);
+    }
 
+    private Object resolve() {
+        var module = ChiContext.get(this).modules.getOrCreateModule(moduleName);
+        var variable = module.findVariableOrNull(packageName, variableName);
+        if (variable != null) {
+            cell = variable;
+            return variable.read();
+        }
+        var functionLookup = module.findSingleFunctionOrNull(packageName, variableName);
+        if (functionLookup != null) {
+            cachedFn = functionLookup.function();
+            functionNotRedefined = functionLookup.assumption();
+            return cachedFn;
+        }
+        return null;
     }
 }
@@ -1,35 +0,0 @@
-package gh.marad.chi.truffle.nodes.expr.variables;
-
-import com.oracle.truffle.api.CompilerDirectives;
-import com.oracle.truffle.api.frame.VirtualFrame;
-import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
-
-public class ReadOuterScopeArgument extends ExpressionNode {
-    private final int scopesUp;
-    private final int argIndex;
-
-    public ReadOuterScopeArgument(int scopesUp, int argIndex) {
-        this.scopesUp = scopesUp;
-        this.argIndex = argIndex;
-    }
-
-    @Override
-    public Object executeGeneric(VirtualFrame frame) {
-        var currentScope = getParentScope(frame);
-
-        var scopesLeft = scopesUp - 1;
-        while (scopesLeft > 0) {
-            currentScope = currentScope.getParentScope();
-            if (currentScope == null) {
-                break;
-            }
-            scopesLeft -= 1;
-        }
-        if (currentScope == null) {
-            CompilerDirectives.transferToInterpreter();
-            throw new RuntimeException("Argument cannot be found in the outer scopes");
-        }
-        return currentScope.getArgument(argIndex);
-    }
-
-}
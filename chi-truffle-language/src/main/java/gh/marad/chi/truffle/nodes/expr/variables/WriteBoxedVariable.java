@@ -0,0 +1,26 @@
+package gh.marad.chi.truffle.nodes.expr.variables;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.VariableBox;
+
+public class WriteBoxedVariable extends ExpressionNode {
+    @Child
+    private ChiNode boxNode;
+    @Child
+    private ChiNode valueNode;
+
+    public WriteBoxedVariable(ChiNode boxNode, ChiNode valueNode) {
+        this.boxNode = boxNode;
+        this.valueNode = valueNode;
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        var box = (VariableBox) boxNode.executeGeneric(frame);
+        var value = valueNode.executeGeneric(frame);
+        box.setValue(value);
+        return value;
+    }
+}
@@ -1,17 +1,22 @@
 package gh.marad.chi.truffle.nodes.expr.variables;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeField;
 import com.oracle.truffle.api.dsl.Specialization;
 import gh.marad.chi.truffle.ChiContext;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.namespaces.VariableCell;
 
 @NodeField(name = "moduleName", type = String.class)
 @NodeField(name = "packageName", type = String.class)
 @NodeField(name = "variableName", type = String.class)
 @NodeChild(value = "value", type = ChiNode.class)
 public abstract class WriteModuleVariable extends ExpressionNode {
+    @CompilerDirectives.CompilationFinal
+    private VariableCell cell = null;
+
     protected abstract String getModuleName();
 
     protected abstract String getPackageName();
@@ -19,10 +24,35 @@ public abstract class WriteModuleVariable extends ExpressionNode {
     protected abstract String getVariableName();
 
     @Specialization
+    public long saveLong(long value) {
+        getCell().writeLong(value);
+        return value;
+    }
+
+    @Specialization
+    public float saveFloat(float value) {
+        getCell().writeFloat(value);
+        return value;
+    }
+
+    @Specialization
+    public boolean saveBoolean(boolean value) {
+        getCell().writeBoolean(value);
+        return value;
+    }
+
+    @Specialization(replaces = {"saveLong", "saveFloat", "saveBoolean"})
     public Object saveObject(Object value) {
-        var ctx = ChiContext.get(this);
-        ctx.modules.getOrCreateModule(getModuleName())
-                   .defineVariable(getPackageName(), getVariableName(), value);
+        getCell().writeObject(value);
         return value;
     }
+
+    private VariableCell getCell() {
+        if (cell == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            cell = ChiContext.get(this).modules.getOrCreateModule(getModuleName())
+                                                .getOrCreateVariable(getPackageName(), getVariableName());
+        }
+        return cell;
+    }
 }
@@ -0,0 +1,24 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.Node;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+
+/**
+ * Calls a Chi function that was passed to a builtin. The function runs with effect handlers
+ * the builtin was called with.
+ */
+public final class CallbackNode extends Node {
+    @Child
+    private DispatchNode dispatch = DispatchNodeGen.create();
+
+    public static CallbackNode create() {
+        return new CallbackNode();
+    }
+
+    public Object call(VirtualFrame frame, ChiFunction function, Object... arguments) {
+        var args = ChiArgs.create(function.getBoundLexicalScope(), ChiArgs.getEffectHandlers(frame), arguments);
+        return dispatch.executeDispatch(function, args);
+    }
+}
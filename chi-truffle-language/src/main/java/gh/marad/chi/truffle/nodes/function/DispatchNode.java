@@ -0,0 +1,41 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateUncached;
+import com.oracle.truffle.api.dsl.ReportPolymorphism;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+
+/**
+ * Calls Chi function with arguments already laid out as {@link gh.marad.chi.truffle.ChiArgs} expects them.
+ * This is the call path used within Chi code. Interop is used only for calls from the host and other languages.
+ */
+@GenerateUncached
+@ReportPolymorphism
+public abstract class DispatchNode extends Node {
+    protected static final int INLINE_CACHE_SIZE = ChiFunction.INLINE_CACHE_SIZE;
+
+    public abstract Object executeDispatch(ChiFunction function, Object[] arguments);
+
+    // lambdas created by the same expression share the call target, so closure is not part of the cache key
+    @Specialization(limit = "INLINE_CACHE_SIZE",
+            guards = "function.getCallTarget() == cachedTarget",
+            assumptions = "callTargetStable")
+    protected static Object doDirect(ChiFunction function, Object[] arguments,
+                                     @Cached("function.getCallTargetStable()") Assumption callTargetStable,
+                                     @Cached("function.getCallTarget()") RootCallTarget cachedTarget,
+                                     @Cached("create(cachedTarget)") DirectCallNode callNode) {
+        return callNode.call(arguments);
+    }
+
+    @Specialization(replaces = "doDirect")
+    protected static Object doIndirect(ChiFunction function, Object[] arguments,
+                                       @Cached IndirectCallNode callNode) {
+        return callNode.call(function.getCallTarget(), arguments);
+    }
+}
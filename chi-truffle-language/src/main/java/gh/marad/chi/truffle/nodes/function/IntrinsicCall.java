@@ -0,0 +1,95 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.instrumentation.Tag;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.truffle.ChiContext;
+import gh.marad.chi.truffle.builtin.Intrinsic;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.nodes.expr.flow.effect.ReadEffectHandlers;
+
+import java.util.List;
+
+/**
+ * Call to a builtin function with the builtin logic inlined. As long as the package function is the builtin,
+ * the intrinsic is executed directly. When the function gets redefined, this node replaces itself
+ * with a regular call.
+ */
+public class IntrinsicCall extends ExpressionNode {
+    private final String moduleName;
+    private final String packageName;
+    private final String functionName;
+    private final Type[] paramTypes;
+    @Child
+    private Intrinsic intrinsic;
+    // only used when the builtin is redefined and has to be called like any other function
+    @SuppressWarnings("FieldMayBeFinal")
+    @Child
+    private ReadEffectHandlers effectHandlers;
+    @CompilerDirectives.CompilationFinal
+    private Assumption builtinNotRedefined = null;
+
+    public IntrinsicCall(String moduleName, String packageName, String functionName, Type[] paramTypes,
+                         Intrinsic intrinsic, ReadEffectHandlers effectHandlers) {
+        this.moduleName = moduleName;
+        this.packageName = packageName;
+        this.functionName = functionName;
+        this.paramTypes = paramTypes;
+        this.intrinsic = intrinsic;
+        this.effectHandlers = effectHandlers;
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        if (isBuiltin()) {
+            return intrinsic.executeGeneric(frame);
+        }
+        return replaceWithCall().executeGeneric(frame);
+    }
+
+    @Override
+    public long executeLong(VirtualFrame frame) throws UnexpectedResultException {
+        if (isBuiltin()) {
+            return intrinsic.executeLong(frame);
+        }
+        return replaceWithCall().executeLong(frame);
+    }
+
+    @Override
+    public TruffleString executeString(VirtualFrame frame) throws UnexpectedResultException {
+        if (isBuiltin()) {
+            return intrinsic.executeString(frame);
+        }
+        return replaceWithCall().executeString(frame);
+    }
+
+    private boolean isBuiltin() {
+        if (builtinNotRedefined == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            var context = ChiContext.get(this);
+            var lookupResult = context.modules.getOrCreateModule(moduleName)
+                                              .findFunctionOrNull(packageName, functionName, paramTypes);
+            builtinNotRedefined = lookupResult != null && context.isBuiltin(lookupResult.function())
+                                          ? lookupResult.assumption()
+                                          : Assumption.NEVER_VALID;
+        }
+        return builtinNotRedefined.isValid();
+    }
+
+    private ChiNode replaceWithCall() {
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        var function = new GetDefinedFunction(moduleName, packageName, functionName, paramTypes);
+        return replace(new InvokeFunction(function, List.of(intrinsic.getArguments()), effectHandlers));
+    }
+
+    @Override
+    public boolean hasTag(Class<? extends Tag> tag) {
+        return tag == StandardTags.CallTag.class || super.hasTag(tag);
+    }
+}
@@ -10,10 +10,11 @@ import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.interop.UnsupportedMessageException;
 import com.oracle.truffle.api.interop.UnsupportedTypeException;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
-import com.oracle.truffle.api.nodes.UnexpectedResultException;
+import gh.marad.chi.truffle.ChiArgs;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
-import gh.marad.chi.truffle.runtime.TODO;
+import gh.marad.chi.truffle.nodes.expr.flow.effect.ReadEffectHandlers;
+import gh.marad.chi.truffle.runtime.ChiFunction;
 
 import java.util.Collection;
 
@@ -25,32 +26,62 @@ public class InvokeFunction extends ExpressionNode {
     private final ChiNode[] arguments;
     @SuppressWarnings("FieldMayBeFinal")
     @Child
+    private DispatchNode dispatch;
+    @Child
     private InteropLibrary library;
+    @SuppressWarnings("FieldMayBeFinal")
+    @Child
+    private ReadEffectHandlers effectHandlers;
 
 
-    public InvokeFunction(ChiNode function, Collection<ChiNode> arguments) {
+    public InvokeFunction(ChiNode function, Collection<ChiNode> arguments, ReadEffectHandlers effectHandlers) {
         this.function = function;
         this.arguments = arguments.toArray(new ChiNode[0]);
-        library = InteropLibrary.getFactory().createDispatched(3);
+        this.dispatch = DispatchNodeGen.create();
+        this.effectHandlers = effectHandlers;
     }
 
     @Override
-    @ExplodeLoop
     public Object executeGeneric(VirtualFrame frame) {
-        try {
-            var fn = function.executeFunction(frame);
+        return invoke(frame, function.executeGeneric(frame));
+    }
+
+    protected Object invoke(VirtualFrame frame, Object fn) {
+        if (fn instanceof ChiFunction chiFunction) {
+            return dispatch.executeDispatch(chiFunction, evaluateChiArgs(frame, chiFunction));
+        }
+        return executeForeign(frame, fn);
+    }
 
-            CompilerAsserts.compilationConstant(arguments.length);
-            Object[] args = new Object[arguments.length];
-            for (int i = 0; i < arguments.length; i++) {
-                args[i] = arguments[i].executeGeneric(frame);
-            }
+    /**
+     * Evaluates arguments directly into the array that becomes callee frame arguments.
+     */
+    protected Object[] evaluateChiArgs(VirtualFrame frame, ChiFunction chiFunction) {
+        var args = ChiArgs.create(chiFunction.getBoundLexicalScope(), effectHandlers.executeEffectHandlers(frame), arguments.length);
+        evaluateArguments(frame, args, ChiArgs.ARGS_OFFSET);
+        return args;
+    }
+
+    private Object executeForeign(VirtualFrame frame, Object fn) {
+        if (library == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            library = insert(InteropLibrary.getFactory().createDispatched(3));
+        }
+        var args = new Object[arguments.length];
+        evaluateArguments(frame, args, 0);
+        try {
             return library.execute(fn, args);
         } catch (UnsupportedTypeException | ArityException | UnsupportedMessageException e) {
             CompilerDirectives.transferToInterpreter();
             throw new RuntimeException(e);
-        } catch (UnexpectedResultException ex) {
-            throw new TODO(ex);
+        }
+    }
+
+    @ExplodeLoop
+    private void evaluateArguments(VirtualFrame frame, Object[] args, int offset) {
+        CompilerAsserts.compilationConstant(arguments.length);
+        for (int i = 0; i < arguments.length; i++) {
+            args[offset + i] = arguments[i].executeGeneric(frame);
         }
     }
 
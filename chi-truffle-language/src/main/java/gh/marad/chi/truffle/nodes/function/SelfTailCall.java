@@ -0,0 +1,42 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.flow.effect.ReadEffectHandlers;
+import gh.marad.chi.truffle.runtime.ChiFunction;
+
+import java.util.Collection;
+
+/**
+ * Call in tail position that is expected to call the function it's in. Instead of making the call
+ * it replaces arguments of the current frame and restarts the function body within {@link TailCallLoop},
+ * so the recursion runs in constant stack space.
+ * <p>
+ * If the callee turns out to be some other function, the call is made as usual.
+ */
+public class SelfTailCall extends InvokeFunction {
+    // set once the function containing this call is created, kept by split copies of the function
+    @CompilerDirectives.CompilationFinal
+    private RootCallTarget selfTarget;
+
+    public SelfTailCall(ChiNode function, Collection<ChiNode> arguments, ReadEffectHandlers effectHandlers) {
+        super(function, arguments, effectHandlers);
+    }
+
+    public void setSelfTarget(RootCallTarget selfTarget) {
+        this.selfTarget = selfTarget;
+    }
+
+    @Override
+    protected Object invoke(VirtualFrame frame, Object fn) {
+        if (fn instanceof ChiFunction chiFunction && chiFunction.getCallTarget() == selfTarget) {
+            // all arguments are evaluated before any is replaced, because they may read the current ones
+            var args = evaluateChiArgs(frame, chiFunction);
+            System.arraycopy(args, 0, frame.getArguments(), 0, args.length);
+            throw TailCallException.INSTANCE;
+        }
+        return super.invoke(frame, fn);
+    }
+}
@@ -0,0 +1,10 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.nodes.ControlFlowException;
+
+public class TailCallException extends ControlFlowException {
+    public static final TailCallException INSTANCE = new TailCallException();
+
+    private TailCallException() {
+    }
+}
@@ -0,0 +1,71 @@
+package gh.marad.chi.truffle.nodes.function;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.LoopNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RepeatingNode;
+import com.oracle.truffle.api.profiles.BranchProfile;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+
+/**
+ * Body of a function that calls itself in tail position. Each {@link SelfTailCall} restarts the body
+ * with new arguments, so the recursion becomes a loop that can be compiled with OSR.
+ */
+public class TailCallLoop extends ExpressionNode {
+    @Child
+    private LoopNode loop;
+
+    /**
+     * @param boxedSlots slots of boxed variables declared in the body. They are cleared on each restart,
+     *                   so lambdas created in previous iterations keep their own boxes.
+     */
+    public TailCallLoop(ChiNode body, int[] boxedSlots) {
+        this.loop = Truffle.getRuntime().createLoopNode(new TailCallRepeatingNode(body, boxedSlots));
+    }
+
+    @Override
+    public Object executeGeneric(VirtualFrame frame) {
+        return loop.execute(frame);
+    }
+
+    private static class TailCallRepeatingNode extends Node implements RepeatingNode {
+        @Child
+        private ChiNode body;
+        @CompilerDirectives.CompilationFinal(dimensions = 1)
+        private final int[] boxedSlots;
+
+        private final BranchProfile tailCallTaken = BranchProfile.create();
+
+        TailCallRepeatingNode(ChiNode body, int[] boxedSlots) {
+            this.body = body;
+            this.boxedSlots = boxedSlots;
+        }
+
+        @Override
+        public boolean executeRepeating(VirtualFrame frame) {
+            return executeRepeatingWithValue(frame) == CONTINUE_LOOP_STATUS;
+        }
+
+        @Override
+        public Object executeRepeatingWithValue(VirtualFrame frame) {
+            try {
+                return body.executeGeneric(frame);
+            } catch (TailCallException ex) {
+                tailCallTaken.enter();
+                clearBoxes(frame);
+                return CONTINUE_LOOP_STATUS;
+            }
+        }
+
+        @ExplodeLoop
+        private void clearBoxes(VirtualFrame frame) {
+            for (int slot : boxedSlots) {
+                frame.setObject(slot, null);
+            }
+        }
+    }
+}
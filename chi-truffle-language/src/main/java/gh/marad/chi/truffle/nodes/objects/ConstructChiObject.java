@@ -1,44 +1,40 @@
 package gh.marad.chi.truffle.nodes.objects;
 
-import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
-import com.oracle.truffle.api.interop.InteropLibrary;
-import com.oracle.truffle.api.interop.UnknownIdentifierException;
-import com.oracle.truffle.api.interop.UnsupportedMessageException;
-import com.oracle.truffle.api.interop.UnsupportedTypeException;
-import gh.marad.chi.core.VariantType;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.object.DynamicObjectLibrary;
 import gh.marad.chi.truffle.ChiArgs;
-import gh.marad.chi.truffle.ChiContext;
-import gh.marad.chi.truffle.ChiLanguage;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
 
-import java.util.Objects;
-
+/**
+ * Body of a variant constructor. All objects start with the same shape and get their fields set in the same order,
+ * so each field write sees a single shape transition and compiles to a plain store.
+ */
 public class ConstructChiObject extends ExpressionNode {
-    private final ChiLanguage language;
-    private final String[] fieldNames;
-    private final InteropLibrary interopLibrary;
-    private final VariantType type;
+    // shapes may change when field gets value of a different type than before
+    private static final int SHAPE_CACHE_LIMIT = 3;
+
+    private final VariantDescriptor descriptor;
+    @Children
+    private final DynamicObjectLibrary[] fieldWriters;
 
-    public ConstructChiObject(ChiLanguage language, VariantType type) {
-        this.language = language;
-        this.fieldNames = Objects.requireNonNull(type.getVariant()).getFields().stream()
-                                 .map(VariantType.VariantField::getName).toList().toArray(new String[0]);
-        this.type = type;
-        interopLibrary = InteropLibrary.getUncached();
+    public ConstructChiObject(VariantDescriptor descriptor) {
+        this.descriptor = descriptor;
+        this.fieldWriters = new DynamicObjectLibrary[descriptor.getFieldNames().length];
+        for (int i = 0; i < fieldWriters.length; i++) {
+            fieldWriters[i] = DynamicObjectLibrary.getFactory().createDispatched(SHAPE_CACHE_LIMIT);
+        }
     }
 
     @Override
+    @ExplodeLoop
     public Object executeGeneric(VirtualFrame frame) {
-        var env = ChiContext.get(this).getEnv();
-        var object = language.createObject(fieldNames, type, env);
-        for (int i = 0; i < fieldNames.length; i++) {
-            try {
-                interopLibrary.writeMember(object, fieldNames[i], ChiArgs.getObject(frame, i));
-            } catch (UnsupportedMessageException | UnsupportedTypeException | UnknownIdentifierException e) {
-                CompilerDirectives.transferToInterpreter();
-                throw new RuntimeException(e);
-            }
+        var object = new ChiObject(descriptor.getInitialShape());
+        var fieldNames = descriptor.getFieldNames();
+        for (int i = 0; i < fieldWriters.length; i++) {
+            fieldWriters[i].put(object, fieldNames[i], ChiArgs.getObject(frame, i));
         }
         return object;
     }
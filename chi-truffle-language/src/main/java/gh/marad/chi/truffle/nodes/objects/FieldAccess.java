@@ -0,0 +1,42 @@
+package gh.marad.chi.truffle.nodes.objects;
+
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Shape;
+import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
+
+/**
+ * Helpers shared by nodes working with fields of Chi objects.
+ */
+final class FieldAccess {
+    private FieldAccess() {
+    }
+
+    static boolean isChiObject(Object value) {
+        return value instanceof ChiObject;
+    }
+
+    static Location findLocation(Shape shape, String member) {
+        var property = shape.getProperty(member);
+        return property != null ? property.getLocation() : null;
+    }
+
+    static VariantDescriptor getDescriptor(Shape shape) {
+        return (VariantDescriptor) shape.getDynamicType();
+    }
+
+    /**
+     * Locations of all variant fields in declaration order, or {@code null} if some field is missing in the shape.
+     */
+    static Location[] findFieldLocations(Shape shape) {
+        var fieldNames = getDescriptor(shape).getFieldNames();
+        var locations = new Location[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            locations[i] = findLocation(shape, fieldNames[i]);
+            if (locations[i] == null) {
+                return null;
+            }
+        }
+        return locations;
+    }
+}
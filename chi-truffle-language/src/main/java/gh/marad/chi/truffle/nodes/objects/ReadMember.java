@@ -1,5 +1,8 @@
 package gh.marad.chi.truffle.nodes.objects;
 
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeField;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -7,15 +10,71 @@ import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.interop.UnknownIdentifierException;
 import com.oracle.truffle.api.interop.UnsupportedMessageException;
 import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+import com.oracle.truffle.api.object.DynamicObjectLibrary;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Shape;
+import gh.marad.chi.truffle.ChiContext;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiObject;
 
+/**
+ * Reads a field. For Chi objects the location of the field is cached for each seen shape, so the read
+ * is a single load. Fields holding {@code long} and {@code boolean} values are read without boxing until
+ * the field holds a value of another type. Other objects are read through interop.
+ */
 @NodeChild(value = "receiver", type = ChiNode.class)
 @NodeField(name = "member", type = String.class)
+@ImportStatic(FieldAccess.class)
 public abstract class ReadMember extends ExpressionNode {
     protected abstract String getMember();
 
-    @Specialization(rewriteOn = {UnsupportedMessageException.class, UnknownIdentifierException.class})
+    protected int shapeCacheLimit() {
+        return ChiContext.get(this).getFieldCacheLimit();
+    }
+
+    @Specialization(guards = {"object.getShape() == cachedShape", "location != null"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "shapeCacheLimit()",
+            rewriteOn = UnexpectedResultException.class)
+    public long readCachedLong(ChiObject object,
+                               @Cached("object.getShape()") Shape cachedShape,
+                               @Cached("findLocation(cachedShape, getMember())") Location location) throws UnexpectedResultException {
+        return location.getLong(object, cachedShape);
+    }
+
+    @Specialization(guards = {"object.getShape() == cachedShape", "location != null"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "shapeCacheLimit()",
+            rewriteOn = UnexpectedResultException.class)
+    public boolean readCachedBoolean(ChiObject object,
+                                     @Cached("object.getShape()") Shape cachedShape,
+                                     @Cached("findLocation(cachedShape, getMember())") Location location) throws UnexpectedResultException {
+        return location.getBoolean(object, cachedShape);
+    }
+
+    @Specialization(guards = {"object.getShape() == cachedShape", "location != null"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "shapeCacheLimit()")
+    public Object readCached(ChiObject object,
+                             @Cached("object.getShape()") Shape cachedShape,
+                             @Cached("findLocation(cachedShape, getMember())") Location location) {
+        return location.get(object, cachedShape);
+    }
+
+    // doesn't replace the cached reads, so a shape without a cached location doesn't make the other shapes slow
+    @Specialization
+    public Object readGeneric(ChiObject object) {
+        var result = DynamicObjectLibrary.getUncached().getOrDefault(object, getMember(), null);
+        if (result == null) {
+            CompilerDirectives.transferToInterpreter();
+            throw new RuntimeException("Object %s has no field '%s'".formatted(object.getDescriptor().getVariantName(), getMember()));
+        }
+        return result;
+    }
+
+    @Specialization(guards = "!isChiObject(receiver)", rewriteOn = {UnsupportedMessageException.class, UnknownIdentifierException.class})
     public Object readMember(Object receiver,
                              @CachedLibrary(limit = "3") InteropLibrary interop) throws UnsupportedMessageException, UnknownIdentifierException {
         return interop.readMember(receiver, getMember());
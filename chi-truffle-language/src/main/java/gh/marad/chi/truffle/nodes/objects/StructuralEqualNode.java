@@ -0,0 +1,128 @@
+package gh.marad.chi.truffle.nodes.objects;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.runtime.ChiObject;
+
+/**
+ * Compares values structurally - objects are equal when they are of the same variant and their fields are equal.
+ * For objects of cached shapes the fields are compared with field nodes specialized for their values,
+ * and objects of cached shapes of different variants are unequal without looking at the fields.
+ * Nested objects are specialized up to {@link #MAX_DEPTH}, deeper ones are compared with
+ * {@link ChiObject#valuesEqual}.
+ */
+@ImportStatic(FieldAccess.class)
+public abstract class StructuralEqualNode extends Node {
+    static final int MAX_DEPTH = 3;
+
+    protected final int depth;
+
+    protected StructuralEqualNode(int depth) {
+        this.depth = depth;
+    }
+
+    public static StructuralEqualNode create() {
+        return StructuralEqualNodeGen.create(0);
+    }
+
+    public abstract boolean execute(Object left, Object right);
+
+    @Specialization
+    boolean doLongs(long left, long right) {
+        return left == right;
+    }
+
+    @Specialization
+    boolean doFloats(float left, float right) {
+        return left == right;
+    }
+
+    @Specialization
+    boolean doBooleans(boolean left, boolean right) {
+        return left == right;
+    }
+
+    @Specialization
+    boolean doTruffleStrings(TruffleString left, TruffleString right,
+                             @Cached TruffleString.EqualNode equalNode) {
+        return equalNode.execute(left, right, TruffleString.Encoding.UTF_8);
+    }
+
+    @Specialization(guards = {"depth < MAX_DEPTH", "left.getShape() == cachedShape",
+            "right.getShape() == cachedShape", "locations != null"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "3")
+    boolean doCachedObjects(ChiObject left, ChiObject right,
+                            @Cached("left.getShape()") Shape cachedShape,
+                            @Cached(value = "findFieldLocations(cachedShape)", dimensions = 1) Location[] locations,
+                            @Cached("createFieldNodes(locations)") StructuralEqualNode[] fieldNodes) {
+        return fieldsEqual(left, cachedShape, locations, right, cachedShape, locations, fieldNodes);
+    }
+
+    // objects of the same variant have different shapes when their fields hold values of different types
+    @Specialization(guards = {"depth < MAX_DEPTH", "left.getShape() == cachedLeftShape",
+            "right.getShape() == cachedRightShape", "cachedLeftShape != cachedRightShape",
+            "isSameVariant(cachedLeftShape, cachedRightShape)", "leftLocations != null", "rightLocations != null"},
+            assumptions = {"cachedLeftShape.getValidAssumption()", "cachedRightShape.getValidAssumption()"},
+            limit = "3")
+    boolean doCachedObjectsOfDifferentShapes(ChiObject left, ChiObject right,
+                                             @Cached("left.getShape()") Shape cachedLeftShape,
+                                             @Cached("right.getShape()") Shape cachedRightShape,
+                                             @Cached(value = "findFieldLocations(cachedLeftShape)", dimensions = 1) Location[] leftLocations,
+                                             @Cached(value = "findFieldLocations(cachedRightShape)", dimensions = 1) Location[] rightLocations,
+                                             @Cached("createFieldNodes(leftLocations)") StructuralEqualNode[] fieldNodes) {
+        return fieldsEqual(left, cachedLeftShape, leftLocations, right, cachedRightShape, rightLocations, fieldNodes);
+    }
+
+    @Specialization(guards = {"left.getShape() == cachedLeftShape", "right.getShape() == cachedRightShape",
+            "!isSameVariant(cachedLeftShape, cachedRightShape)"},
+            assumptions = {"cachedLeftShape.getValidAssumption()", "cachedRightShape.getValidAssumption()"},
+            limit = "3")
+    boolean doDifferentVariants(ChiObject left, ChiObject right,
+                                @Cached("left.getShape()") Shape cachedLeftShape,
+                                @Cached("right.getShape()") Shape cachedRightShape) {
+        return false;
+    }
+
+    // doesn't replace the cached cases, so objects that don't fit the cache don't make the cached ones slow
+    @Specialization
+    boolean doObjects(ChiObject left, ChiObject right) {
+        return ChiObject.valuesEqual(left, right);
+    }
+
+    @Fallback
+    boolean doOther(Object left, Object right) {
+        return ChiObject.valuesEqual(left, right);
+    }
+
+    @ExplodeLoop
+    private static boolean fieldsEqual(ChiObject left, Shape leftShape, Location[] leftLocations,
+                                       ChiObject right, Shape rightShape, Location[] rightLocations,
+                                       StructuralEqualNode[] fieldNodes) {
+        for (int i = 0; i < leftLocations.length; i++) {
+            if (!fieldNodes[i].execute(leftLocations[i].get(left, leftShape), rightLocations[i].get(right, rightShape))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSameVariant(Shape left, Shape right) {
+        return FieldAccess.getDescriptor(left).isSameVariant(FieldAccess.getDescriptor(right));
+    }
+
+    StructuralEqualNode[] createFieldNodes(Location[] locations) {
+        var nodes = new StructuralEqualNode[locations.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = StructuralEqualNodeGen.create(depth + 1);
+        }
+        return nodes;
+    }
+}
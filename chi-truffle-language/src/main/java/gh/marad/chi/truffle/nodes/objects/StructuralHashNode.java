@@ -0,0 +1,99 @@
+package gh.marad.chi.truffle.nodes.objects;
+
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.strings.TruffleString;
+import gh.marad.chi.truffle.runtime.ChiObject;
+import gh.marad.chi.truffle.runtime.VariantDescriptor;
+
+/**
+ * Hash code consistent with {@link StructuralEqualNode}. Specialized like the equality node, and the hash
+ * of an object is kept in the object as long as its variant allows it (see {@link VariantDescriptor#canCacheHash}).
+ */
+@ImportStatic({FieldAccess.class, StructuralEqualNode.class})
+public abstract class StructuralHashNode extends Node {
+    protected final int depth;
+
+    protected StructuralHashNode(int depth) {
+        this.depth = depth;
+    }
+
+    public static StructuralHashNode create() {
+        return StructuralHashNodeGen.create(0);
+    }
+
+    public abstract int execute(Object value);
+
+    @Specialization
+    int doLong(long value) {
+        return Long.hashCode(value);
+    }
+
+    @Specialization
+    int doFloat(float value) {
+        return ChiObject.floatHash(value);
+    }
+
+    @Specialization
+    int doBoolean(boolean value) {
+        return Boolean.hashCode(value);
+    }
+
+    @Specialization
+    int doTruffleString(TruffleString value,
+                        @Cached TruffleString.HashCodeNode hashCodeNode) {
+        return hashCodeNode.execute(value, TruffleString.Encoding.UTF_8);
+    }
+
+    @Specialization(guards = {"depth < MAX_DEPTH", "value.getShape() == cachedShape", "locations != null"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "3")
+    int doCachedObject(ChiObject value,
+                       @Cached("value.getShape()") Shape cachedShape,
+                       @Cached("getDescriptor(cachedShape)") VariantDescriptor descriptor,
+                       @Cached(value = "findFieldLocations(cachedShape)", dimensions = 1) Location[] locations,
+                       @Cached("createFieldNodes(locations)") StructuralHashNode[] fieldNodes) {
+        var canCache = descriptor.canCacheHash();
+        if (canCache && value.getCachedHash() != 0) {
+            return value.getCachedHash();
+        }
+        var hash = fieldsHash(value, cachedShape, descriptor.getVariantHash(), locations, fieldNodes);
+        if (canCache) {
+            value.setCachedHash(hash);
+        }
+        return hash;
+    }
+
+    @Specialization(replaces = "doCachedObject")
+    int doObject(ChiObject value) {
+        return ChiObject.valueHash(value);
+    }
+
+    @Fallback
+    int doOther(Object value) {
+        return ChiObject.valueHash(value);
+    }
+
+    @ExplodeLoop
+    private static int fieldsHash(ChiObject value, Shape shape, int hash, Location[] locations,
+                                  StructuralHashNode[] fieldNodes) {
+        for (int i = 0; i < locations.length; i++) {
+            hash = 31 * hash + fieldNodes[i].execute(locations[i].get(value, shape));
+        }
+        return hash;
+    }
+
+    StructuralHashNode[] createFieldNodes(Location[] locations) {
+        var nodes = new StructuralHashNode[locations.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = StructuralHashNodeGen.create(depth + 1);
+        }
+        return nodes;
+    }
+}
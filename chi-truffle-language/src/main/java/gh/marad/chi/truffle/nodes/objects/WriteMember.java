@@ -1,5 +1,8 @@
 package gh.marad.chi.truffle.nodes.objects;
 
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.NodeChild;
 import com.oracle.truffle.api.dsl.NodeField;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -8,16 +11,57 @@ import com.oracle.truffle.api.interop.UnknownIdentifierException;
 import com.oracle.truffle.api.interop.UnsupportedMessageException;
 import com.oracle.truffle.api.interop.UnsupportedTypeException;
 import com.oracle.truffle.api.library.CachedLibrary;
+import com.oracle.truffle.api.object.DynamicObjectLibrary;
+import com.oracle.truffle.api.object.FinalLocationException;
+import com.oracle.truffle.api.object.IncompatibleLocationException;
+import com.oracle.truffle.api.object.Location;
+import com.oracle.truffle.api.object.Shape;
+import gh.marad.chi.truffle.ChiContext;
 import gh.marad.chi.truffle.nodes.ChiNode;
 import gh.marad.chi.truffle.nodes.expr.ExpressionNode;
+import gh.marad.chi.truffle.runtime.ChiObject;
 
+/**
+ * Writes a field. For Chi objects the location of the field is cached for each seen shape, as long as
+ * the location can hold the value. Values that don't fit the location change the object shape
+ * through the generic path. Other objects are written through interop.
+ */
 @NodeChild(value = "receiver", type = ChiNode.class)
 @NodeChild(value = "value", type = ChiNode.class)
 @NodeField(name = "member", type = String.class)
+@ImportStatic(FieldAccess.class)
 public abstract class WriteMember extends ExpressionNode {
     protected abstract String getMember();
 
-    @Specialization(rewriteOn = {UnsupportedMessageException.class, UnknownIdentifierException.class, UnsupportedTypeException.class})
+    protected int shapeCacheLimit() {
+        return ChiContext.get(this).getFieldCacheLimit();
+    }
+
+    @Specialization(guards = {"object.getShape() == cachedShape", "location != null", "location.canSet(value)"},
+            assumptions = "cachedShape.getValidAssumption()",
+            limit = "shapeCacheLimit()")
+    public Object writeCached(ChiObject object, Object value,
+                              @Cached("object.getShape()") Shape cachedShape,
+                              @Cached("findLocation(cachedShape, getMember())") Location location) {
+        FieldAccess.getDescriptor(cachedShape).fieldWritten();
+        try {
+            location.set(object, value, cachedShape);
+        } catch (IncompatibleLocationException | FinalLocationException e) {
+            // excluded by the guard
+            CompilerDirectives.transferToInterpreter();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @Specialization
+    public Object writeGeneric(ChiObject object, Object value) {
+        object.getDescriptor().fieldWritten();
+        DynamicObjectLibrary.getUncached().put(object, getMember(), value);
+        return value;
+    }
+
+    @Specialization(guards = "!isChiObject(receiver)", rewriteOn = {UnsupportedMessageException.class, UnknownIdentifierException.class, UnsupportedTypeException.class})
     public Object writeMember(Object receiver, Object value,
                               @CachedLibrary(limit = "3") InteropLibrary interop) throws UnsupportedMessageException, UnknownIdentifierException, UnsupportedTypeException {
         interop.writeMember(receiver, getMember(), value);
@@ -2,27 +2,59 @@ package gh.marad.chi.truffle.nodes.value;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.RootCallTarget;
-import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+import gh.marad.chi.truffle.nodes.ChiNode;
+import gh.marad.chi.truffle.nodes.LazyFnRootNode;
 import gh.marad.chi.truffle.runtime.ChiFunction;
 import gh.marad.chi.truffle.runtime.LexicalScope;
 
 public class LambdaValue extends ValueNode {
     private final RootCallTarget callTarget;
+    @Children
+    private final ChiNode[] captures;
+    @CompilerDirectives.CompilationFinal
+    private ChiFunction sharedFunction = null;
 
     public LambdaValue(RootCallTarget callTarget) {
+        this(callTarget, new ChiNode[0]);
+    }
+
+    /**
+     * @param captures nodes that read values captured by the lambda, in the order expected by its body
+     */
+    public LambdaValue(RootCallTarget callTarget, ChiNode[] captures) {
         this.callTarget = callTarget;
+        this.captures = captures;
     }
 
     @Override
     public ChiFunction executeFunction(VirtualFrame frame) {
-        return generateFunction(frame.materialize());
+        if (captures.length == 0) {
+            // lambda that doesn't capture anything can be the same object every time
+            if (sharedFunction == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                sharedFunction = createFunction(LexicalScope.empty());
+            }
+            return sharedFunction;
+        }
+        return createFunction(new LexicalScope(captureValues(frame)));
+    }
+
+    @ExplodeLoop
+    private Object[] captureValues(VirtualFrame frame) {
+        var values = new Object[captures.length];
+        for (int i = 0; i < captures.length; i++) {
+            values[i] = captures[i].executeGeneric(frame);
+        }
+        return values;
     }
 
-    @CompilerDirectives.TruffleBoundary
-    private ChiFunction generateFunction(MaterializedFrame frame) {
-        var function = new ChiFunction(callTarget);
-        function.bindLexicalScope(new LexicalScope(frame));
+    private ChiFunction createFunction(LexicalScope scope) {
+        var function = new ChiFunction(callTarget, scope);
+        if (callTarget.getRootNode() instanceof LazyFnRootNode lazyRootNode) {
+            lazyRootNode.bind(function);
+        }
         return function;
     }
 
@@ -9,25 +9,133 @@ import com.oracle.truffle.api.library.ExportMessage;
 
 import java.util.Arrays;
 
+/**
+ * Array of Chi values. Elements are kept in {@code long[]}, {@code float[]} or {@code boolean[]} when the array
+ * is created with values of such type, so they are stored unboxed. The storage is generalized to {@code Object[]}
+ * when a value of other type is written.
+ */
 @ExportLibrary(InteropLibrary.class)
 public class ChiArray implements ChiValue {
-    private final Object[] array;
+    private Object storage;
 
     public ChiArray(int capacity, Object defaultValue) {
-        array = new Object[capacity];
-        Arrays.fill(array, defaultValue);
+        if (defaultValue instanceof Long value) {
+            var array = new long[capacity];
+            Arrays.fill(array, value);
+            storage = array;
+        } else if (defaultValue instanceof Float value) {
+            var array = new float[capacity];
+            Arrays.fill(array, value);
+            storage = array;
+        } else if (defaultValue instanceof Boolean value) {
+            var array = new boolean[capacity];
+            Arrays.fill(array, value);
+            storage = array;
+        } else {
+            var array = new Object[capacity];
+            Arrays.fill(array, defaultValue);
+            storage = array;
+        }
     }
 
     public ChiArray(int capacity) {
-        array = new Object[capacity];
+        storage = new Object[capacity];
     }
 
     public ChiArray(Object[] array) {
-        this.array = array;
+        // arrays of narrower element type, like TruffleString[], couldn't hold other values
+        this.storage = array.getClass() == Object[].class ? array : Arrays.copyOf(array, array.length, Object[].class);
+    }
+
+    public ChiArray(long[] array) {
+        this.storage = array;
+    }
+
+    /**
+     * One of {@code long[]}, {@code float[]}, {@code boolean[]} or {@code Object[]}.
+     */
+    public Object getStorage() {
+        return storage;
+    }
+
+    public boolean isLongStorage() {
+        return storage instanceof long[];
     }
 
-    public Object[] unsafeGetUnderlayingArray() {
-        return array;
+    public boolean isFloatStorage() {
+        return storage instanceof float[];
+    }
+
+    public boolean isBooleanStorage() {
+        return storage instanceof boolean[];
+    }
+
+    public boolean isObjectStorage() {
+        return storage instanceof Object[];
+    }
+
+    public int size() {
+        if (storage instanceof long[] array) {
+            return array.length;
+        } else if (storage instanceof float[] array) {
+            return array.length;
+        } else if (storage instanceof boolean[] array) {
+            return array.length;
+        } else {
+            return ((Object[]) storage).length;
+        }
+    }
+
+    /**
+     * Converts the index to int, failing if it's out of the array bounds.
+     */
+    public static int checkIndex(long index, int length) {
+        if (index < 0 || index >= length) {
+            CompilerDirectives.transferToInterpreter();
+            throw new TODO("Implement runtime error handling!", InvalidArrayIndexException.create(index));
+        }
+        return (int) index;
+    }
+
+    public Object read(long index) {
+        if (storage instanceof long[] array) {
+            return array[checkIndex(index, array.length)];
+        } else if (storage instanceof float[] array) {
+            return array[checkIndex(index, array.length)];
+        } else if (storage instanceof boolean[] array) {
+            return array[checkIndex(index, array.length)];
+        } else {
+            var array = (Object[]) storage;
+            return array[checkIndex(index, array.length)];
+        }
+    }
+
+    /**
+     * Writes the value, generalizing the storage if it can't hold it.
+     */
+    public void write(long index, Object value) {
+        if (storage instanceof long[] array && value instanceof Long longValue) {
+            array[checkIndex(index, array.length)] = longValue;
+        } else if (storage instanceof float[] array && value instanceof Float floatValue) {
+            array[checkIndex(index, array.length)] = floatValue;
+        } else if (storage instanceof boolean[] array && value instanceof Boolean booleanValue) {
+            array[checkIndex(index, array.length)] = booleanValue;
+        } else {
+            var array = generalize();
+            array[checkIndex(index, array.length)] = value;
+        }
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    private Object[] generalize() {
+        if (!(storage instanceof Object[])) {
+            var array = new Object[size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = read(i);
+            }
+            storage = array;
+        }
+        return (Object[]) storage;
     }
 
     @ExportMessage
@@ -43,12 +151,12 @@ public class ChiArray implements ChiValue {
     @ExportMessage
     public Object readArrayElement(long index) throws InvalidArrayIndexException {
         assertIndexValid(index);
-        return array[(int) index];
+        return read(index);
     }
 
     @ExportMessage
     public long getArraySize() {
-        return array.length;
+        return size();
     }
 
     @ExportMessage
@@ -64,7 +172,7 @@ public class ChiArray implements ChiValue {
     @ExportMessage
     public void writeArrayElement(long index, Object value) throws InvalidArrayIndexException {
         assertIndexValid(index);
-        array[(int) index] = value;
+        write(index, value);
     }
 
     @ExportMessage
@@ -73,24 +181,23 @@ public class ChiArray implements ChiValue {
     public Object toDisplayString(boolean allowSideEffects) {
         var sb = new StringBuilder();
         sb.append("arrayOf(");
-        var index = 0;
-        for (Object element : array) {
-            sb.append(element.toString());
-            if (index < array.length - 1) {
+        var size = size();
+        for (int index = 0; index < size; index++) {
+            sb.append(read(index).toString());
+            if (index < size - 1) {
                 sb.append(", ");
             }
-            index += 1;
         }
         sb.append(")");
         return sb.toString();
     }
 
     private boolean withinBounds(long index) {
-        return 0 <= index && index < array.length;
+        return 0 <= index && index < size();
     }
 
     private void assertIndexValid(long index) throws InvalidArrayIndexException {
-        if (index < 0 || index >= array.length) {
+        if (index < 0 || index >= size()) {
             CompilerDirectives.transferToInterpreter();
             throw InvalidArrayIndexException.create(index);
         }
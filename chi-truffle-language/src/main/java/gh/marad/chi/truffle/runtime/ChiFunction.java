@@ -5,64 +5,58 @@ import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.dsl.Cached;
-import com.oracle.truffle.api.dsl.ReportPolymorphism;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
-import com.oracle.truffle.api.nodes.DirectCallNode;
-import com.oracle.truffle.api.nodes.IndirectCallNode;
 import com.oracle.truffle.api.utilities.CyclicAssumption;
 import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.ChiLanguage;
+import gh.marad.chi.truffle.nodes.function.DispatchNode;
 
 @ExportLibrary(InteropLibrary.class)
 public class ChiFunction implements ChiValue {
     public static final int INLINE_CACHE_SIZE = 3;
     private RootCallTarget callTarget;
     private final String name;
-    private final CyclicAssumption callTargetStable;
-    private LexicalScope boundLexicalScope = null;
-    private final CyclicAssumption boundLexicalScopeStable;
+    // created only when some call site caches the call target
+    private CyclicAssumption callTargetStable = null;
+    private final LexicalScope boundLexicalScope;
 
     public ChiFunction(RootCallTarget callTarget) {
+        this(callTarget, null);
+    }
+
+    public ChiFunction(RootCallTarget callTarget, LexicalScope boundLexicalScope) {
         this.name = callTarget.getRootNode().getName();
-        this.callTargetStable = new CyclicAssumption(this.name);
-        this.boundLexicalScopeStable = new CyclicAssumption("bound lexical scope stable");
-        setCallTarget(callTarget);
+        this.callTarget = callTarget;
+        this.boundLexicalScope = boundLexicalScope;
     }
 
     public RootCallTarget getCallTarget() {
         return callTarget;
     }
 
-    public Assumption getCallTargetStable() {
+    @CompilerDirectives.TruffleBoundary
+    public synchronized Assumption getCallTargetStable() {
+        if (callTargetStable == null) {
+            callTargetStable = new CyclicAssumption(this.name);
+        }
         return callTargetStable.getAssumption();
     }
 
-    public void setCallTarget(RootCallTarget callTarget) {
-        boolean wasNull = this.callTarget == null;
+    @CompilerDirectives.TruffleBoundary
+    public synchronized void setCallTarget(RootCallTarget callTarget) {
         this.callTarget = callTarget;
-        if (!wasNull) {
+        if (callTargetStable != null) {
             callTargetStable.invalidate();
         }
     }
 
-    public Assumption getBoundLexicalScopeStable() {
-        return boundLexicalScopeStable.getAssumption();
-    }
-
     public LexicalScope getBoundLexicalScope() {
         return boundLexicalScope;
     }
 
-    public void bindLexicalScope(LexicalScope lexicalScope) {
-        boolean wasNull = this.boundLexicalScope == null;
-        boundLexicalScope = lexicalScope;
-        if (!wasNull) {
-            boundLexicalScopeStable.invalidate();
-        }
-    }
-
     @ExportMessage
     public boolean isExecutable() {
         return true;
@@ -78,28 +72,13 @@ public class ChiFunction implements ChiValue {
         return name;
     }
 
-    @ReportPolymorphism
     @ExportMessage
     abstract static class Execute {
-        @Specialization(limit = "INLINE_CACHE_SIZE",
-                guards = {
-                        "function.getCallTarget() == cachedTarget",
-                        "function.getBoundLexicalScope() == cachedLexicalScope"
-                },
-                assumptions = {"callTargetStable", "boundLexicalScopeStable"})
-        protected static Object doDirect(ChiFunction function, Object[] arguments,
-                                         @Cached("function.getCallTargetStable()") Assumption callTargetStable,
-                                         @Cached("function.getCallTarget()") RootCallTarget cachedTarget,
-                                         @Cached("function.getBoundLexicalScopeStable()") Assumption boundLexicalScopeStable,
-                                         @Cached("function.getBoundLexicalScope()") LexicalScope cachedLexicalScope,
-                                         @Cached("create(cachedTarget)") DirectCallNode callNode) {
-            return callNode.call(ChiArgs.create(cachedLexicalScope, arguments));
-        }
-
-        @Specialization(replaces = "doDirect")
-        protected static Object doIndirect(ChiFunction function, Object[] arguments,
-                                           @Cached IndirectCallNode callNode) {
-            return callNode.call(function.getCallTarget(), ChiArgs.create(function.getBoundLexicalScope(), arguments));
+        @Specialization
+        protected static Object doExecute(ChiFunction function, Object[] arguments,
+                                          @Cached DispatchNode dispatch) {
+            var effectHandlers = ChiLanguage.get(null).getCurrentEffectHandlers().get();
+            return dispatch.executeDispatch(function, ChiArgs.create(function.getBoundLexicalScope(), effectHandlers, arguments));
         }
     }
 
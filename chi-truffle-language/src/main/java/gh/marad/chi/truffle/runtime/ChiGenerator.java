@@ -0,0 +1,93 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.StopIterationException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import gh.marad.chi.truffle.ChiContext;
+
+import java.lang.ref.Cleaner;
+import java.util.Iterator;
+
+/**
+ * Lazy sequence of values. Values are computed only when they are requested, so the whole sequence
+ * never has to be kept in memory.
+ * <p>
+ * Resources held by the generator (like producer thread or open file) are released when it runs out of values,
+ * when it becomes unreachable, or when the context is closed.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class ChiGenerator implements ChiValue {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Iterator<?> values;
+    private final Cleaner.Cleanable cleanable;
+    private boolean closed = false;
+
+    public ChiGenerator(ChiContext context, Iterator<?> values, AutoCloseable resource) {
+        this.values = values;
+        context.registerGenerator(resource);
+        this.cleanable = CLEANER.register(this, new Release(context, resource));
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (values.hasNext()) {
+            return true;
+        }
+        close();
+        return false;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object next() {
+        if (!hasNext()) {
+            throw new RuntimeException("Generator has no more values");
+        }
+        return values.next();
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public void close() {
+        if (!closed) {
+            closed = true;
+            cleanable.clean();
+        }
+    }
+
+    @ExportMessage
+    public boolean isIterator() {
+        return true;
+    }
+
+    @ExportMessage
+    public boolean hasIteratorNextElement() {
+        return hasNext();
+    }
+
+    @ExportMessage
+    public Object getIteratorNextElement() throws StopIterationException {
+        if (!hasNext()) {
+            throw StopIterationException.create();
+        }
+        return next();
+    }
+
+    @ExportMessage
+    @Override
+    public Object toDisplayString(boolean allowSideEffects) {
+        return "generator";
+    }
+
+    // must not reference the generator, otherwise it would never become unreachable
+    private record Release(ChiContext context, AutoCloseable resource) implements Runnable {
+        @Override
+        public void run() {
+            context.releaseGenerator(resource);
+        }
+    }
+}
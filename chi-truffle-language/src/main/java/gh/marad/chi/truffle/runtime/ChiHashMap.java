@@ -0,0 +1,240 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnknownKeyException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.strings.TruffleString;
+import com.oracle.truffle.api.utilities.TriState;
+
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent hash map backed by a {@link HashTrie}. Keys are compared by value, and callers pass key hashes
+ * computed with {@link gh.marad.chi.truffle.nodes.objects.StructuralHashNode}.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class ChiHashMap implements ChiValue {
+    public static final ChiHashMap EMPTY = new ChiHashMap(0, HashTrie.EMPTY);
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final int size;
+    private final HashTrie.Node root;
+
+    private ChiHashMap(int size, HashTrie.Node root) {
+        this.size = size;
+        this.root = root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object get(Object key, int hash, Object notFound) {
+        return root.get(0, hash, key, notFound);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public boolean containsKey(Object key, int hash) {
+        return root.get(0, hash, key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public ChiHashMap put(Object key, int hash, Object value) {
+        var change = new HashTrie.Change();
+        var newRoot = root.put(null, 0, hash, key, value, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new ChiHashMap(change.sizeChanged ? size + 1 : size, newRoot);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public ChiHashMap remove(Object key, int hash) {
+        var change = new HashTrie.Change();
+        var newRoot = root.remove(null, 0, hash, key, change);
+        if (newRoot == null) {
+            return EMPTY;
+        } else if (newRoot == root) {
+            return this;
+        }
+        return new ChiHashMap(size - 1, newRoot);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public void forEach(BiConsumer<Object, Object> consumer) {
+        root.forEach(consumer);
+    }
+
+    /**
+     * Returns keys and values of all the entries as consecutive pairs.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public Object[] entries() {
+        var result = new Object[2 * size];
+        var index = new int[1];
+        root.forEach((key, value) -> {
+            result[index[0]++] = key;
+            result[index[0]++] = value;
+        });
+        return result;
+    }
+
+    public Transient asTransient() {
+        return new Transient(this);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    boolean contentEquals(ChiHashMap other) {
+        if (size != other.size) {
+            return false;
+        }
+        var equal = new boolean[]{true};
+        root.forEach((key, value) -> {
+            if (equal[0]) {
+                var otherValue = other.get(key, ChiObject.valueHash(key), NOT_FOUND);
+                equal[0] = otherValue != NOT_FOUND && ChiObject.valuesEqual(value, otherValue);
+            }
+        });
+        return equal[0];
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    int contentHash() {
+        // sum of entry hashes doesn't depend on the order of entries in the trie
+        var hash = new int[1];
+        root.forEach((key, value) -> hash[0] += ChiObject.valueHash(key) ^ ChiObject.valueHash(value));
+        return hash[0];
+    }
+
+    /**
+     * Mutable version of the map for putting many entries at once. Changes are made in place,
+     * in trie nodes that the transient owns. Once {@link #persistent()} is called the transient can't be used anymore.
+     */
+    public static final class Transient {
+        private Object edit = new Object();
+        private int size;
+        private HashTrie.Node root;
+
+        private Transient(ChiHashMap map) {
+            this.size = map.size;
+            this.root = map.root;
+        }
+
+        @CompilerDirectives.TruffleBoundary
+        public Transient put(Object key, int hash, Object value) {
+            ensureEditable();
+            var change = new HashTrie.Change();
+            root = root.put(edit, 0, hash, key, value, change);
+            if (change.sizeChanged) {
+                size += 1;
+            }
+            return this;
+        }
+
+        public ChiHashMap persistent() {
+            ensureEditable();
+            edit = null;
+            return size == 0 ? EMPTY : new ChiHashMap(size, root);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient map used after it was made persistent");
+            }
+        }
+    }
+
+    @ExportMessage
+    public boolean hasHashEntries() {
+        return true;
+    }
+
+    @ExportMessage
+    public long getHashSize() {
+        return size;
+    }
+
+    @ExportMessage
+    public boolean isHashEntryReadable(Object key) {
+        var chiKey = toChiKey(key);
+        return containsKey(chiKey, ChiObject.valueHash(chiKey));
+    }
+
+    @ExportMessage
+    public Object readHashValue(Object key) throws UnknownKeyException {
+        var chiKey = toChiKey(key);
+        var value = get(chiKey, ChiObject.valueHash(chiKey), NOT_FOUND);
+        if (value == NOT_FOUND) {
+            throw UnknownKeyException.create(key);
+        }
+        return value;
+    }
+
+    /**
+     * Host strings come as Java strings and integers as any boxed integer type, but Chi keeps its strings
+     * as {@link TruffleString} and integers as {@code long}.
+     */
+    @CompilerDirectives.TruffleBoundary
+    private static Object toChiKey(Object key) {
+        if (key instanceof String string) {
+            return TruffleString.fromJavaStringUncached(string, TruffleString.Encoding.UTF_8);
+        } else if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    public Object getHashEntriesIterator() {
+        var entries = new ArrayList<ChiArray>(size);
+        root.forEach((key, value) -> entries.add(new ChiArray(new Object[]{key, value})));
+        return new ChiIterator(entries.iterator());
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    TriState isIdenticalOrUndefined(Object other) {
+        return ChiObject.valuesEqual(this, other) ? TriState.TRUE : TriState.FALSE;
+    }
+
+    @ExportMessage
+    public int identityHashCode() {
+        return ChiObject.valueHash(this);
+    }
+
+    @ExportMessage
+    @Override
+    @CompilerDirectives.TruffleBoundary
+    public Object toDisplayString(boolean allowSideEffects) {
+        var sb = new StringBuilder("mapOf(");
+        var interop = InteropLibrary.getUncached();
+        var first = new boolean[]{true};
+        root.forEach((key, value) -> {
+            if (!first[0]) {
+                sb.append(", ");
+            }
+            first[0] = false;
+            sb.append(interop.toDisplayString(key)).append(" to ").append(interop.toDisplayString(value));
+        });
+        return sb.append(")").toString();
+    }
+
+    @ExportMessage
+    @Override
+    public boolean hasLanguage() {
+        return ChiValue.super.hasLanguage();
+    }
+
+    @ExportMessage
+    @Override
+    public Class<? extends TruffleLanguage<?>> getLanguage() {
+        return ChiValue.super.getLanguage();
+    }
+}
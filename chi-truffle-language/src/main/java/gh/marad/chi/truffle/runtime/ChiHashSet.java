@@ -0,0 +1,148 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.utilities.TriState;
+
+import java.util.ArrayList;
+
+/**
+ * Persistent hash set - a {@link ChiHashMap} that maps each element to itself.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class ChiHashSet implements ChiValue {
+    public static final ChiHashSet EMPTY = new ChiHashSet(ChiHashMap.EMPTY);
+
+    private final ChiHashMap map;
+
+    private ChiHashSet(ChiHashMap map) {
+        this.map = map;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean contains(Object element, int hash) {
+        return map.containsKey(element, hash);
+    }
+
+    public ChiHashSet add(Object element, int hash) {
+        return wrap(map.put(element, hash, element));
+    }
+
+    public ChiHashSet remove(Object element, int hash) {
+        return wrap(map.remove(element, hash));
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object[] toArray() {
+        var entries = map.entries();
+        var result = new Object[entries.length / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = entries[2 * i];
+        }
+        return result;
+    }
+
+    public Transient asTransient() {
+        return new Transient(map.asTransient());
+    }
+
+    private ChiHashSet wrap(ChiHashMap newMap) {
+        if (newMap == map) {
+            return this;
+        }
+        return newMap.size() == 0 ? EMPTY : new ChiHashSet(newMap);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    boolean contentEquals(ChiHashSet other) {
+        return map.contentEquals(other.map);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    int contentHash() {
+        var hash = new int[1];
+        map.forEach((element, ignored) -> hash[0] += ChiObject.valueHash(element));
+        return hash[0];
+    }
+
+    /**
+     * Mutable version of the set for adding many elements at once.
+     * Once {@link #persistent()} is called the transient can't be used anymore.
+     */
+    public static final class Transient {
+        private final ChiHashMap.Transient map;
+
+        private Transient(ChiHashMap.Transient map) {
+            this.map = map;
+        }
+
+        public Transient add(Object element, int hash) {
+            map.put(element, hash, element);
+            return this;
+        }
+
+        public ChiHashSet persistent() {
+            var result = map.persistent();
+            return result.size() == 0 ? EMPTY : new ChiHashSet(result);
+        }
+    }
+
+    @ExportMessage
+    public boolean hasIterator() {
+        return true;
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    public Object getIterator() {
+        var elements = new ArrayList<>(map.size());
+        map.forEach((element, ignored) -> elements.add(element));
+        return new ChiIterator(elements.iterator());
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    TriState isIdenticalOrUndefined(Object other) {
+        return ChiObject.valuesEqual(this, other) ? TriState.TRUE : TriState.FALSE;
+    }
+
+    @ExportMessage
+    public int identityHashCode() {
+        return ChiObject.valueHash(this);
+    }
+
+    @ExportMessage
+    @Override
+    @CompilerDirectives.TruffleBoundary
+    public Object toDisplayString(boolean allowSideEffects) {
+        var sb = new StringBuilder("setOf(");
+        var interop = InteropLibrary.getUncached();
+        var first = new boolean[]{true};
+        map.forEach((element, ignored) -> {
+            if (!first[0]) {
+                sb.append(", ");
+            }
+            first[0] = false;
+            sb.append(interop.toDisplayString(element));
+        });
+        return sb.append(")").toString();
+    }
+
+    @ExportMessage
+    @Override
+    public boolean hasLanguage() {
+        return ChiValue.super.hasLanguage();
+    }
+
+    @ExportMessage
+    @Override
+    public Class<? extends TruffleLanguage<?>> getLanguage() {
+        return ChiValue.super.getLanguage();
+    }
+}
@@ -0,0 +1,60 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.StopIterationException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+
+import java.util.Iterator;
+
+/**
+ * Interop iterator over elements of a Chi collection.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class ChiIterator implements ChiValue {
+    private final Iterator<?> elements;
+
+    public ChiIterator(Iterator<?> elements) {
+        this.elements = elements;
+    }
+
+    @ExportMessage
+    boolean isIterator() {
+        return true;
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    boolean hasIteratorNextElement() {
+        return elements.hasNext();
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    Object getIteratorNextElement() throws StopIterationException {
+        if (!elements.hasNext()) {
+            throw StopIterationException.create();
+        }
+        return elements.next();
+    }
+
+    @ExportMessage
+    @Override
+    public boolean hasLanguage() {
+        return ChiValue.super.hasLanguage();
+    }
+
+    @ExportMessage
+    @Override
+    public Class<? extends TruffleLanguage<?>> getLanguage() {
+        return ChiValue.super.getLanguage();
+    }
+
+    @ExportMessage
+    @Override
+    public Object toDisplayString(boolean allowSideEffects) {
+        return "iterator";
+    }
+}
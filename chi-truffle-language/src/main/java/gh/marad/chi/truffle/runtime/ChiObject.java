@@ -1,7 +1,6 @@
 package gh.marad.chi.truffle.runtime;
 
 import com.oracle.truffle.api.CompilerDirectives;
-import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.interop.*;
 import com.oracle.truffle.api.library.CachedLibrary;
@@ -10,27 +9,145 @@ import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.api.object.DynamicObject;
 import com.oracle.truffle.api.object.DynamicObjectLibrary;
 import com.oracle.truffle.api.object.Shape;
+import com.oracle.truffle.api.strings.TruffleString;
 import com.oracle.truffle.api.utilities.TriState;
 import gh.marad.chi.core.VariantType;
-
-import java.util.Objects;
+import gh.marad.chi.truffle.ChiContext;
 
 @ExportLibrary(InteropLibrary.class)
 public class ChiObject extends DynamicObject implements ChiValue {
-    private final String[] fieldNames;
-    private final VariantType type;
+    // fields of small objects are kept in the object itself, so no extension arrays are allocated
+    @DynamicField
+    private long primitive0;
+    @DynamicField
+    private long primitive1;
+    @DynamicField
+    private long primitive2;
+    @DynamicField
+    private Object object0;
+    @DynamicField
+    private Object object1;
+    @DynamicField
+    private Object object2;
+    @DynamicField
+    private Object object3;
 
-    private final TruffleLanguage.Env env;
+    // 0 when not computed yet, see VariantDescriptor.canCacheHash
+    private int hash = 0;
 
-    public ChiObject(String[] fieldNames, VariantType type, Shape shape, TruffleLanguage.Env env) {
+    /**
+     * @param shape initial shape of a {@link VariantDescriptor}
+     */
+    public ChiObject(Shape shape) {
         super(shape);
-        this.fieldNames = fieldNames;
-        this.type = type;
-        this.env = env;
+    }
+
+    public VariantDescriptor getDescriptor() {
+        return (VariantDescriptor) getShape().getDynamicType();
     }
 
     public VariantType getType() {
-        return type;
+        return getDescriptor().getType();
+    }
+
+    public int getCachedHash() {
+        return hash;
+    }
+
+    public void setCachedHash(int hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Slow path of {@link gh.marad.chi.truffle.nodes.objects.StructuralEqualNode}. Objects are equal when they
+     * are of the same variant, and their fields are equal.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public static boolean valuesEqual(Object left, Object right) {
+        if (left instanceof ChiObject leftObject && right instanceof ChiObject rightObject) {
+            var descriptor = leftObject.getDescriptor();
+            var otherDescriptor = rightObject.getDescriptor();
+            if (!descriptor.isSameVariant(otherDescriptor)) {
+                return false;
+            }
+            var objectLibrary = DynamicObjectLibrary.getUncached();
+            for (var key : descriptor.getFieldNames()) {
+                if (!valuesEqual(objectLibrary.getOrDefault(leftObject, key, null),
+                        objectLibrary.getOrDefault(rightObject, key, null))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (left instanceof TruffleString leftString && right instanceof TruffleString rightString) {
+            return leftString.equalsUncached(rightString, TruffleString.Encoding.UTF_8);
+        } else if (left instanceof Float leftFloat && right instanceof Float rightFloat) {
+            return leftFloat.floatValue() == rightFloat.floatValue();
+        } else if (left instanceof Long || left instanceof Float || left instanceof Boolean) {
+            return left.equals(right);
+        } else if (left instanceof ChiVector leftVector) {
+            return right instanceof ChiVector rightVector && leftVector.contentEquals(rightVector);
+        } else if (left instanceof ChiHashMap leftMap) {
+            return right instanceof ChiHashMap rightMap && leftMap.contentEquals(rightMap);
+        } else if (left instanceof ChiHashSet leftSet) {
+            return right instanceof ChiHashSet rightSet && leftSet.contentEquals(rightSet);
+        }
+        var env = ChiContext.get(null).getEnv();
+        if (env.isHostObject(left) && env.isHostObject(right)) {
+            return env.asHostObject(left).equals(env.asHostObject(right));
+        }
+        return InteropLibrary.getUncached(left).isIdentical(left, right, InteropLibrary.getUncached(right));
+    }
+
+    /**
+     * Slow path of {@link gh.marad.chi.truffle.nodes.objects.StructuralHashNode}. Values equal according
+     * to {@link #valuesEqual} have the same hash.
+     */
+    @CompilerDirectives.TruffleBoundary
+    public static int valueHash(Object value) {
+        if (value instanceof ChiObject object) {
+            var descriptor = object.getDescriptor();
+            if (object.hash != 0 && descriptor.canCacheHash()) {
+                return object.hash;
+            }
+            var objectLibrary = DynamicObjectLibrary.getUncached();
+            var result = descriptor.getVariantHash();
+            for (var key : descriptor.getFieldNames()) {
+                result = 31 * result + valueHash(objectLibrary.getOrDefault(object, key, null));
+            }
+            if (descriptor.canCacheHash()) {
+                object.hash = result;
+            }
+            return result;
+        } else if (value instanceof TruffleString string) {
+            return string.hashCodeUncached(TruffleString.Encoding.UTF_8);
+        } else if (value instanceof Long || value instanceof Boolean) {
+            return value.hashCode();
+        } else if (value instanceof Float number) {
+            return floatHash(number);
+        } else if (value instanceof ChiVector vector) {
+            return vector.contentHash();
+        } else if (value instanceof ChiHashMap map) {
+            return map.contentHash();
+        } else if (value instanceof ChiHashSet set) {
+            return set.contentHash();
+        }
+        var env = ChiContext.get(null).getEnv();
+        if (env.isHostObject(value)) {
+            return env.asHostObject(value).hashCode();
+        }
+        var interop = InteropLibrary.getUncached(value);
+        try {
+            return interop.hasIdentity(value) ? interop.identityHashCode(value) : 0;
+        } catch (UnsupportedMessageException e) {
+            throw new TODO(e);
+        }
+    }
+
+    /**
+     * Hash consistent with float {@code ==}, which treats {@code 0.0} and {@code -0.0} as equal.
+     */
+    public static int floatHash(float value) {
+        return value == 0.0f ? 0 : Float.hashCode(value);
     }
 
     @ExportMessage
@@ -51,6 +168,7 @@ public class ChiObject extends DynamicObject implements ChiValue {
     @ExportMessage
     void writeMember(String name, Object value,
                      @CachedLibrary("this") DynamicObjectLibrary objectLibrary) {
+        getDescriptor().fieldWritten();
         objectLibrary.put(this, name, value);
     }
 
@@ -107,7 +225,9 @@ public class ChiObject extends DynamicObject implements ChiValue {
                                   @CachedLibrary("this") DynamicObjectLibrary objectLibrary,
                                   @CachedLibrary(limit = "3") InteropLibrary interopLibrary) {
         var sb = new StringBuilder();
-        sb.append(Objects.requireNonNull(type.getVariant()).getVariantName());
+        var descriptor = getDescriptor();
+        var fieldNames = descriptor.getFieldNames();
+        sb.append(descriptor.getVariantName());
         sb.append("(");
         var index = 0;
         for (var key : fieldNames) {
@@ -127,29 +247,8 @@ public class ChiObject extends DynamicObject implements ChiValue {
     @ExportMessage
     static final class IsIdenticalOrUndefined {
         @Specialization
-        @CompilerDirectives.TruffleBoundary
-        static TriState doChiObject(ChiObject receiver, ChiObject other,
-                                    @CachedLibrary("receiver") DynamicObjectLibrary objectLibrary) {
-            var recvShape = objectLibrary.getShape(receiver);
-            var otherShape = objectLibrary.getShape(other);
-            if (recvShape.equals(otherShape)) {
-                var equal = true;
-                for (var key : receiver.fieldNames) {
-                    var thisField = objectLibrary.getOrDefault(receiver, key, null);
-                    var otherField = objectLibrary.getOrDefault(other, key, null);
-                    if (receiver.env.isHostObject(thisField) && receiver.env.isHostObject(otherField)) {
-                        equal = equal && receiver.env.asHostObject(thisField)
-                                                     .equals(receiver.env.asHostObject(otherField));
-                    } else {
-                        var thisIop = InteropLibrary.getUncached(thisField);
-                        var otherIop = InteropLibrary.getUncached(otherField);
-                        equal = equal && thisIop.isIdentical(thisField, otherField, otherIop);
-                    }
-                }
-                return equal ? TriState.TRUE : TriState.FALSE;
-            } else {
-                return TriState.FALSE;
-            }
+        static TriState doChiObject(ChiObject receiver, ChiObject other) {
+            return valuesEqual(receiver, other) ? TriState.TRUE : TriState.FALSE;
         }
 
         @Specialization
@@ -159,13 +258,7 @@ public class ChiObject extends DynamicObject implements ChiValue {
     }
 
     @ExportMessage
-    @CompilerDirectives.TruffleBoundary
-    public int identityHashCode(@CachedLibrary("this") DynamicObjectLibrary objectLibrary) {
-        var values = new Object[fieldNames.length];
-        var i = 0;
-        for (var key : fieldNames) {
-            values[i++] = objectLibrary.getOrDefault(this, key, null);
-        }
-        return Objects.hash(values);
+    public int identityHashCode() {
+        return valueHash(this);
     }
 }
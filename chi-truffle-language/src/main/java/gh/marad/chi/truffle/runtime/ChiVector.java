@@ -0,0 +1,372 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.InvalidArrayIndexException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.utilities.TriState;
+
+import java.util.Arrays;
+
+/**
+ * Persistent vector - a trie with 32 elements in each node, plus the last elements kept in a separate tail.
+ * Updates copy only the path to the changed element, so they take O(log32 n) time and share the rest
+ * with the original vector. Use {@link Transient} to build a vector from many elements.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class ChiVector implements ChiValue {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+    public static final ChiVector EMPTY = new ChiVector(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /**
+     * Node of the trie. Nodes created by a transient vector are owned by its edit token
+     * and may be changed in place until the vector is made persistent.
+     */
+    private static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private ChiVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object get(int index) {
+        checkIndex(index, size);
+        return arrayFor(index, size, shift, root, tail)[index & MASK];
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public ChiVector add(Object value) {
+        if (size - tailOffset(size) < WIDTH) {
+            var newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = value;
+            return new ChiVector(size + 1, shift, root, newTail);
+        }
+        var tailNode = new Node(null, tail);
+        Node newRoot;
+        var newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new ChiVector(size + 1, newShift, newRoot, new Object[]{value});
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public ChiVector set(int index, Object value) {
+        checkIndex(index, size);
+        if (index >= tailOffset(size)) {
+            var newTail = tail.clone();
+            newTail[index & MASK] = value;
+            return new ChiVector(size, shift, root, newTail);
+        }
+        return new ChiVector(size, shift, doSet(null, shift, root, index, value), tail);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public ChiVector removeLast() {
+        if (size == 0) {
+            throw new TODO("Can't remove last element of an empty vector");
+        } else if (size == 1) {
+            return EMPTY;
+        } else if (size - tailOffset(size) > 1) {
+            return new ChiVector(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        var newTail = arrayFor(size - 2, size, shift, root, tail);
+        var newRoot = popTail(shift, root);
+        var newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new ChiVector(size - 1, newShift, newRoot, newTail);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    public Object[] toArray() {
+        var result = new Object[size];
+        for (int i = 0; i < size; i += WIDTH) {
+            var chunk = arrayFor(i, size, shift, root, tail);
+            System.arraycopy(chunk, 0, result, i, Math.min(WIDTH, size - i));
+        }
+        return result;
+    }
+
+    public Transient asTransient() {
+        return new Transient(this);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    boolean contentEquals(ChiVector other) {
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!ChiObject.valuesEqual(get(i), other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    int contentHash() {
+        var hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + ChiObject.valueHash(get(i));
+        }
+        return hash;
+    }
+
+    private Node popTail(int level, Node node) {
+        var subIndex = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            var newChild = popTail(level - BITS, (Node) node.array[subIndex]);
+            if (newChild == null && subIndex == 0) {
+                return null;
+            }
+            var result = new Node(null, node.array.clone());
+            result.array[subIndex] = newChild;
+            return result;
+        } else if (subIndex == 0) {
+            return null;
+        }
+        var result = new Node(null, node.array.clone());
+        result.array[subIndex] = null;
+        return result;
+    }
+
+    private static int tailOffset(int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private static Object[] arrayFor(int index, int size, int shift, Node root, Object[] tail) {
+        if (index >= tailOffset(size)) {
+            return tail;
+        }
+        var node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    private static Node newPath(Object edit, int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        var result = new Node(edit, new Object[WIDTH]);
+        result.array[0] = newPath(edit, level - BITS, node);
+        return result;
+    }
+
+    /**
+     * Puts the full tail into the trie. {@code size} is the size before the new element is added.
+     */
+    private static Node pushTail(Object edit, int size, int level, Node parent, Node tailNode) {
+        var result = editable(edit, parent);
+        var subIndex = ((size - 1) >>> level) & MASK;
+        Node toInsert;
+        if (level == BITS) {
+            toInsert = tailNode;
+        } else {
+            var child = (Node) parent.array[subIndex];
+            toInsert = child != null
+                               ? pushTail(edit, size, level - BITS, child, tailNode)
+                               : newPath(edit, level - BITS, tailNode);
+        }
+        result.array[subIndex] = toInsert;
+        return result;
+    }
+
+    private static Node doSet(Object edit, int level, Node node, int index, Object value) {
+        var result = editable(edit, node);
+        if (level == 0) {
+            result.array[index & MASK] = value;
+        } else {
+            var subIndex = (index >>> level) & MASK;
+            result.array[subIndex] = doSet(edit, level - BITS, (Node) node.array[subIndex], index, value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node itself if it's owned by the edit token, or its copy owned by the token otherwise.
+     */
+    private static Node editable(Object edit, Node node) {
+        if (edit != null && node.edit == edit) {
+            return node;
+        }
+        return new Node(edit, node.array.clone());
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            CompilerDirectives.transferToInterpreter();
+            throw new TODO("Implement runtime error handling!", InvalidArrayIndexException.create(index));
+        }
+    }
+
+    /**
+     * Mutable version of the vector for adding many elements at once. Changes are made in place,
+     * in nodes that the transient owns. Once {@link #persistent()} is called the transient can't be used anymore.
+     */
+    public static final class Transient {
+        private Object edit = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Transient(ChiVector vector) {
+            this.size = vector.size;
+            this.shift = vector.shift;
+            this.root = new Node(edit, vector.root.array.clone());
+            this.tail = Arrays.copyOf(vector.tail, WIDTH);
+        }
+
+        @CompilerDirectives.TruffleBoundary
+        public Transient add(Object value) {
+            ensureEditable();
+            if (size - tailOffset(size) < WIDTH) {
+                tail[size & MASK] = value;
+                size += 1;
+                return this;
+            }
+            var tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = value;
+            if ((size >>> BITS) > (1 << shift)) {
+                var newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(edit, size, shift, root, tailNode);
+            }
+            size += 1;
+            return this;
+        }
+
+        @CompilerDirectives.TruffleBoundary
+        public Transient set(int index, Object value) {
+            ensureEditable();
+            checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                tail[index & MASK] = value;
+            } else {
+                root = doSet(edit, shift, root, index, value);
+            }
+            return this;
+        }
+
+        public ChiVector persistent() {
+            ensureEditable();
+            edit = null;
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new ChiVector(size, shift, root, Arrays.copyOf(tail, size - tailOffset(size)));
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient vector used after it was made persistent");
+            }
+        }
+    }
+
+    @ExportMessage
+    public boolean hasArrayElements() {
+        return true;
+    }
+
+    @ExportMessage
+    public long getArraySize() {
+        return size;
+    }
+
+    @ExportMessage
+    public boolean isArrayElementReadable(long index) {
+        return 0 <= index && index < size;
+    }
+
+    @ExportMessage
+    public Object readArrayElement(long index) throws InvalidArrayIndexException {
+        if (!isArrayElementReadable(index)) {
+            throw InvalidArrayIndexException.create(index);
+        }
+        return get((int) index);
+    }
+
+    @ExportMessage
+    @CompilerDirectives.TruffleBoundary
+    TriState isIdenticalOrUndefined(Object other) {
+        return ChiObject.valuesEqual(this, other) ? TriState.TRUE : TriState.FALSE;
+    }
+
+    @ExportMessage
+    public int identityHashCode() {
+        return ChiObject.valueHash(this);
+    }
+
+    @ExportMessage
+    @Override
+    @CompilerDirectives.TruffleBoundary
+    public Object toDisplayString(boolean allowSideEffects) {
+        var sb = new StringBuilder("vectorOf(");
+        var interop = InteropLibrary.getUncached();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(interop.toDisplayString(get(i)));
+        }
+        return sb.append(")").toString();
+    }
+
+    @ExportMessage
+    @Override
+    public boolean hasLanguage() {
+        return ChiValue.super.hasLanguage();
+    }
+
+    @ExportMessage
+    @Override
+    public Class<? extends TruffleLanguage<?>> getLanguage() {
+        return ChiValue.super.getLanguage();
+    }
+}
@@ -0,0 +1,157 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.TruffleSafepoint;
+import com.oracle.truffle.api.nodes.ControlFlowException;
+import gh.marad.chi.truffle.ChiArgs;
+import gh.marad.chi.truffle.ChiContext;
+import gh.marad.chi.truffle.EffectHandlers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Values of a generator computed by a Chi producer function. The producer gets an {@code emit} function
+ * and runs on its own thread. Each {@code emit} hands the value over and suspends the producer until
+ * the next value is requested, so the rest of the producer works as a one-shot continuation.
+ * Only one of the threads runs at any time.
+ * <p>
+ * Producer runs with effect handlers that were active where the generator was created.
+ */
+public final class GeneratorProducer implements Iterator<Object>, AutoCloseable {
+    private static final Object RESUME = new Object();
+    private static final Object CANCEL = new Object();
+    private static final Object DONE = new Object();
+
+    private final TruffleLanguage.Env env;
+    private final ChiFunction producer;
+    private final EffectHandlers effectHandlers;
+    private final RootCallTarget emitTarget;
+    private final SynchronousQueue<Object> values = new SynchronousQueue<>();
+    private final SynchronousQueue<Object> commands = new SynchronousQueue<>();
+    // volatile, because the generator may be closed from the cleaner thread
+    private volatile Thread thread = null;
+    // value handed over by the producer and not taken yet, or DONE
+    private Object next = null;
+    private volatile boolean finished = false;
+
+    /**
+     * @param effectHandlers handlers the producer runs with
+     * @param emitTarget     function taking the value to emit, with this producer as the only captured value
+     */
+    public GeneratorProducer(TruffleLanguage.Env env, ChiFunction producer, EffectHandlers effectHandlers,
+                             RootCallTarget emitTarget) {
+        this.env = env;
+        this.producer = producer;
+        this.effectHandlers = effectHandlers;
+        this.emitTarget = emitTarget;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = resume();
+        }
+        return next != DONE;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var value = next;
+        next = null;
+        return value;
+    }
+
+    private Object resume() {
+        if (finished) {
+            return DONE;
+        }
+        if (thread == null) {
+            thread = env.createThread(this::run);
+            ChiContext.get(null).registerGeneratorThread(thread);
+            thread.start();
+        } else {
+            handOver(commands, RESUME);
+        }
+        var result = takeOver(values);
+        if (result instanceof Failure failure) {
+            finished = true;
+            failure.rethrow();
+        }
+        finished = result == DONE;
+        return result;
+    }
+
+    /**
+     * Called on the producer thread with emitted value. Returns when the next value is requested.
+     */
+    public void emit(Object value) {
+        handOver(values, value);
+        if (takeOver(commands) == CANCEL) {
+            throw Cancelled.INSTANCE;
+        }
+    }
+
+    private void run() {
+        try {
+            var emit = new ChiFunction(emitTarget, new LexicalScope(new Object[]{this}));
+            producer.getCallTarget().call(ChiArgs.create(producer.getBoundLexicalScope(), effectHandlers, new Object[]{emit}));
+            handOver(values, DONE);
+        } catch (Cancelled ex) {
+            // consumer is gone, nothing to report
+        } catch (Throwable ex) {
+            // consumer waits for a value, so anything ending the producer has to be handed over
+            handOver(values, new Failure(ex));
+        }
+    }
+
+    /**
+     * Stops the producer that is waiting for the next value request. The producer is not resumed - its thread
+     * just unwinds. Called by the consumer, or by the cleaner thread once the generator became unreachable.
+     */
+    @Override
+    public void close() {
+        if (thread == null) {
+            return;
+        }
+        if (!finished) {
+            finished = true;
+            handOver(commands, CANCEL);
+        }
+        TruffleSafepoint.setBlockedThreadInterruptible(null, Thread::join, thread);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    private static void handOver(SynchronousQueue<Object> queue, Object value) {
+        TruffleSafepoint.setBlockedThreadInterruptible(null, q -> q.put(value), queue);
+    }
+
+    @CompilerDirectives.TruffleBoundary
+    private static Object takeOver(SynchronousQueue<Object> queue) {
+        var result = new Object[1];
+        TruffleSafepoint.setBlockedThreadInterruptible(null, q -> result[0] = q.take(), queue);
+        return result[0];
+    }
+
+    private record Failure(Throwable exception) {
+        void rethrow() {
+            if (exception instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (exception instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static class Cancelled extends ControlFlowException {
+        static final Cancelled INSTANCE = new Cancelled();
+    }
+}
@@ -0,0 +1,273 @@
+package gh.marad.chi.truffle.runtime;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Hash array mapped trie used by {@link ChiHashMap} and {@link ChiHashSet}. Each level takes 5 bits
+ * of the key hash, and keeps only the children that are present, so nodes are small and lookups take
+ * O(log32 n) steps.
+ * <p>
+ * Hashes are computed by the caller (see {@link gh.marad.chi.truffle.nodes.objects.StructuralHashNode}),
+ * and keys are compared with {@link ChiObject#valuesEqual}, so records and strings are compared by value.
+ * <p>
+ * Operations take an edit token. Nodes owned by the token are changed in place - that's how transient
+ * collections build a trie without copying. Persistent collections pass {@code null} and always copy.
+ */
+final class HashTrie {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private HashTrie() {
+    }
+
+    /**
+     * Flag set by operations that change the number of entries.
+     */
+    static final class Change {
+        boolean sizeChanged;
+    }
+
+    abstract static class Node {
+        final Object edit;
+
+        Node(Object edit) {
+            this.edit = edit;
+        }
+
+        abstract Object get(int shift, int hash, Object key, Object notFound);
+
+        abstract Node put(Object edit, int shift, int hash, Object key, Object value, Change change);
+
+        /**
+         * Returns {@code null} when the last entry of the node was removed.
+         */
+        abstract Node remove(Object edit, int shift, int hash, Object key, Change change);
+
+        abstract void forEach(BiConsumer<Object, Object> consumer);
+
+        boolean isOwnedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+    }
+
+    static final Node EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+    /**
+     * Node keeping entries and child nodes of present hash fragments. For each fragment the array holds a pair:
+     * key and value of the entry, or {@code null} and the child node.
+     */
+    static final class BitmapNode extends Node {
+        private int bitmap;
+        private Object[] array;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit);
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key, Object notFound) {
+            var bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return notFound;
+            }
+            var index = index(bit);
+            var storedKey = array[2 * index];
+            var value = array[2 * index + 1];
+            if (storedKey == null) {
+                return ((Node) value).get(shift + BITS, hash, key, notFound);
+            }
+            return ChiObject.valuesEqual(key, storedKey) ? value : notFound;
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            var bit = bitPosition(hash, shift);
+            var index = index(bit);
+            if ((bitmap & bit) != 0) {
+                var storedKey = array[2 * index];
+                var storedValue = array[2 * index + 1];
+                if (storedKey == null) {
+                    var child = ((Node) storedValue).put(edit, shift + BITS, hash, key, value, change);
+                    return child == storedValue ? this : withPair(edit, index, null, child);
+                }
+                if (ChiObject.valuesEqual(key, storedKey)) {
+                    return storedValue == value ? this : withPair(edit, index, storedKey, value);
+                }
+                change.sizeChanged = true;
+                var child = createNode(edit, shift + BITS, storedKey, storedValue, hash, key, value);
+                return withPair(edit, index, null, child);
+            }
+            change.sizeChanged = true;
+            var count = Integer.bitCount(bitmap);
+            var newArray = new Object[2 * (count + 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = value;
+            System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (count - index));
+            if (isOwnedBy(edit)) {
+                bitmap |= bit;
+                array = newArray;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap | bit, newArray);
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Change change) {
+            var bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            var index = index(bit);
+            var storedKey = array[2 * index];
+            var storedValue = array[2 * index + 1];
+            if (storedKey == null) {
+                var child = ((Node) storedValue).remove(edit, shift + BITS, hash, key, change);
+                if (child == storedValue) {
+                    return this;
+                } else if (child != null) {
+                    return withPair(edit, index, null, child);
+                }
+            } else if (ChiObject.valuesEqual(key, storedKey)) {
+                change.sizeChanged = true;
+            } else {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            var count = Integer.bitCount(bitmap);
+            var newArray = new Object[2 * (count - 1)];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * (index + 1), newArray, 2 * index, 2 * (count - index - 1));
+            if (isOwnedBy(edit)) {
+                bitmap ^= bit;
+                array = newArray;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap ^ bit, newArray);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEach(consumer);
+                } else {
+                    consumer.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode withPair(Object edit, int index, Object key, Object value) {
+            var node = isOwnedBy(edit) ? this : new BitmapNode(edit, bitmap, array.clone());
+            node.array[2 * index] = key;
+            node.array[2 * index + 1] = value;
+            return node;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * Entries of keys with the same hash.
+     */
+    static final class CollisionNode extends Node {
+        private final int hash;
+        private Object[] array;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit);
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key, Object notFound) {
+            var index = find(key);
+            return index >= 0 ? array[index + 1] : notFound;
+        }
+
+        @Override
+        Node put(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            if (hash != this.hash) {
+                // keys of different hashes have to be split on this level
+                return new BitmapNode(edit, bitPosition(this.hash, shift), new Object[]{null, this})
+                               .put(edit, shift, hash, key, value, change);
+            }
+            var index = find(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                var node = isOwnedBy(edit) ? this : new CollisionNode(edit, hash, array.clone());
+                node.array[index + 1] = value;
+                return node;
+            }
+            change.sizeChanged = true;
+            var newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            if (isOwnedBy(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        Node remove(Object edit, int shift, int hash, Object key, Change change) {
+            var index = find(key);
+            if (index < 0) {
+                return this;
+            }
+            change.sizeChanged = true;
+            if (array.length == 2) {
+                return null;
+            }
+            var newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            if (isOwnedBy(edit)) {
+                array = newArray;
+                return this;
+            }
+            return new CollisionNode(edit, hash, newArray);
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                consumer.accept(array[i], array[i + 1]);
+            }
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (ChiObject.valuesEqual(key, array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static Node createNode(Object edit, int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        var hash1 = ChiObject.valueHash(key1);
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+        }
+        var change = new Change();
+        return EMPTY.put(edit, shift, hash1, key1, value1, change)
+                    .put(edit, shift, hash2, key2, value2, change);
+    }
+
+    private static int bitPosition(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+}
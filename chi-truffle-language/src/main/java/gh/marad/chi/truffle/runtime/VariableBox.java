@@ -0,0 +1,16 @@
+package gh.marad.chi.truffle.runtime;
+
+/**
+ * Holds a local variable that is shared between the frame that defines it and lambdas that capture it.
+ */
+public final class VariableBox {
+    private Object value;
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+}
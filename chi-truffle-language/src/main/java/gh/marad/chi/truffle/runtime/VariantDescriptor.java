@@ -0,0 +1,111 @@
+package gh.marad.chi.truffle.runtime;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.object.Shape;
+import gh.marad.chi.core.Type;
+import gh.marad.chi.core.VariantType;
+
+import java.util.Objects;
+
+/**
+ * Information shared by all objects created with a variant constructor. It's the dynamic type of their shapes,
+ * so objects don't have to keep it themselves, and it's a constant wherever the shape is cached.
+ */
+public final class VariantDescriptor {
+    private final VariantType type;
+    @CompilerDirectives.CompilationFinal(dimensions = 1)
+    private final String[] fieldNames;
+    private final Shape initialShape;
+    private final int variantTag;
+    private final int typeTag;
+    private final int variantHash;
+    private final boolean onlyPrimitiveFields;
+    private final Assumption fieldsNeverWritten;
+
+    /**
+     * @param variantTag tag of the variant name, see {@link VariantTags}
+     * @param typeTag    tag of the type name
+     */
+    public VariantDescriptor(VariantType type, int variantTag, int typeTag) {
+        var variant = Objects.requireNonNull(type.getVariant());
+        this.type = type;
+        this.fieldNames = variant.getFields().stream()
+                                 .map(VariantType.VariantField::getName)
+                                 .toArray(String[]::new);
+        this.initialShape = Shape.newBuilder()
+                                 .layout(ChiObject.class)
+                                 .dynamicType(this)
+                                 .build();
+        this.variantTag = variantTag;
+        this.typeTag = typeTag;
+        this.variantHash = variant.getVariantName().hashCode();
+        this.onlyPrimitiveFields = variant.getFields().stream().allMatch(field -> isPrimitive(field.getType()));
+        this.fieldsNeverWritten = Truffle.getRuntime().createAssumption("fields of %s never written".formatted(variant.getVariantName()));
+    }
+
+    private static boolean isPrimitive(Type type) {
+        return type.isPrimitive() || type.equals(Type.getString());
+    }
+
+    public VariantType getType() {
+        return type;
+    }
+
+    public String getVariantName() {
+        return Objects.requireNonNull(type.getVariant()).getVariantName();
+    }
+
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Shape of the object before any field is set.
+     */
+    public Shape getInitialShape() {
+        return initialShape;
+    }
+
+    /**
+     * Checks if both descriptors describe the same variant. A type definition gets new descriptors each time
+     * it's evaluated, so objects of one variant may have different descriptors.
+     */
+    public boolean isSameVariant(VariantDescriptor other) {
+        return this == other || (variantTag == other.variantTag && type.equals(other.type));
+    }
+
+    /**
+     * Checks if objects of this variant match {@code is} check with given tag - either their variant
+     * or their type has the name.
+     */
+    public boolean hasTag(int tag) {
+        return variantTag == tag || typeTag == tag;
+    }
+
+    /**
+     * Starting value of hash codes of the variant objects.
+     */
+    public int getVariantHash() {
+        return variantHash;
+    }
+
+    /**
+     * Hash code of an object can be kept as long as it can't change - none of the fields was written after
+     * the object was created, and the fields don't hold other objects that could change.
+     */
+    public boolean canCacheHash() {
+        return onlyPrimitiveFields && fieldsNeverWritten.isValid();
+    }
+
+    /**
+     * Has to be called whenever a field of existing object is written.
+     */
+    public void fieldWritten() {
+        if (fieldsNeverWritten.isValid()) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            fieldsNeverWritten.invalidate();
+        }
+    }
+}
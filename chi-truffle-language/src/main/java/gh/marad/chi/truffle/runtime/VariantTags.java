@@ -0,0 +1,16 @@
+package gh.marad.chi.truffle.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives each variant and type name a dense integer tag, so {@code is} checks and {@code when} dispatch
+ * compare integers instead of names. Tags are shared by all contexts of the language.
+ */
+public final class VariantTags {
+    private final Map<String, Integer> tags = new HashMap<>();
+
+    public synchronized int get(String name) {
+        return tags.computeIfAbsent(name, key -> tags.size());
+    }
+}
@@ -53,23 +53,20 @@ public class Module {
                        .findFunctionOrNull(functionName, paramTypes);
     }
 
-    public void defineVariable(@NotNull String packageName, @NotNull String name, @NotNull Object value) {
-        getOrCreatePackage(packageName)
-                .defineVariable(name, value);
+    public VariableCell getOrCreateVariable(@NotNull String packageName, @NotNull String name) {
+        return getOrCreatePackage(packageName)
+                       .getOrCreateVariable(name);
     }
 
-    public @Nullable Object findVariableFunctionOrNull(@NotNull String packageName, @NotNull String symbolName) {
-        var pkg = getPackage(packageName);
-        var variable = pkg.findVariableOrNull(symbolName);
-        if (variable != null) {
-            return variable;
-        }
-        // FIXME: proper lookup with overloaded functions
-        var functionLookup = pkg.findSingleFunctionOrNull(symbolName);
-        if (functionLookup != null) {
-            return functionLookup.function();
-        }
-        return null;
+    public @Nullable VariableCell findVariableOrNull(@NotNull String packageName, @NotNull String name) {
+        return getPackage(packageName)
+                       .findVariableOrNull(name);
+    }
+
+    // FIXME: proper lookup with overloaded functions
+    public @Nullable Package.FunctionLookupResult findSingleFunctionOrNull(@NotNull String packageName, @NotNull String name) {
+        return getPackage(packageName)
+                       .findSingleFunctionOrNull(name);
     }
 
     @CompilerDirectives.TruffleBoundary
@@ -7,13 +7,13 @@ import gh.marad.chi.truffle.runtime.ChiFunction;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
 public class Package {
     private final String name;
     private final HashMap<FunctionKey, FunctionLookupResult> functions;
-    private final HashMap<String, Object> variables;
+    private final HashMap<String, VariableCell> variables;
 
     public Package(String name) {
         this.name = name;
@@ -37,7 +37,7 @@ public class Package {
 
     @CompilerDirectives.TruffleBoundary
     public void defineNamedFunction(String name, ChiFunction function, Type[] paramTypes) {
-        var key = new FunctionKey(name, Objects.hash((Object[]) paramTypes));
+        var key = new FunctionKey(name, List.of(paramTypes));
         var oldDefinition = functions.get(key);
         if (oldDefinition != null) {
             oldDefinition.assumption.invalidate();
@@ -46,13 +46,13 @@ public class Package {
     }
 
     @CompilerDirectives.TruffleBoundary
-    public void defineVariable(String name, Object value) {
-        variables.put(name, value);
+    public VariableCell getOrCreateVariable(String name) {
+        return variables.computeIfAbsent(name, it -> new VariableCell());
     }
 
     @CompilerDirectives.TruffleBoundary
     public @Nullable FunctionLookupResult findFunctionOrNull(String name, Type[] paramTypes) {
-        var key = new FunctionKey(name, Objects.hash((Object[]) paramTypes));
+        var key = new FunctionKey(name, List.of(paramTypes));
         return functions.get(key);
     }
 
@@ -66,11 +66,16 @@ public class Package {
     }
 
     @CompilerDirectives.TruffleBoundary
-    public @Nullable Object findVariableOrNull(String name) {
-        return variables.get(name);
+    public @Nullable VariableCell findVariableOrNull(String name) {
+        var cell = variables.get(name);
+        return cell != null && cell.isDefined() ? cell : null;
     }
 
-    public record FunctionKey(String name, int paramTypesHash) {
+    /**
+     * Functions are identified by name and the full list of parameter types. Types cache their
+     * hash codes and are mostly interned, so comparing the keys is cheap.
+     */
+    public record FunctionKey(String name, List<Type> paramTypes) {
     }
 
     public record FunctionLookupResult(ChiFunction function, Assumption assumption) {
@@ -0,0 +1,151 @@
+package gh.marad.chi.truffle.runtime.namespaces;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+
+/**
+ * Holds the value of a single package variable. Nodes look the cell up once and keep it,
+ * so reading or writing the variable doesn't involve any lookups.
+ * <p>
+ * Most package variables are never changed after they are defined. Until the variable is written
+ * for the second time, its value is kept in a compilation final field guarded by an assumption,
+ * so compiled code sees it as a constant. After that the cell works like a frame slot - long, float
+ * and boolean values are stored unboxed as long as the variable keeps holding values of the same type.
+ */
+public final class VariableCell {
+    private enum Kind {ILLEGAL, LONG, FLOAT, BOOLEAN, OBJECT}
+
+    private boolean defined = false;
+    @CompilerDirectives.CompilationFinal
+    private Object definedValue;
+    @CompilerDirectives.CompilationFinal
+    private Assumption notChanged = Assumption.create("package variable not changed");
+
+    @CompilerDirectives.CompilationFinal
+    private Kind kind = Kind.ILLEGAL;
+    @CompilerDirectives.CompilationFinal
+    private Assumption kindNotChanged = Assumption.create("package variable kind not changed");
+    private long longValue;
+    private float floatValue;
+    private boolean booleanValue;
+    private Object objectValue;
+
+    public boolean isDefined() {
+        return defined;
+    }
+
+    public Object read() {
+        if (notChanged.isValid()) {
+            return definedValue;
+        }
+        return switch (getKind()) {
+            case LONG -> longValue;
+            case FLOAT -> floatValue;
+            case BOOLEAN -> booleanValue;
+            default -> objectValue;
+        };
+    }
+
+    public long readLong() throws UnexpectedResultException {
+        if (!notChanged.isValid() && getKind() == Kind.LONG) {
+            return longValue;
+        }
+        var value = read();
+        if (value instanceof Long l) {
+            return l;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    public float readFloat() throws UnexpectedResultException {
+        if (!notChanged.isValid() && getKind() == Kind.FLOAT) {
+            return floatValue;
+        }
+        var value = read();
+        if (value instanceof Float f) {
+            return f;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    public boolean readBoolean() throws UnexpectedResultException {
+        if (!notChanged.isValid() && getKind() == Kind.BOOLEAN) {
+            return booleanValue;
+        }
+        var value = read();
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    public void writeLong(long value) {
+        beforeWrite(value);
+        if (kindForWrite(Kind.LONG) == Kind.LONG) {
+            longValue = value;
+        } else {
+            objectValue = value;
+        }
+    }
+
+    public void writeFloat(float value) {
+        beforeWrite(value);
+        if (kindForWrite(Kind.FLOAT) == Kind.FLOAT) {
+            floatValue = value;
+        } else {
+            objectValue = value;
+        }
+    }
+
+    public void writeBoolean(boolean value) {
+        beforeWrite(value);
+        if (kindForWrite(Kind.BOOLEAN) == Kind.BOOLEAN) {
+            booleanValue = value;
+        } else {
+            objectValue = value;
+        }
+    }
+
+    public void writeObject(Object value) {
+        beforeWrite(value);
+        kindForWrite(Kind.OBJECT);
+        objectValue = value;
+    }
+
+    private void beforeWrite(Object value) {
+        if (notChanged.isValid()) {
+            // first write defines the value, the second one makes the variable mutable
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            if (defined) {
+                notChanged.invalidate();
+            } else {
+                definedValue = value;
+                defined = true;
+            }
+        }
+    }
+
+    private Kind getKind() {
+        if (!kindNotChanged.isValid()) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+        }
+        return kind;
+    }
+
+    /**
+     * Returns the kind of storage to use for a value of given kind. Storage becomes generic
+     * once the variable holds values of different types.
+     */
+    private Kind kindForWrite(Kind valueKind) {
+        var current = getKind();
+        if (current == valueKind || current == Kind.OBJECT) {
+            return current;
+        }
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        kind = current == Kind.ILLEGAL ? valueKind : Kind.OBJECT;
+        kindNotChanged.invalidate();
+        kindNotChanged = Assumption.create("package variable kind not changed");
+        return kind;
+    }
+}
@@ -1,6 +1,7 @@
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static util.Utils.prepareContext;
 
@@ -57,4 +58,44 @@ public class ArraysTest {
             assertEquals(42, result.getArrayElement(3).asInt());
         }
     }
+
+    @Test
+    public void primitive_arrays_accept_values_of_other_types() {
+        try (var context = prepareContext()) {
+            // given
+            var result = context.eval("chi", """
+                    import std/collections.array { array }
+                    val a = array[any](3, 0)
+                    a[0] = 1
+                    a[1] = "text"
+                    a[2] = 1.5
+                    a
+                    """);
+
+            // elements keep their values and types
+            assertEquals(1, result.getArrayElement(0).asInt());
+            assertEquals("text", result.getArrayElement(1).asString());
+            assertEquals(1.5, result.getArrayElement(2).asDouble(), 0.0);
+        }
+    }
+
+    @Test
+    public void can_use_float_and_bool_arrays() {
+        try (var context = prepareContext()) {
+            // given
+            context.eval("chi", """
+                    import std/collections.array { array }
+                    val floats = array[float](2, 0.5)
+                    val bools = array[bool](2, false)
+                    floats[1] = 1.5
+                    bools[1] = true
+                    """);
+
+            // then
+            assertEquals(0.5, context.eval("chi", "floats[0]").asDouble(), 0.0);
+            assertEquals(1.5, context.eval("chi", "floats[1]").asDouble(), 0.0);
+            assertFalse(context.eval("chi", "bools[0]").asBoolean());
+            assertTrue(context.eval("chi", "bools[1]").asBoolean());
+        }
+    }
 }
@@ -0,0 +1,47 @@
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Source;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class CompileStatsTest {
+    @Test
+    public void should_print_compilation_summary_for_every_source() throws IOException {
+        var err = new ByteArrayOutputStream();
+        try (var context = Context.newBuilder("chi")
+                                  .allowExperimentalOptions(true)
+                                  .option("chi.compile-stats", "true")
+                                  .err(err)
+                                  .build()) {
+            context.eval(Source.newBuilder("chi", "1 + 2", "sum.chi").build());
+        }
+        var summary = err.toString(StandardCharsets.UTF_8);
+        Assert.assertTrue(summary, summary.startsWith("Compilation of sum.chi took"));
+        Assert.assertTrue(summary, summary.contains("conversion"));
+        Assert.assertTrue(summary, summary.contains("truffle nodes"));
+    }
+
+    @Test
+    public void should_write_json_report_when_context_is_closed() throws IOException {
+        var report = Files.createTempFile("chi-compile-stats", ".json");
+        try {
+            try (var context = Context.newBuilder("chi")
+                                      .allowExperimentalOptions(true)
+                                      .allowAllAccess(true)
+                                      .option("chi.compile-stats-file", report.toString())
+                                      .build()) {
+                context.eval(Source.newBuilder("chi", "1 + 2", "first.chi").build());
+                context.eval(Source.newBuilder("chi", "3 + 4", "second.chi").build());
+            }
+            var json = Files.readString(report);
+            Assert.assertTrue(json, json.startsWith("[\n{\"source\":\"first.chi\""));
+            Assert.assertTrue(json, json.contains("{\"source\":\"second.chi\""));
+        } finally {
+            Files.delete(report);
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import org.graalvm.polyglot.Context;
 import org.junit.Assert;
 import org.junit.Test;
 import util.Utils;
@@ -57,6 +58,96 @@ public class CompositeTypesTest {
         }
     }
 
+    @Test
+    public void field_access_handles_more_shapes_than_it_caches() {
+        try (var context = Context.newBuilder("chi")
+                                  .allowExperimentalOptions(true)
+                                  .option("chi.field-cache-limit", "1")
+                                  .build()) {
+            // when
+            var result = context.eval("chi", """
+                    data Box[T] = Box(value: T)
+                    fn get[T](box: Box[T]): T { box.value }
+                    fn set[T](box: Box[T], value: T): T {
+                        box.value = value
+                        box.value
+                    }
+                    val number = Box(1)
+                    val text = Box("a")
+                    get(number) as string + get(text) + set(number, 2) as string + set(text, "b") + get(Box(3)) as string
+                    """);
+
+            // then
+            Assert.assertEquals("1a2b3", result.asString());
+        }
+    }
+
+    @Test
+    public void field_reads_handle_values_of_different_types() {
+        try (var context = prepareContext()) {
+            // when
+            var result = context.eval("chi", """
+                    data Box[T] = Box(value: T)
+                    fn get[T](box: Box[T]): T { box.value }
+                    val a = get(Box(1))
+                    val b = get(Box(true))
+                    val c = get(Box("x"))
+                    val d = get(Box(2))
+                    "$a $b $c $d"
+                    """);
+
+            // then
+            Assert.assertEquals("1 true x 2", result.asString());
+        }
+    }
+
+    @Test
+    public void variants_are_compared_by_value() {
+        try (var context = prepareContext()) {
+            // when
+            context.eval("chi", """
+                    data Leaf = Leaf(i: int, s: string)
+                    data Wrap[T] = Wrap(value: T)
+                    val leaf = Leaf(1, "b")
+                    val a = Wrap(Wrap(Wrap(Wrap(Leaf(1, "a")))))
+                    val b = Wrap(Wrap(Wrap(Wrap(Leaf(1, "a")))))
+                    val c = Wrap(Wrap(Wrap(Wrap(leaf))))
+                    """);
+
+            // then
+            Assert.assertTrue(context.eval("chi", "a == b").asBoolean());
+            Assert.assertFalse(context.eval("chi", "a != b").asBoolean());
+            Assert.assertFalse(context.eval("chi", "a == c").asBoolean());
+            Assert.assertFalse(context.eval("chi", "Leaf(1, \"a\") == leaf").asBoolean());
+
+            // and when
+            context.eval("chi", "leaf.s = \"a\"");
+
+            // then
+            Assert.assertTrue(context.eval("chi", "Leaf(1, \"a\") == leaf").asBoolean());
+            Assert.assertTrue(context.eval("chi", "a == c").asBoolean());
+        }
+    }
+
+    @Test
+    public void variants_of_different_constructors_are_not_equal() {
+        try (var context = prepareContext()) {
+            // when
+            context.eval("chi", """
+                    data Opt = Some(i: int) | Other(i: int) | None | Empty
+                    fn same(a: Opt, b: Opt): bool { a == b }
+                    """);
+
+            // then
+            Assert.assertFalse(context.eval("chi", "same(None, Empty)").asBoolean());
+            Assert.assertFalse(context.eval("chi", "same(Some(1), Other(1))").asBoolean());
+            Assert.assertFalse(context.eval("chi", "same(Some(1), None)").asBoolean());
+            Assert.assertTrue(context.eval("chi", "same(None, None)").asBoolean());
+            Assert.assertTrue(context.eval("chi", "same(Some(1), Some(1))").asBoolean());
+            Assert.assertFalse(context.eval("chi", "same(Some(1), Some(2))").asBoolean());
+        }
+    }
+
     @Test
     public void test_invoking_properties_as_functions() {
         try (var context = prepareContext()) {
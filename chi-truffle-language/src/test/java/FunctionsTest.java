@@ -160,4 +160,79 @@ public class FunctionsTest {
 
         Assert.assertEquals(9, result.asInt());
     }
+
+    @Test
+    public void test_function_body_is_compiled_within_its_own_package() {
+        try (var context = Utils.prepareContext()) {
+            context.eval("chi", """
+                    package test/counter
+                    var count = 0
+                    pub fn increment(): int {
+                        count = count + 1
+                        count
+                    }
+                    """);
+
+            var result = context.eval("chi", """
+                    import test/counter { increment }
+                    increment()
+                    increment()
+                    """);
+
+            Assert.assertEquals(2, result.asInt());
+        }
+    }
+
+    @Test
+    public void test_functions_can_be_called_before_and_after_redefinition() {
+        try (var context = Utils.prepareContext()) {
+            context.eval("chi", "fn f(): int { 1 }");
+            Assert.assertEquals(1, context.eval("chi", "f()").asInt());
+            context.eval("chi", "fn f(): int { 2 }");
+            Assert.assertEquals(2, context.eval("chi", "f()").asInt());
+        }
+    }
+
+    @Test
+    public void test_self_tail_calls_run_in_constant_stack_space() {
+        var result = Utils.eval("""
+                fn sum(n: int, acc: int): int {
+                    if (n == 0) { acc }
+                    else { sum(n - 1, acc + n) }
+                }
+                sum(1000000, 0)
+                """).asLong();
+        Assert.assertEquals(500000500000L, result);
+    }
+
+    @Test
+    public void test_lambda_tail_calls_through_its_variable_run_in_constant_stack_space() {
+        var result = Utils.eval("""
+                fn count(n: int): int {
+                    var loop = { i: int, acc: int -> acc }
+                    loop = { i: int, acc: int ->
+                        if (i == 0) { acc } else { loop(i - 1, acc + 1) }
+                    }
+                    loop(n, 0)
+                }
+                count(1000000)
+                """).asInt();
+        Assert.assertEquals(1000000, result);
+    }
+
+    @Test
+    public void test_tail_call_restart_gives_lambdas_fresh_variables() {
+        var result = Utils.eval("""
+                import std/collections.array { array }
+                fn collect(n: int, acc: array[() -> int]): array[() -> int] {
+                    var x = n
+                    acc[n] = { x }
+                    x = x * 10
+                    if (n == 0) { acc } else { collect(n - 1, acc) }
+                }
+                val fns = collect(2, array[() -> int](3, { 0 }))
+                fns[0]() + fns[1]() + fns[2]()
+                """).asInt();
+        Assert.assertEquals(30, result);
+    }
 }
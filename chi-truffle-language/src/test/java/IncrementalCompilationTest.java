@@ -0,0 +1,127 @@
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Source;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class IncrementalCompilationTest {
+    private Path dir;
+    private ByteArrayOutputStream out;
+    private Context context;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("chi-incremental");
+        out = new ByteArrayOutputStream();
+        context = Context.newBuilder("chi")
+                         .allowExperimentalOptions(true)
+                         .option("chi.incremental", "true")
+                         .out(out)
+                         .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void unchanged_sources_are_not_recompiled() throws IOException {
+        // given
+        var a = write("a.chi", """
+                package test/a
+                println("loading a")
+                pub fn value(): int { 1 }
+                """);
+        load(a);
+
+        // when
+        load(a);
+
+        // then
+        Assert.assertEquals("loading a\n", output());
+    }
+
+    @Test
+    public void changed_source_is_recompiled_with_its_dependents() throws IOException {
+        // given
+        var a = write("a.chi", """
+                package test/a
+                pub fn value(): int { 1 }
+                """);
+        var b = write("b.chi", """
+                package test/b
+                import test/a { value }
+                println("loading b")
+                pub fn doubled(): int { value() * 2 }
+                """);
+        var c = write("c.chi", """
+                package test/c
+                println("loading c")
+                """);
+        load(a);
+        load(b);
+        load(c);
+
+        // when
+        write("a.chi", """
+                package test/a
+                pub fn value(): int { 5 }
+                """);
+        load(a);
+        load(b);
+        load(c);
+
+        // then
+        Assert.assertEquals("loading b\nloading c\nloading b\n", output());
+        var result = context.eval("chi", """
+                import test/b { doubled }
+                doubled()
+                """);
+        Assert.assertEquals(10, result.asInt());
+    }
+
+    @Test
+    public void source_that_failed_to_run_is_run_again() throws IOException {
+        // given
+        var a = write("a.chi", """
+                package test/a
+                println("loading a")
+                val values = arrayOf(1)
+                values[3]
+                """);
+        Assert.assertThrows(PolyglotException.class, () -> load(a));
+
+        // when
+        Assert.assertThrows(PolyglotException.class, () -> load(a));
+
+        // then
+        Assert.assertEquals("loading a\nloading a\n", output());
+    }
+
+    private Path write(String fileName, String code) throws IOException {
+        return Files.writeString(dir.resolve(fileName), code);
+    }
+
+    private void load(Path file) throws IOException {
+        context.eval(Source.newBuilder("chi", file.toFile()).build());
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+    }
+}
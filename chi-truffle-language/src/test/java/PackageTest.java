@@ -37,4 +37,48 @@ public class PackageTest {
             Assert.assertEquals(5, result.asInt());
         }
     }
+
+    @Test
+    public void should_see_changes_of_package_variable_made_after_first_read() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    var counter = 0
+                    fn increment() { counter = counter + 1 }
+                    var i = 0
+                    while (i < 1000) {
+                        increment()
+                        i = i + 1
+                    }
+                    counter
+                    """);
+
+            Assert.assertEquals(1000, result.asInt());
+        }
+    }
+
+    @Test
+    public void should_see_redefined_package_variable_with_different_type() {
+        try (var context = prepareContext()) {
+            context.eval("chi", """
+                    package test/core
+                    pub val x = 5
+                    """);
+            var first = context.eval("chi", """
+                    import test/core { x }
+                    x
+                    """);
+            context.eval("chi", """
+                    package test/core
+                    pub val x = "hello"
+                    """);
+
+            var second = context.eval("chi", """
+                    import test/core { x }
+                    x
+                    """);
+
+            Assert.assertEquals(5, first.asInt());
+            Assert.assertEquals("hello", second.asString());
+        }
+    }
 }
@@ -38,6 +38,77 @@ public class ScopeTest {
         Assert.assertEquals(42, result.asLong());
     }
 
+    @Test
+    public void nested_lambdas_should_modify_variable_of_enclosing_function() {
+        var result = eval("""
+                fn counter(): int {
+                    var count = 0
+                    val increment = {
+                        val inner = { count = count + 1 }
+                        inner()
+                    }
+                    increment()
+                    increment()
+                    count
+                }
+                counter()
+                """);
+
+        Assert.assertEquals(2, result.asInt());
+    }
+
+    @Test
+    public void lambda_should_read_outer_values_from_inside_if_branches() {
+        var result = eval("""
+                fn f(a: int): int {
+                    if (a > 0) {
+                        val b = 10
+                        val g = { if (a > 1) { a + b } else { b } }
+                        g()
+                    } else {
+                        0
+                    }
+                }
+                f(5)
+                """);
+
+        Assert.assertEquals(15, result.asInt());
+    }
+
+    @Test
+    public void lambda_should_call_itself_through_captured_variable() {
+        var result = eval("""
+                fn f(): int {
+                    val base = 1
+                    var fact = { n: int -> n }
+                    fact = { n: int -> if (n < 2) { base } else { n * fact(n - 1) } }
+                    fact(5)
+                }
+                f()
+                """);
+
+        Assert.assertEquals(120, result.asInt());
+    }
+
+    @Test
+    public void lambdas_created_in_loop_should_capture_current_values() {
+        var result = eval("""
+                fn f(): int {
+                    val lambdas = array[() -> int](3, { 0 })
+                    var i = 0
+                    while (i < 3) {
+                        val current = i
+                        lambdas[i] = { current * 10 }
+                        i = i + 1
+                    }
+                    lambdas[0]() + lambdas[1]() + lambdas[2]()
+                }
+                f()
+                """);
+
+        Assert.assertEquals(30, result.asInt());
+    }
+
     @Test
     public void simple_blocks_should_be_lambdas() {
         Assert.assertEquals(42, eval("""
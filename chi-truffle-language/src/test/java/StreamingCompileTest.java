@@ -0,0 +1,40 @@
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.PolyglotException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingCompileTest {
+    @Test
+    public void functions_are_defined_before_top_level_code_runs() {
+        try (var context = Context.newBuilder("chi")
+                                  .allowExperimentalOptions(true)
+                                  .option("chi.streaming-compile", "true")
+                                  .build()) {
+            var result = context.eval("chi", """
+                    package test/streaming
+                    data Foo = Bar(i: int)
+                    val offset = 2
+                    val x = twice(Bar(20))
+                    fn twice(foo: Foo): int { foo.i * 2 + offset }
+                    x
+                    """);
+
+            Assert.assertEquals(42, result.asInt());
+        }
+    }
+
+    @Test
+    public void ill_typed_code_fails_compilation() {
+        try (var context = Context.newBuilder("chi")
+                                  .allowExperimentalOptions(true)
+                                  .option("chi.streaming-compile", "true")
+                                  .build()) {
+            var ex = Assert.assertThrows(PolyglotException.class, () -> context.eval("chi", """
+                    val x = 5
+                    x()
+                    """));
+
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("Compilation failed"));
+        }
+    }
+}
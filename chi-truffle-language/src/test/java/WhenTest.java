@@ -74,6 +74,27 @@ public class WhenTest {
         }
     }
 
+    @Test
+    public void when_matching_variants_picks_first_matching_branch() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    data Shape = Circle(r: int) | Square(a: int) | Rect(a: int, b: int) | Dot | Line(l: int)
+                    fn describe(s: Shape): string {
+                        when {
+                            s is Circle -> "c"
+                            s is Square -> "s"
+                            s is Rect -> "r"
+                            s is Shape -> "?"
+                            else -> "never"
+                        }
+                    }
+                    describe(Circle(1)) + describe(Square(2)) + describe(Rect(1, 2)) + describe(Dot) + describe(Line(3)) + describe(Circle(4))
+                    """);
+
+            Assert.assertEquals("csr??c", result.asString());
+        }
+    }
+
     @Test
     public void funny_stuff() {
         try (var context = prepareContext()) {
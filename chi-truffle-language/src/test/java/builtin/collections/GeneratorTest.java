@@ -0,0 +1,124 @@
+package builtin.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static util.Utils.prepareContext;
+
+public class GeneratorTest {
+    @Test
+    public void values_are_produced_on_demand() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    import std/collections.generator { generator, hasNext, next }
+
+                    fn naturals(emit: (int) -> unit) {
+                        var i = 0
+                        while (true) {
+                            emit(i)
+                            i = i + 1
+                        }
+                    }
+
+                    val numbers = generator(naturals)
+                    var sum = 0
+                    var count = 0
+                    while (count < 1000 && hasNext(numbers)) {
+                        sum = sum + next(numbers) as int
+                        count = count + 1
+                    }
+                    sum
+                    """);
+
+            Assert.assertEquals(999 * 1000 / 2, result.asInt());
+        }
+    }
+
+    @Test
+    public void generator_ends_with_producer() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    import std/collections.generator { generator, hasNext, next }
+
+                    fn three(emit: (string) -> unit) {
+                        emit("a")
+                        emit("b")
+                        emit("c")
+                    }
+
+                    val letters = generator(three)
+                    var result = ""
+                    while (hasNext(letters)) {
+                        result = result + next(letters) as string
+                    }
+                    result + hasNext(letters) as string
+                    """);
+
+            Assert.assertEquals("abcfalse", result.asString());
+        }
+    }
+
+    @Test
+    public void producer_can_emit_from_effect_handler() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    import std/collections.generator { generator, hasNext, next }
+
+                    effect yield(value: int): int
+
+                    fn squares(emit: (int) -> unit) {
+                        handle {
+                            var i = 1
+                            while (i <= 4) {
+                                yield(i * i)
+                                i = i + 1
+                            }
+                        } with {
+                            yield(value) -> {
+                                emit(value)
+                                resume(value)
+                            }
+                        }
+                    }
+
+                    val values = generator(squares)
+                    var sum = 0
+                    while (hasNext(values)) {
+                        sum = sum + next(values) as int
+                    }
+                    sum
+                    """);
+
+            Assert.assertEquals(1 + 4 + 9 + 16, result.asInt());
+        }
+    }
+
+    @Test
+    public void lines_are_read_lazily() throws IOException {
+        var file = Files.createTempFile("chi-lines", ".txt");
+        try (var context = prepareContext()) {
+            Files.writeString(file, IntStream.rangeClosed(1, 100).mapToObj(Integer::toString).collect(Collectors.joining("\n")));
+            var result = context.eval("chi", """
+                    import std/io { lines }
+                    import std/collections.generator { hasNext, next }
+
+                    val input = lines("%s")
+                    var count = 0
+                    while (hasNext(input)) {
+                        next(input)
+                        count = count + 1
+                    }
+                    count
+                    """.formatted(file.toString().replace("\\", "/")));
+
+            Assert.assertEquals(100, result.asInt());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package builtin.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static util.Utils.prepareContext;
+
+public class PersistentCollectionsTest {
+    @Test
+    public void vector_updates_keep_previous_versions() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    var v = vectorOf[int]()
+                    var i = 0
+                    while (i < 2000) {
+                        v = v.add(i)
+                        i += 1
+                    }
+                    val updated = v.set(1500, 7)
+                    var shrunk = v
+                    while (shrunk.size() > 10) {
+                        shrunk = shrunk.removeLast()
+                    }
+                    while (shrunk.size() < 1100) {
+                        shrunk = shrunk.add(shrunk.size())
+                    }
+                    "${v.getOrElse(1500, 0)} ${updated.getOrElse(1500, 0)} ${v.size()} ${shrunk.getOrElse(1050, 0)} ${shrunk.lastOrElse(0)}"
+                    """);
+
+            Assert.assertEquals("1500 7 2000 1050 1099", result.asString());
+        }
+    }
+
+    @Test
+    public void vectors_are_interop_arrays() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", "vectorOf(1, 2, 3)");
+
+            Assert.assertTrue(result.hasArrayElements());
+            Assert.assertEquals(3, result.getArraySize());
+            Assert.assertEquals(2, result.getArrayElement(1).asInt());
+        }
+    }
+
+    @Test
+    public void map_keys_are_compared_by_value() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    data Point = Point(x: int, y: int)
+                    var m = mapOf[Point, string]()
+                    var i = 0
+                    while (i < 1000) {
+                        m = m.put(Point(i, i), "p$i")
+                        i += 1
+                    }
+                    val removed = m.remove(Point(5, 5))
+                    "${m.getOrElse(Point(42, 42), "none")} ${m.size()} ${removed.size()} ${removed.containsKey(Point(5, 5))} ${m.containsKey(Point(5, 5))}"
+                    """);
+
+            Assert.assertEquals("p42 1000 999 false true", result.asString());
+        }
+    }
+
+    @Test
+    public void maps_are_interop_hashes() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    mapOf("a", 1, "b", 2).put("a", 3)
+                    """);
+
+            Assert.assertTrue(result.hasHashEntries());
+            Assert.assertEquals(2, result.getHashSize());
+            Assert.assertEquals(3, result.getHashValue("a").asInt());
+        }
+    }
+
+    @Test
+    public void maps_with_numeric_keys_are_readable_from_host() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    mapOf(1, "one", 2, "two")
+                    """);
+
+            Assert.assertEquals("one", result.getHashValue(1).asString());
+            Assert.assertEquals("two", result.getHashValue(2L).asString());
+            Assert.assertTrue(result.hasHashEntry((short) 1));
+            Assert.assertFalse(result.hasHashEntry(3));
+        }
+    }
+
+    @Test
+    public void sets_contain_each_element_once() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    var s = setOf[int]()
+                    var i = 0
+                    while (i < 5000) {
+                        s = s.add(i % 3000)
+                        i += 1
+                    }
+                    i = 0
+                    while (i < 3000) {
+                        s = s.remove(2 * i)
+                        i += 1
+                    }
+                    "${s.size()} ${s.contains(1)} ${s.contains(2)} ${setOf(1, 2) == setOf(2, 1)} ${vectorOf(1, 2) == vectorOf(2, 1)}"
+                    """);
+
+            Assert.assertEquals("1500 true false true false", result.asString());
+        }
+    }
+
+    @Test
+    public void collections_support_higher_order_functions() {
+        try (var context = prepareContext()) {
+            var result = context.eval("chi", """
+                    val v = vectorOf(1, 2, 3, 4)
+                    var sum = 0
+                    v.forEach({ i: int -> sum += i })
+                    val even = v.filter({ i: int -> i % 2 == 0 }).map({ i: int -> i * 10 })
+                    val path = v.fold("", { acc: string, i: int -> "$acc/$i" })
+                    val s = setOf(1, 2).union(setOf(2, 3)).map({ i: int -> i * 2 })
+                    val m = mapOf("a", 1, "b", 2).union(mapOf("b", 3)).filter({ k: string, i: int -> i > 1 })
+                    val total = m.fold(0, { acc: int, k: string, i: int -> acc + i })
+                    val arr = even.toArray()
+                    "$sum ${arr[1]} ${arr.size()} $path ${s.size()} ${s.contains(6)} ${m.size()} $total ${s.fold(0, { acc: int, i: int -> acc + i })}"
+                    """);
+
+            Assert.assertEquals("10 40 2 /1/2/3/4 3 true 1 3 12", result.asString());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package gh.marad.chi.truffle.benchmarks;
+
+import org.junit.Assume;
+
+/**
+ * Benchmarks are slow, so they only run when `-Dchi.benchmarks=true` is passed to the test task.
+ */
+final class BenchmarkUtils {
+    // long enough for the call targets to be compiled in the background
+    private static final long WARMUP_NANOS = 5_000_000_000L;
+    private static final int ITERATIONS = 10;
+
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * Skips the benchmark unless benchmarks are enabled.
+     */
+    static void assumeBenchmarksEnabled() {
+        Assume.assumeTrue("true".equals(System.getProperty("chi.benchmarks")));
+    }
+
+    /**
+     * Runs {@code block} repeatedly to warm up and then prints the best time out of a few runs.
+     */
+    static void measure(String name, Runnable block) {
+        var warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            block.run();
+        }
+        var best = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATIONS; i++) {
+            var start = System.nanoTime();
+            block.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-40s best=%8.2fms%n", name, best / 1e6);
+    }
+}
@@ -0,0 +1,53 @@
+package gh.marad.chi.truffle.benchmarks;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static gh.marad.chi.truffle.benchmarks.BenchmarkUtils.assumeBenchmarksEnabled;
+import static gh.marad.chi.truffle.benchmarks.BenchmarkUtils.measure;
+
+/**
+ * Measures function call overhead with recursive fibonacci, same as in examples/fib.chi.
+ */
+public class FunctionCallBenchmark {
+    @Before
+    public void onlyWhenEnabled() {
+        assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void recursive_package_function() {
+        try (var context = Context.create("chi")) {
+            context.eval("chi", """
+                    fn fib(n: int): int {
+                        if (n == 0) { 0 }
+                        else if (n == 1) { 1 }
+                        else { fib(n - 1) + fib(n - 2) }
+                    }
+                    """);
+            var fib = context.eval("chi", "fib");
+            measure("fib(25) package function", () -> Assert.assertEquals(75025, fib.execute(25).asInt()));
+        }
+    }
+
+    @Test
+    public void recursive_lambda() {
+        try (var context = Context.create("chi")) {
+            var fib = context.eval("chi", """
+                    fn makeFib(): (int) -> int {
+                        var fib = { n: int -> n }
+                        fib = { n: int ->
+                            if (n == 0) { 0 }
+                            else if (n == 1) { 1 }
+                            else { fib(n - 1) + fib(n - 2) }
+                        }
+                        fib
+                    }
+                    makeFib()
+                    """);
+            measure("fib(25) lambda", () -> Assert.assertEquals(75025, fib.execute(25).asInt()));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package gh.marad.chi.truffle.benchmarks;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static gh.marad.chi.truffle.benchmarks.BenchmarkUtils.assumeBenchmarksEnabled;
+import static gh.marad.chi.truffle.benchmarks.BenchmarkUtils.measure;
+
+/**
+ * Measures creating records and reading their fields.
+ */
+public class ObjectBenchmark {
+    @Before
+    public void onlyWhenEnabled() {
+        assumeBenchmarksEnabled();
+    }
+
+    @Test
+    public void construct_and_read_records() {
+        try (var context = Context.create("chi")) {
+            context.eval("chi", """
+                    data Point = Point(x: int, y: int)
+
+                    fn walk(steps: int): int {
+                        var p = Point(0, 0)
+                        var i = 0
+                        while (i < steps) {
+                            p = Point(p.y + 1, p.x)
+                            i = i + 1
+                        }
+                        p.x + p.y
+                    }
+                    """);
+            var walk = context.eval("chi", "walk");
+            measure("1M records", () -> Assert.assertEquals(1_000_000, walk.execute(1_000_000).asInt()));
+        }
+    }
+}
@@ -95,4 +95,101 @@ public class EffectsTest {
             assertEquals(3, result.asInt());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void tail_resumptive_handler_can_resume_in_any_branch() {
+        try (var context = prepareContext()) {
+            var code = """
+                    effect clamp(num: int): int
+
+                    handle {
+                        var sum = 0
+                        var i = 0
+                        while (i < 1000) {
+                            sum = sum + clamp(i)
+                            i = i + 1
+                        }
+                        sum
+                    } with {
+                        clamp(num) -> if (num > 10) { resume(10) } else { resume(num) }
+                    }
+                    """;
+
+            var result = context.eval("chi", code);
+
+            assertEquals(55 + 989 * 10, result.asInt());
+        }
+    }
+
+    @Test
+    public void handler_can_resume_in_one_branch_and_abort_in_the_other() {
+        try (var context = prepareContext()) {
+            var code = """
+                    effect check(num: int): int
+
+                    fn run(limit: int): int {
+                        handle {
+                            check(5) + check(limit)
+                        } with {
+                            check(num) -> if (num < 10) { resume(num) } else { -1 }
+                        }
+                    }
+                    run(3) * 100 + run(20)
+                    """;
+
+            var result = context.eval("chi", code);
+
+            assertEquals(799, result.asInt());
+        }
+    }
+
+    @Test
+    public void lambdas_use_handlers_of_the_place_they_are_called_from() {
+        try (var context = prepareContext()) {
+            var code = """
+                    effect value(scale: int): int
+
+                    fn withValue(v: int, f: () -> int): int {
+                        handle { f() } with { value(scale) -> resume(v * scale) }
+                    }
+
+                    val read = { value(2) }
+                    var sum = 0
+                    var i = 0
+                    while (i < 100) {
+                        sum = sum + withValue(i, read) + withValue(1, { withValue(2, read) + value(1) })
+                        i = i + 1
+                    }
+                    sum
+                    """;
+
+            var result = context.eval("chi", code);
+
+            assertEquals(9900 + 500, result.asInt());
+        }
+    }
+
+    @Test
+    public void functions_called_through_interop_use_handlers_of_the_caller() {
+        try (var context = prepareContext()) {
+            var code = """
+                    import std/lang.interop as iop
+                    effect value(scale: int): int
+
+                    fn scaled(scale: int): int { value(scale) }
+                    data Holder = Holder(f: (int) -> int)
+                    val holder = Holder(scaled)
+
+                    handle {
+                        iop.invokeMember(holder, "f", array[any](1, 3)) as int
+                    } with {
+                        value(scale) -> resume(14 * scale)
+                    }
+                    """;
+
+            var result = context.eval("chi", code);
+
+            assertEquals(42, result.asInt());
+        }
+    }
+}
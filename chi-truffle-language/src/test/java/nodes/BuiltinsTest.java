@@ -1,5 +1,6 @@
 package nodes;
 
+import org.junit.Assert;
 import org.junit.Test;
 import util.Utils;
 
@@ -11,4 +12,34 @@ public class BuiltinsTest {
                     println("Hello World!")
                 """.stripIndent());
     }
+
+    @Test
+    public void inlined_builtins_should_work_like_regular_calls() {
+        var result = Utils.eval("""
+                import std/string { length, codePointAt, substring, indexOf }
+                import std/collections.array { array, size }
+                val s = "hello world"
+                val a = array[int](4, 0)
+                substring(s, indexOf(s, "world", 0, length(s)), 5) + (codePointAt(s, 0) as string) + (size(a) as string)
+                """);
+        Assert.assertEquals("world1044", result.asString());
+    }
+
+    @Test
+    public void inlined_builtins_should_be_called_after_redefinition() {
+        try (var context = Utils.prepareContext()) {
+            context.eval("chi", """
+                    import std/string { length }
+                    fn f(): int { length("abc") }
+                    """);
+            Assert.assertEquals(3, context.eval("chi", "f()").asInt());
+
+            context.eval("chi", """
+                    package std/string
+                    pub fn length(s: string): int { 42 }
+                    """);
+
+            Assert.assertEquals(42, context.eval("chi", "f()").asInt());
+        }
+    }
 }